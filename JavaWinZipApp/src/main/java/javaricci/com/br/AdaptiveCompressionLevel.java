@@ -0,0 +1,192 @@
+package javaricci.com.br;
+
+import java.util.function.LongSupplier;
+import java.util.zip.Deflater;
+
+/**
+ * Ajuste do nível do Deflate durante a compactação para atingir uma meta de vazão
+ * ou de prazo.
+ *
+ * A cada amostra (um bloco de cerca de 1 MiB ou o fim de uma entrada) são medidos o
+ * tempo gasto pelo compressor e a taxa de compressão obtida no nível atual. Se a
+ * vazão ficar abaixo da necessária, o nível desce; se sobrar folga, sobe, a menos que
+ * o nível seguinte já tenha se mostrado lento demais ou que a compressão não melhore
+ * com ele (dados já compactados, por exemplo).
+ *
+ * Com prazo definido, a vazão necessária é recalculada a cada amostra a partir dos
+ * bytes e do tempo restantes; o total de bytes pode crescer enquanto as pastas ainda
+ * estão sendo listadas.
+ */
+class AdaptiveCompressionLevel {
+    
+    /**
+     * Bytes de entrada entre duas medições dentro da mesma entrada
+     */
+    static final long SAMPLE_BYTES = 1024 * 1024;
+    
+    private static final int MIN_LEVEL = Deflater.BEST_SPEED;
+    private static final int MAX_LEVEL = Deflater.BEST_COMPRESSION;
+    private static final int INITIAL_LEVEL = 6;
+    
+    /** Peso da amostra mais recente nas médias por nível */
+    private static final double SMOOTHING = 0.3;
+    
+    /** Folga exigida sobre a vazão necessária antes de subir de nível */
+    private static final double HEADROOM = 1.25;
+    
+    /** Ganho mínimo de compressão (fração do tamanho original) para valer subir de nível */
+    private static final double MIN_RATIO_GAIN = 0.005;
+    
+    /** Acima desta taxa os dados são tratados como incompressíveis */
+    private static final double INCOMPRESSIBLE_RATIO = 0.98;
+    
+    /** Entradas pequenas são somadas até este total antes de formar uma amostra */
+    private static final long MIN_SAMPLE_BYTES = 64 * 1024;
+    
+    /** Amostras após as quais a medição de um nível deixa de ser considerada */
+    private static final int STALE_SAMPLES = 64;
+    
+    private final long targetBytesPerSecond;
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private final LongSupplier totalBytes;
+    
+    private final double[] throughput = new double[MAX_LEVEL + 1];
+    private final double[] ratio = new double[MAX_LEVEL + 1];
+    private final long[] measuredAt = new long[MAX_LEVEL + 1];
+    private int level = INITIAL_LEVEL;
+    private long samples;
+    private long processedBytes;
+    private long pendingInput;
+    private long pendingOutput;
+    private long pendingNanos;
+    
+    /**
+     * @param options Opções com a meta de vazão e/ou de duração
+     * @param totalBytes Total de bytes a compactar conhecido até o momento
+     */
+    AdaptiveCompressionLevel(CompressionOptions options, LongSupplier totalBytes) {
+        this.targetBytesPerSecond = options.getTargetThroughput();
+        this.hasDeadline = options.getTargetDuration() > 0;
+        this.deadlineNanos = System.nanoTime() + options.getTargetDuration() * 1_000_000L;
+        this.totalBytes = totalBytes;
+    }
+    
+    /**
+     * Medição de uma entrada compactada por um {@link Deflater}
+     */
+    class Sample {
+        private final Deflater deflater;
+        private long nanos;
+        private long sampledInput;
+        private long sampledOutput;
+        
+        private Sample(Deflater deflater) {
+            this.deflater = deflater;
+        }
+        
+        /**
+         * Contabiliza o tempo de uma gravação no compressor e, a cada
+         * {@link #SAMPLE_BYTES} de entrada, ajusta o nível do restante da entrada
+         */
+        void written(long elapsedNanos) {
+            nanos += elapsedNanos;
+            long input = deflater.getBytesRead() - sampledInput;
+            if (input >= SAMPLE_BYTES) {
+                long output = deflater.getBytesWritten() - sampledOutput;
+                deflater.setLevel(record(input, output, nanos));
+                sampledInput += input;
+                sampledOutput += output;
+                nanos = 0;
+            }
+        }
+        
+        /**
+         * Registra o trecho final da entrada, com os tamanhos definitivos
+         */
+        void finish(long size, long compressedSize, long elapsedNanos) {
+            record(size - sampledInput, compressedSize - sampledOutput, nanos + elapsedNanos);
+        }
+    }
+    
+    /**
+     * Nível a usar no próximo bloco
+     */
+    synchronized int getLevel() {
+        return level;
+    }
+    
+    /**
+     * Aplica o nível atual ao deflater de uma entrada que ainda não recebeu dados
+     * e passa a medi-la
+     */
+    Sample begin(Deflater deflater) {
+        deflater.setLevel(getLevel());
+        return new Sample(deflater);
+    }
+    
+    /**
+     * Registra uma amostra compactada no nível atual e escolhe o nível seguinte
+     *
+     * @param inputBytes Bytes descompactados da amostra
+     * @param outputBytes Bytes compactados produzidos
+     * @param nanos Tempo gasto pelo compressor
+     * @return Nível a usar no próximo bloco
+     */
+    synchronized int record(long inputBytes, long outputBytes, long nanos) {
+        processedBytes += inputBytes;
+        pendingInput += inputBytes;
+        pendingOutput += outputBytes;
+        pendingNanos += nanos;
+        if (pendingInput < MIN_SAMPLE_BYTES || pendingNanos <= 0) {
+            // Amostras pequenas medem mais o custo fixo de cada entrada que o compressor
+            return level;
+        }
+        
+        samples++;
+        double sampleThroughput = pendingInput * 1e9 / pendingNanos;
+        double sampleRatio = (double) pendingOutput / pendingInput;
+        pendingInput = 0;
+        pendingOutput = 0;
+        pendingNanos = 0;
+        
+        boolean known = measuredAt[level] > 0 && samples - measuredAt[level] <= STALE_SAMPLES;
+        throughput[level] = known ? throughput[level] + SMOOTHING * (sampleThroughput - throughput[level])
+                                  : sampleThroughput;
+        ratio[level] = known ? ratio[level] + SMOOTHING * (sampleRatio - ratio[level]) : sampleRatio;
+        measuredAt[level] = samples;
+        
+        double required = requiredThroughput();
+        if (throughput[level] < required) {
+            if (level > MIN_LEVEL) {
+                level--;
+            }
+        } else if (level < MAX_LEVEL && throughput[level] > required * HEADROOM
+                && ratio[level] < INCOMPRESSIBLE_RATIO) {
+            int next = level + 1;
+            boolean nextKnown = measuredAt[next] > 0 && samples - measuredAt[next] <= STALE_SAMPLES;
+            boolean tooSlow = nextKnown && throughput[next] < required * HEADROOM;
+            boolean noGain = nextKnown && ratio[next] > ratio[level] - MIN_RATIO_GAIN;
+            if (!tooSlow && !noGain) {
+                level = next;
+            }
+        }
+        return level;
+    }
+    
+    /**
+     * Vazão necessária, em bytes por segundo, para cumprir as metas configuradas
+     */
+    private double requiredThroughput() {
+        double required = targetBytesPerSecond;
+        if (hasDeadline) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            long remainingBytes = Math.max(0, totalBytes.getAsLong() - processedBytes);
+            if (remainingNanos <= 0) {
+                return remainingBytes > 0 ? Double.MAX_VALUE : required;
+            }
+            required = Math.max(required, remainingBytes * 1e9 / remainingNanos);
+        }
+        return required;
+    }
+}
\ No newline at end of file
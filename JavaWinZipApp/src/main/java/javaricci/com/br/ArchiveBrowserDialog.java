@@ -0,0 +1,445 @@
+package javaricci.com.br;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Janela para navegar pelo conteúdo de um arquivo compactado sem extraí-lo.
+ *
+ * As pastas são carregadas somente quando expandidas e listagens grandes são
+ * exibidas em páginas.
+ */
+public class ArchiveBrowserDialog extends JDialog {
+    
+    private static final int PAGE_SIZE = 500;
+    private static final int PREVIEW_LIMIT = 64 * 1024;
+    
+    private final File archive;
+    private ArchiveIndex index;
+    
+    private JTree tree;
+    private DefaultTreeModel treeModel;
+    private JLabel summaryLabel;
+    private JLabel detailsLabel;
+    private JButton extractButton;
+    private JButton previewButton;
+    
+    /**
+     * Marcador exibido no fim de uma página para carregar os próximos itens
+     */
+    private static class LoadMoreMarker {
+        private final String dirPath;
+        private final int offset;
+        private final int remaining;
+        
+        LoadMoreMarker(String dirPath, int offset, int remaining) {
+            this.dirPath = dirPath;
+            this.offset = offset;
+            this.remaining = remaining;
+        }
+        
+        @Override
+        public String toString() {
+            return "Carregar mais (" + remaining + " restantes)...";
+        }
+    }
+    
+    public ArchiveBrowserDialog(Frame owner, File archive) {
+        super(owner, "Navegar: " + archive.getName(), false);
+        this.archive = archive;
+        
+        initComponents();
+        loadIndexAsync();
+    }
+    
+    private void initComponents() {
+        setSize(700, 550);
+        setLocationRelativeTo(getOwner());
+        setLayout(new BorderLayout());
+        
+        summaryLabel = new JLabel("Lendo índice do arquivo...");
+        summaryLabel.setBorder(new EmptyBorder(5, 5, 5, 5));
+        
+        treeModel = new DefaultTreeModel(new DefaultMutableTreeNode(archive.getName()));
+        tree = new JTree(treeModel);
+        tree.setCellRenderer(new EntryTreeCellRenderer());
+        tree.setEnabled(false);
+        
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                DefaultMutableTreeNode node = (DefaultMutableTreeNode) event.getPath().getLastPathComponent();
+                if (!isLoaded(node)) {
+                    node.removeAllChildren();
+                    loadPage(node, pathOf(node), 0);
+                }
+            }
+            
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+            }
+        });
+        
+        tree.addTreeSelectionListener(e -> showDetails(e.getPath()));
+        
+        tree.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    TreePath path = tree.getPathForLocation(e.getX(), e.getY());
+                    if (path != null) {
+                        loadMore((DefaultMutableTreeNode) path.getLastPathComponent());
+                    }
+                }
+            }
+        });
+        
+        detailsLabel = new JLabel(" ");
+        detailsLabel.setBorder(new EmptyBorder(5, 5, 5, 5));
+        
+        extractButton = new JButton("Extrair Seleção...");
+        extractButton.setEnabled(false);
+        extractButton.addActionListener(e -> extractSelection());
+        
+        previewButton = new JButton("Visualizar");
+        previewButton.setEnabled(false);
+        previewButton.addActionListener(e -> previewSelection());
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttonPanel.add(previewButton);
+        buttonPanel.add(extractButton);
+        
+        JScrollPane scrollPane = new JScrollPane(tree);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("Conteúdo"));
+        
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(detailsLabel, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+        
+        add(summaryLabel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+    
+    /**
+     * Monta o índice em segundo plano para não travar a interface
+     */
+    private void loadIndexAsync() {
+        SwingWorker<ArchiveIndex, Void> worker = new SwingWorker<ArchiveIndex, Void>() {
+            @Override
+            protected ArchiveIndex doInBackground() throws Exception {
+                return ArchiveIndexCache.getDefault().get(archive);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    index = get();
+                    summaryLabel.setText(index.getType().getDisplayName() + " - "
+                        + index.getEntryCount() + " entradas, "
+                        + FileUtils.formatFileSize(index.getTotalSize()) + " originais"
+                        + formatRatio(index.getTotalSize(), index.getTotalCompressedSize()));
+                    
+                    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
+                    loadPage(root, "", 0);
+                    tree.setEnabled(true);
+                    tree.expandRow(0);
+                    extractButton.setEnabled(true);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    summaryLabel.setText("Erro ao ler o arquivo: " + e.getMessage());
+                }
+            }
+        };
+        
+        worker.execute();
+    }
+    
+    /**
+     * Adiciona uma página de filhos ao nó da árvore
+     */
+    private void loadPage(DefaultMutableTreeNode parent, String dirPath, int offset) {
+        List<ArchiveIndex.Node> children = index.getChildren(dirPath, offset, PAGE_SIZE);
+        
+        for (ArchiveIndex.Node child : children) {
+            DefaultMutableTreeNode childNode = new DefaultMutableTreeNode(child);
+            if (child.isDirectory()) {
+                childNode.add(new DefaultMutableTreeNode("Carregando..."));
+            }
+            parent.add(childNode);
+        }
+        
+        int next = offset + children.size();
+        int total = index.getChildCount(dirPath);
+        if (next < total) {
+            parent.add(new DefaultMutableTreeNode(new LoadMoreMarker(dirPath, next, total - next)));
+        }
+        
+        treeModel.nodeStructureChanged(parent);
+    }
+    
+    /**
+     * Substitui o marcador "Carregar mais" pela próxima página
+     */
+    private void loadMore(DefaultMutableTreeNode node) {
+        if (!(node.getUserObject() instanceof LoadMoreMarker)) {
+            return;
+        }
+        
+        LoadMoreMarker marker = (LoadMoreMarker) node.getUserObject();
+        DefaultMutableTreeNode parent = (DefaultMutableTreeNode) node.getParent();
+        parent.remove(node);
+        loadPage(parent, marker.dirPath, marker.offset);
+        tree.expandPath(new TreePath(parent.getPath()));
+    }
+    
+    /**
+     * Extrai os itens selecionados na árvore ou, sem seleção, as entradas
+     * que correspondem aos padrões informados pelo usuário
+     */
+    private void extractSelection() {
+        EntryFilter filter = new EntryFilter();
+        TreePath[] selection = tree.getSelectionPaths();
+        
+        if (selection != null) {
+            for (TreePath path : selection) {
+                Object userObject = ((DefaultMutableTreeNode) path.getLastPathComponent()).getUserObject();
+                if (userObject instanceof ArchiveIndex.Node) {
+                    ArchiveIndex.Node node = (ArchiveIndex.Node) userObject;
+                    if (node.isDirectory()) {
+                        filter.includeDirectory(node.getPath());
+                    } else {
+                        filter.includeEntry(node.getPath());
+                    }
+                }
+            }
+        }
+        
+        if (filter.acceptsAll()) {
+            String patterns = JOptionPane.showInputDialog(this,
+                "Padrões das entradas a extrair, separados por ';' (ex.: *.conf; config/**; regex:.*\\.xml)",
+                "Extrair Entradas", JOptionPane.QUESTION_MESSAGE);
+            if (patterns == null || patterns.trim().isEmpty()) {
+                return;
+            }
+            try {
+                for (String pattern : patterns.split(";")) {
+                    if (!pattern.trim().isEmpty()) {
+                        filter.include(pattern.trim());
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(this, "Padrão inválido: " + e.getMessage(),
+                    "Erro", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
+        
+        JFileChooser folderChooser = new JFileChooser();
+        folderChooser.setDialogTitle("Selecionar Pasta de Destino");
+        folderChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        
+        if (folderChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            extractAsync(filter, folderChooser.getSelectedFile());
+        }
+    }
+    
+    private void extractAsync(EntryFilter filter, File outputFolder) {
+        extractButton.setEnabled(false);
+        
+        SwingWorker<Void, String> worker = new SwingWorker<Void, String>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                new DecompressionService().extractEntries(archive, outputFolder, filter,
+                    (progress, message) -> publish(message));
+                return null;
+            }
+            
+            @Override
+            protected void process(List<String> chunks) {
+                detailsLabel.setText(chunks.get(chunks.size() - 1));
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    int result = JOptionPane.showConfirmDialog(ArchiveBrowserDialog.this,
+                        "Extração concluída! Deseja abrir a pasta de destino?",
+                        "Sucesso", JOptionPane.YES_NO_OPTION);
+                    
+                    if (result == JOptionPane.YES_OPTION) {
+                        FileUtils.openFileLocation(outputFolder);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(ArchiveBrowserDialog.this,
+                        "Erro durante a extração: " + e.getMessage(),
+                        "Erro", JOptionPane.ERROR_MESSAGE);
+                } finally {
+                    extractButton.setEnabled(true);
+                }
+            }
+        };
+        
+        worker.execute();
+    }
+    
+    private boolean isLoaded(DefaultMutableTreeNode node) {
+        return node.getChildCount() != 1
+            || !(((DefaultMutableTreeNode) node.getFirstChild()).getUserObject() instanceof String);
+    }
+    
+    private String pathOf(DefaultMutableTreeNode node) {
+        Object userObject = node.getUserObject();
+        return userObject instanceof ArchiveIndex.Node ? ((ArchiveIndex.Node) userObject).getPath() : "";
+    }
+    
+    /**
+     * Exibe tamanho, taxa e data do item selecionado
+     */
+    private void showDetails(TreePath path) {
+        previewButton.setEnabled(selectedFile() != null);
+        
+        if (path == null || index == null) {
+            detailsLabel.setText(" ");
+            return;
+        }
+        
+        Object userObject = ((DefaultMutableTreeNode) path.getLastPathComponent()).getUserObject();
+        if (!(userObject instanceof ArchiveIndex.Node)) {
+            detailsLabel.setText(" ");
+            return;
+        }
+        
+        ArchiveIndex.Node node = (ArchiveIndex.Node) userObject;
+        StringBuilder details = new StringBuilder(node.getPath());
+        
+        if (node.isDirectory()) {
+            long[] totals = index.getDirectoryTotals(node.getPath());
+            details.append(" - ").append(FileUtils.formatFileSize(totals[0]))
+                   .append(formatRatio(totals[0], totals[1]));
+        } else {
+            ArchiveEntryInfo entry = node.getEntry();
+            details.append(" - ").append(FileUtils.formatFileSize(entry.getSize()))
+                   .append(formatRatio(entry.getSize(), entry.getCompressedSize()))
+                   .append(" - ").append(FileUtils.formatFileDate(entry.getLastModified()));
+        }
+        
+        detailsLabel.setText(details.toString());
+    }
+    
+    /**
+     * Entrada de arquivo selecionada na árvore (null se nada ou uma pasta estiver selecionado)
+     */
+    private ArchiveEntryInfo selectedFile() {
+        TreePath path = tree.getSelectionPath();
+        if (path == null || index == null) {
+            return null;
+        }
+        
+        Object userObject = ((DefaultMutableTreeNode) path.getLastPathComponent()).getUserObject();
+        if (userObject instanceof ArchiveIndex.Node && !((ArchiveIndex.Node) userObject).isDirectory()) {
+            return ((ArchiveIndex.Node) userObject).getEntry();
+        }
+        return null;
+    }
+    
+    /**
+     * Mostra o início do conteúdo da entrada selecionada como texto. O conteúdo vem
+     * do cache de entradas, de modo que abrir de novo a mesma entrada é imediato.
+     */
+    private void previewSelection() {
+        ArchiveEntryInfo entry = selectedFile();
+        if (entry == null) {
+            return;
+        }
+        
+        previewButton.setEnabled(false);
+        
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                ByteBuffer content = new DecompressionService().readEntry(archive, entry.getName());
+                byte[] data = new byte[Math.min(content.remaining(), PREVIEW_LIMIT)];
+                content.get(data);
+                
+                String text = new String(data, StandardCharsets.UTF_8);
+                if (content.hasRemaining()) {
+                    text += "\n\n[... " + FileUtils.formatFileSize(entry.getSize()) + " no total]";
+                }
+                return text;
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    JTextArea textArea = new JTextArea(get());
+                    textArea.setEditable(false);
+                    textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+                    textArea.setCaretPosition(0);
+                    
+                    JScrollPane scrollPane = new JScrollPane(textArea);
+                    scrollPane.setPreferredSize(new Dimension(600, 400));
+                    
+                    JOptionPane.showMessageDialog(ArchiveBrowserDialog.this, scrollPane,
+                        entry.getName(), JOptionPane.PLAIN_MESSAGE);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(ArchiveBrowserDialog.this,
+                        "Erro ao ler a entrada: " + e.getMessage(),
+                        "Erro", JOptionPane.ERROR_MESSAGE);
+                } finally {
+                    previewButton.setEnabled(selectedFile() != null);
+                }
+            }
+        };
+        
+        worker.execute();
+    }
+    
+    private static String formatRatio(long size, long compressedSize) {
+        int ratio = ArchiveEntryInfo.ratio(size, compressedSize);
+        return ratio >= 0 ? " (taxa " + ratio + "%)" : "";
+    }
+    
+    /**
+     * Renderer que mostra tamanho e taxa de compressão ao lado de cada entrada
+     */
+    private static class EntryTreeCellRenderer extends DefaultTreeCellRenderer {
+        @Override
+        public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected,
+                boolean expanded, boolean leaf, int row, boolean hasFocus) {
+            
+            super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+            
+            Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
+            if (userObject instanceof ArchiveIndex.Node) {
+                ArchiveIndex.Node node = (ArchiveIndex.Node) userObject;
+                if (node.isDirectory()) {
+                    setIcon(getDefaultClosedIcon());
+                } else {
+                    ArchiveEntryInfo entry = node.getEntry();
+                    setText(node.getName() + "  [" + FileUtils.formatFileSize(entry.getSize())
+                        + formatRatio(entry.getSize(), entry.getCompressedSize()) + "]");
+                    setIcon(getDefaultLeafIcon());
+                }
+            }
+            
+            return this;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,618 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Deflater;
+
+/**
+ * API para uso do mecanismo de compactação como biblioteca, sobre canais e buffers,
+ * sem arquivos temporários.
+ *
+ * Cada operação é executada no Executor informado (um pool próprio, o pool do
+ * servidor ou threads virtuais) e retorna um CompletableFuture. Cancelar o futuro
+ * faz a cópia parar no próximo buffer. A thread da operação não é interrompida,
+ * porque a interrupção fecharia os canais do chamador (ClosedByInterruptException);
+ * uma leitura bloqueada em um canal do chamador termina antes de o cancelamento ser
+ * percebido. Os canais informados pelo chamador nunca são fechados pelas operações.
+ */
+public class ArchiveChannelService {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static ExecutorService defaultExecutor;
+    
+    /**
+     * Arquivo a incluir em um novo arquivo compactado
+     */
+    public static class Source {
+        private final String name;
+        private final ReadableByteChannel channel;
+        private final long size;
+        private final long lastModified;
+        
+        /**
+         * @param name Caminho da entrada dentro do arquivo
+         * @param channel Canal com o conteúdo
+         * @param size Tamanho do conteúdo (-1 se desconhecido; o TAR exige o tamanho)
+         * @param lastModified Data de modificação em milissegundos
+         */
+        public Source(String name, ReadableByteChannel channel, long size, long lastModified) {
+            this.name = name;
+            this.channel = channel;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+        
+        /**
+         * Entrada com o conteúdo restante do buffer e a data atual
+         */
+        public static Source of(String name, ByteBuffer content) {
+            ByteBuffer view = content.duplicate();
+            return new Source(name, new SeekableInMemoryByteChannel(toArray(view)), view.remaining(),
+                System.currentTimeMillis());
+        }
+        
+        public String getName() {
+            return name;
+        }
+    }
+    
+    /**
+     * Recebe o conteúdo de cada entrada lida; o canal vale apenas durante a chamada
+     */
+    public interface EntryVisitor {
+        void visit(ArchiveEntryInfo entry, ReadableByteChannel content) throws IOException;
+    }
+    
+    /**
+     * Corpo de uma operação, que consulta o cancelamento entre os buffers
+     */
+    private interface Body<T> {
+        T run(Operation<?> operation) throws Exception;
+    }
+    
+    /**
+     * Futuro da operação, consultado pela cópia a cada buffer
+     */
+    private static class Operation<T> extends CompletableFuture<T> {
+        private Runnable task;
+        
+        void checkCancelled() throws InterruptedIOException {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Operação cancelada");
+            }
+        }
+    }
+    
+    private final Executor executor;
+    private final ResourceLimits limits;
+    
+    /**
+     * Operações aguardando vaga no limite de threads
+     */
+    private final Queue<Operation<?>> waiting = new ArrayDeque<>();
+    private int running;
+    
+    /**
+     * Usa um pool compartilhado de threads daemon, criado sob demanda
+     */
+    public ArchiveChannelService() {
+        this(sharedExecutor());
+    }
+    
+    /**
+     * @param executor Executor das operações, por exemplo
+     *                 Executors.newVirtualThreadPerTaskExecutor() no Java 21
+     */
+    public ArchiveChannelService(Executor executor) {
+        this(executor, new ResourceLimits());
+    }
+    
+    /**
+     * Usa o pool compartilhado com os limites informados
+     */
+    public ArchiveChannelService(ResourceLimits limits) {
+        this(sharedExecutor(), limits);
+    }
+    
+    /**
+     * @param executor Executor das operações
+     * @param limits Limites de banda aplicados aos canais e número máximo de
+     *               operações executadas ao mesmo tempo
+     */
+    public ArchiveChannelService(Executor executor, ResourceLimits limits) {
+        this.executor = executor;
+        this.limits = limits;
+    }
+    
+    private static synchronized Executor sharedExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "archive-channel");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+    
+    /**
+     * Compacta um fluxo de bytes em GZIP
+     *
+     * @param source Canal com os dados originais, lido até o fim
+     * @param sink Canal que recebe os dados compactados
+     * @return Futuro com a quantidade de bytes originais lidos
+     */
+    public CompletableFuture<Long> compress(ReadableByteChannel source, WritableByteChannel sink) {
+        return submit(operation -> {
+            try (GzipCompressorOutputStream gzip = new GzipCompressorOutputStream(outputOf(sink))) {
+                return copy(inputOf(source), gzip, operation);
+            }
+        });
+    }
+    
+    /**
+     * Descompacta um fluxo GZIP, inclusive com vários membros concatenados
+     *
+     * @param source Canal com os dados compactados
+     * @param sink Canal que recebe os dados originais
+     * @return Futuro com a quantidade de bytes originais gravados
+     */
+    public CompletableFuture<Long> decompress(ReadableByteChannel source, WritableByteChannel sink) {
+        return submit(operation -> {
+            try (OutputStream out = outputOf(sink)) {
+                return copy(new GzipCompressorInputStream(inputOf(source), true), out, operation);
+            }
+        });
+    }
+    
+    /**
+     * Cria um arquivo compactado com as entradas informadas.
+     * ZIP, TAR e TAR.GZ são gravados em sequência; 7z exige um canal posicionável.
+     *
+     * @param type Formato do arquivo
+     * @param sources Entradas, gravadas na ordem da lista
+     * @param sink Canal que recebe o arquivo
+     * @return Futuro com a quantidade de bytes originais gravados
+     */
+    public CompletableFuture<Long> createArchive(ArchiveType type, List<Source> sources, WritableByteChannel sink) {
+        return submit(operation -> {
+            switch (type) {
+                case ZIP:
+                    return writeZip(sources, sink, operation);
+                case TAR:
+                case TAR_GZ:
+                    return writeTar(sources, sink, type == ArchiveType.TAR_GZ, operation);
+                case SEVEN_Z:
+                    if (!(sink instanceof SeekableByteChannel)) {
+                        throw new IllegalArgumentException("O formato 7z exige um canal posicionável");
+                    }
+                    return write7z(sources, (SeekableByteChannel) sink, operation);
+                default:
+                    throw new UnsupportedOperationException("Formato não suportado para várias entradas: "
+                        + type.getDisplayName());
+            }
+        });
+    }
+    
+    /**
+     * Lê as entradas de um arquivo compactado recebido por canal. ZIP é lido pelo
+     * diretório central quando o canal é posicionável e em sequência nos demais
+     * casos; 7z exige um canal posicionável. Pastas não são visitadas.
+     *
+     * @param type Formato do arquivo
+     * @param archive Canal com o arquivo
+     * @param filter Filtro das entradas a ler
+     * @param visitor Visitante que consome o conteúdo, chamado na thread da operação
+     * @return Futuro concluído quando todas as entradas forem visitadas
+     */
+    public CompletableFuture<Void> readEntries(ArchiveType type, ReadableByteChannel archive,
+                                               EntryFilter filter, EntryVisitor visitor) {
+        return submit(operation -> {
+            read(type, archive, filter, visitor, operation);
+            return null;
+        });
+    }
+    
+    /**
+     * Lê o conteúdo de uma entrada de um arquivo compactado mantido em memória
+     *
+     * @param type Formato do arquivo
+     * @param archive Buffer com o arquivo completo
+     * @param entryName Caminho da entrada dentro do arquivo
+     * @return Futuro com o conteúdo descompactado
+     */
+    public CompletableFuture<ByteBuffer> readEntry(ArchiveType type, ByteBuffer archive, String entryName) {
+        SeekableByteChannel channel = new SeekableInMemoryByteChannel(toArray(archive.duplicate()));
+        
+        return submit(operation -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            boolean[] found = new boolean[1];
+            
+            read(type, channel, EntryFilter.all().includeEntry(entryName), (entry, in) -> {
+                found[0] = true;
+                copy(Channels.newInputStream(in), content, operation);
+            }, operation);
+            
+            if (!found[0]) {
+                throw new FileNotFoundException("Entrada não encontrada: " + entryName);
+            }
+            return ByteBuffer.wrap(content.toByteArray());
+        });
+    }
+    
+    private void read(ArchiveType type, ReadableByteChannel archive, EntryFilter filter, EntryVisitor visitor,
+                      Operation<?> operation) throws IOException {
+        switch (type) {
+            case ZIP:
+                if (archive instanceof SeekableByteChannel) {
+                    readZipFile((SeekableByteChannel) archive, filter, visitor, operation);
+                } else {
+                    readZipStream(inputOf(archive), filter, visitor, operation);
+                }
+                break;
+            case SEVEN_Z:
+                if (!(archive instanceof SeekableByteChannel)) {
+                    throw new IllegalArgumentException("O formato 7z exige um canal posicionável");
+                }
+                read7z((SeekableByteChannel) archive, filter, visitor, operation);
+                break;
+            case TAR:
+                readTar(inputOf(archive), filter, visitor, operation);
+                break;
+            case TAR_GZ:
+                readTar(new GzipCompressorInputStream(inputOf(archive), true), filter, visitor, operation);
+                break;
+            default:
+                readGz(inputOf(archive), filter, visitor, operation);
+                break;
+        }
+    }
+    
+    private <T> CompletableFuture<T> submit(Body<T> body) {
+        Operation<T> operation = new Operation<>();
+        operation.task = () -> {
+            try {
+                if (!operation.isDone()) {
+                    operation.complete(body.run(operation));
+                }
+            } catch (Throwable e) {
+                operation.completeExceptionally(e);
+            } finally {
+                synchronized (waiting) {
+                    running--;
+                }
+                dispatch();
+            }
+        };
+        
+        synchronized (waiting) {
+            waiting.add(operation);
+        }
+        dispatch();
+        return operation;
+    }
+    
+    /**
+     * Inicia as operações em espera enquanto houver vaga no limite de threads,
+     * consultado a cada início para acompanhar mudanças do limite
+     */
+    private void dispatch() {
+        List<Operation<?>> ready = new ArrayList<>();
+        synchronized (waiting) {
+            while (!waiting.isEmpty() && running < limits.limitThreads(Integer.MAX_VALUE)) {
+                ready.add(waiting.poll());
+                running++;
+            }
+        }
+        
+        for (Operation<?> operation : ready) {
+            try {
+                executor.execute(operation.task);
+            } catch (RejectedExecutionException e) {
+                synchronized (waiting) {
+                    running--;
+                }
+                operation.completeExceptionally(e);
+            }
+        }
+    }
+    
+    private long writeZip(List<Source> sources, WritableByteChannel sink, Operation<?> operation) throws IOException {
+        long total = 0;
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(outputOf(sink))) {
+            zos.setLevel(Deflater.DEFAULT_COMPRESSION);
+            zos.setMethod(ZipArchiveOutputStream.DEFLATED);
+            
+            for (Source source : sources) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(ArchiveIndex.normalizeName(source.name));
+                entry.setTime(source.lastModified);
+                if (source.size >= 0) {
+                    entry.setSize(source.size);
+                }
+                zos.putArchiveEntry(entry);
+                total += copy(inputOf(source.channel), zos, operation);
+                zos.closeArchiveEntry();
+            }
+        }
+        return total;
+    }
+    
+    private long writeTar(List<Source> sources, WritableByteChannel sink, boolean gzip,
+                          Operation<?> operation) throws IOException {
+        long total = 0;
+        OutputStream out = gzip ? new GzipCompressorOutputStream(outputOf(sink)) : outputOf(sink);
+        
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(out)) {
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tos.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            
+            for (Source source : sources) {
+                long size = source.size >= 0 ? source.size
+                    : source.channel instanceof SeekableByteChannel ? ((SeekableByteChannel) source.channel).size()
+                        - ((SeekableByteChannel) source.channel).position() : -1;
+                if (size < 0) {
+                    throw new IllegalArgumentException("O formato TAR exige o tamanho da entrada: " + source.name);
+                }
+                
+                TarArchiveEntry entry = new TarArchiveEntry(ArchiveIndex.normalizeName(source.name));
+                entry.setSize(size);
+                entry.setModTime(source.lastModified);
+                tos.putArchiveEntry(entry);
+                total += copy(inputOf(source.channel), tos, operation);
+                tos.closeArchiveEntry();
+            }
+        }
+        return total;
+    }
+    
+    private long write7z(List<Source> sources, SeekableByteChannel sink, Operation<?> operation) throws IOException {
+        long total = 0;
+        try (SevenZOutputFile sevenZOutput = new SevenZOutputFile(limits.throttle(new NonClosingChannel(sink)))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (Source source : sources) {
+                SevenZArchiveEntry entry = new SevenZArchiveEntry();
+                entry.setName(ArchiveIndex.normalizeName(source.name));
+                entry.setLastModifiedDate(new Date(source.lastModified));
+                sevenZOutput.putArchiveEntry(entry);
+                
+                InputStream in = inputOf(source.channel);
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    operation.checkCancelled();
+                    sevenZOutput.write(buffer, 0, read);
+                    total += read;
+                }
+                sevenZOutput.closeArchiveEntry();
+            }
+        }
+        return total;
+    }
+    
+    private void readZipFile(SeekableByteChannel archive, EntryFilter filter, EntryVisitor visitor,
+                             Operation<?> operation) throws IOException {
+        try (ZipFile zipFile = new ZipFile(limits.throttle(new NonClosingChannel(archive)), "canal", "UTF8", true)) {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !filter.matches(entry.getName())) {
+                    continue;
+                }
+                operation.checkCancelled();
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    visitor.visit(ArchiveIndex.toEntryInfo(entry), channelOf(in, operation));
+                }
+            }
+        }
+    }
+    
+    private void readZipStream(InputStream in, EntryFilter filter, EntryVisitor visitor,
+                               Operation<?> operation) throws IOException {
+        ZipArchiveInputStream zis = new ZipArchiveInputStream(in, "UTF8", true, true);
+        ZipArchiveEntry entry;
+        while ((entry = zis.getNextZipEntry()) != null) {
+            operation.checkCancelled();
+            if (!entry.isDirectory() && filter.matches(entry.getName())) {
+                visitor.visit(ArchiveIndex.toEntryInfo(entry), channelOf(zis, operation));
+            }
+        }
+    }
+    
+    private void read7z(SeekableByteChannel archive, EntryFilter filter, EntryVisitor visitor,
+                        Operation<?> operation) throws IOException {
+        try (SevenZFile sevenZFile = new SevenZFile(limits.throttle(new NonClosingChannel(archive)),
+                 MemoryBudget.getDefault().sevenZOptions(1))) {
+            InputStream content = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    return sevenZFile.read();
+                }
+                
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return sevenZFile.read(b, off, len);
+                }
+            };
+            
+            SevenZArchiveEntry entry;
+            while ((entry = sevenZFile.getNextEntry()) != null) {
+                operation.checkCancelled();
+                if (entry.hasStream() && !entry.isDirectory() && filter.matches(entry.getName())) {
+                    visitor.visit(ArchiveIndex.toEntryInfo(entry), channelOf(content, operation));
+                }
+            }
+        } catch (MemoryLimitException e) {
+            throw MemoryBudget.exceeded(e, "o arquivo 7z");
+        }
+    }
+    
+    private void readTar(InputStream in, EntryFilter filter, EntryVisitor visitor,
+                         Operation<?> operation) throws IOException {
+        TarArchiveInputStream tais = new TarArchiveInputStream(in);
+        TarArchiveEntry entry;
+        while ((entry = tais.getNextTarEntry()) != null) {
+            operation.checkCancelled();
+            if (entry.isFile() && filter.matches(entry.getName())) {
+                visitor.visit(ArchiveIndex.toEntryInfo(entry, false), channelOf(tais, operation));
+            }
+        }
+    }
+    
+    /**
+     * O nome da única entrada vem do cabeçalho GZIP, quando presente
+     */
+    private void readGz(InputStream in, EntryFilter filter, EntryVisitor visitor,
+                        Operation<?> operation) throws IOException {
+        GzipCompressorInputStream gzis = new GzipCompressorInputStream(in, true);
+        String fileName = gzis.getMetaData().getFilename();
+        String name = fileName != null ? ArchiveIndex.normalizeName(fileName) : "conteudo";
+        
+        if (filter.matches(name)) {
+            visitor.visit(new ArchiveEntryInfo(name, false, -1, -1, -1, gzis.getMetaData().getModificationTime()),
+                channelOf(gzis, operation));
+        }
+    }
+    
+    /**
+     * Copia até o fim da entrada, verificando o cancelamento a cada buffer
+     */
+    private static long copy(InputStream in, OutputStream out, Operation<?> operation) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            operation.checkCancelled();
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+    
+    /**
+     * Canal de leitura do conteúdo de uma entrada; fechá-lo não fecha o arquivo
+     */
+    private static ReadableByteChannel channelOf(InputStream in, Operation<?> operation) {
+        return Channels.newChannel(new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                operation.checkCancelled();
+                return super.read(b, off, len);
+            }
+            
+            @Override
+            public void close() {
+                // o arquivo continua aberto para as próximas entradas
+            }
+        });
+    }
+    
+    private InputStream inputOf(ReadableByteChannel channel) {
+        return new BufferedInputStream(limits.throttle(Channels.newInputStream(channel)), BUFFER_SIZE);
+    }
+    
+    /**
+     * Stream com buffer sobre o canal; fechá-lo apenas esvazia o buffer, sem fechar o canal
+     */
+    private OutputStream outputOf(WritableByteChannel channel) {
+        return new BufferedOutputStream(limits.throttle(Channels.newOutputStream(channel)), BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+    
+    private static byte[] toArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+    
+    /**
+     * Canal posicionável que ignora o fechamento, para que ZipFile, SevenZFile e
+     * SevenZOutputFile não fechem o canal do chamador
+     */
+    private static class NonClosingChannel implements SeekableByteChannel {
+        private final SeekableByteChannel channel;
+        
+        NonClosingChannel(SeekableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+        
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+        
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+        
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+        
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+        
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+        
+        @Override
+        public void close() {
+            // o canal pertence ao chamador
+        }
+    }
+}
\ No newline at end of file
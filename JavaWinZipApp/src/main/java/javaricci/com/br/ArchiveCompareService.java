@@ -0,0 +1,340 @@
+package javaricci.com.br;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Comparação de dois arquivos compactados, ou de um arquivo compactado e uma pasta,
+ * pelos metadados.
+ *
+ * Tamanhos e CRCs vêm do índice de cada arquivo (diretório central do ZIP,
+ * cabeçalho do 7z); entradas com tamanhos diferentes são alteradas sem nenhuma
+ * leitura de dados. Só quando os tamanhos são iguais os CRCs são comparados: nas
+ * pastas o CRC32 é calculado em paralelo, e apenas as entradas de formatos sem CRC
+ * armazenado (TAR, GZ) são descompactadas. Uma verificação de backup contra a
+ * pasta original lê somente os arquivos de mesmo tamanho.
+ *
+ * Uma pasta comparada com um arquivo compactado usa os nomes que a compactação da
+ * pasta gera ("pasta/sub/arquivo"), ou os caminhos relativos se o arquivo
+ * compactado não tiver entradas com esse prefixo. Pastas só aparecem no resultado
+ * quando um lado tem uma pasta e o outro um arquivo com o mesmo nome.
+ */
+public class ArchiveCompareService {
+    
+    /**
+     * Interface para callback de progresso
+     */
+    public interface ProgressCallback {
+        void onProgress(int progress, String message);
+    }
+    
+    /**
+     * Diferença entre os dois lados
+     */
+    public static class Difference {
+        
+        public enum Kind {
+            /** Existe apenas no lado novo */
+            ADDED,
+            /** Existe apenas no lado de referência */
+            REMOVED,
+            /** Existe nos dois lados com conteúdo diferente */
+            CHANGED
+        }
+        
+        private final String entryName;
+        private final Kind kind;
+        private final String message;
+        
+        Difference(String entryName, Kind kind, String message) {
+            this.entryName = entryName;
+            this.kind = kind;
+            this.message = message;
+        }
+        
+        public String getEntryName() {
+            return entryName;
+        }
+        
+        public Kind getKind() {
+            return kind;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        @Override
+        public String toString() {
+            String symbol = kind == Kind.ADDED ? "+ " : kind == Kind.REMOVED ? "- " : "M ";
+            return symbol + entryName + (message != null ? " - " + message : "");
+        }
+    }
+    
+    /**
+     * Entrada de um dos lados; file só é preenchido para itens de uma pasta
+     */
+    private static class Item {
+        final String name;
+        final boolean directory;
+        final long size;
+        final Path file;
+        long crc;
+        
+        Item(String name, boolean directory, long size, long crc, Path file) {
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.crc = crc;
+            this.file = file;
+        }
+    }
+    
+    private final int threads;
+    private final ResourceLimits limits;
+    private final ArchiveEntryReader reader;
+    
+    public ArchiveCompareService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * @param threads Número máximo de arquivos da pasta lidos em paralelo para o CRC32
+     */
+    public ArchiveCompareService(int threads) {
+        this(threads, new ResourceLimits());
+    }
+    
+    /**
+     * @param threads Número máximo de arquivos da pasta lidos em paralelo para o CRC32
+     * @param limits Limites de threads e de banda aplicados à varredura e às leituras
+     */
+    public ArchiveCompareService(int threads, ResourceLimits limits) {
+        this.threads = Math.max(1, threads);
+        this.limits = limits;
+        this.reader = new ArchiveEntryReader(this.threads, limits);
+    }
+    
+    /**
+     * Compara os dois lados
+     *
+     * @param reference Arquivo compactado ou pasta de referência (o backup, por exemplo)
+     * @param current Arquivo compactado ou pasta comparado com a referência
+     * @param callback Callback para atualização do progresso
+     * @return Diferenças ordenadas por nome; vazio se os conteúdos forem iguais
+     * @throws IOException Se um dos lados não puder ser lido
+     */
+    public List<Difference> compare(File reference, File current, ProgressCallback callback) throws IOException {
+        for (File file : new File[] {reference, current}) {
+            if (!file.exists()) {
+                throw new FileNotFoundException("Arquivo não encontrado: " + file.getAbsolutePath());
+            }
+        }
+        
+        callback.onProgress(0, "Lendo metadados...");
+        Map<String, Item> left = reference.isDirectory() ? null : listArchive(reference);
+        Map<String, Item> right = current.isDirectory() ? null : listArchive(current);
+        if (left == null) {
+            left = listDirectory(reference, right);
+        }
+        if (right == null) {
+            right = listDirectory(current, left);
+        }
+        
+        List<Difference> differences = new ArrayList<>();
+        List<Item[]> ambiguous = new ArrayList<>();
+        
+        TreeSet<String> names = new TreeSet<>(left.keySet());
+        names.addAll(right.keySet());
+        for (String name : names) {
+            Item before = left.get(name);
+            Item after = right.get(name);
+            
+            if (after == null) {
+                if (!before.directory) {
+                    differences.add(new Difference(name, Difference.Kind.REMOVED, null));
+                }
+            } else if (before == null) {
+                if (!after.directory) {
+                    differences.add(new Difference(name, Difference.Kind.ADDED, null));
+                }
+            } else if (before.directory != after.directory) {
+                differences.add(new Difference(name, Difference.Kind.CHANGED,
+                    before.directory ? "pasta substituída por arquivo" : "arquivo substituído por pasta"));
+            } else if (!before.directory) {
+                if (before.size >= 0 && after.size >= 0 && before.size != after.size) {
+                    differences.add(new Difference(name, Difference.Kind.CHANGED,
+                        "tamanho " + before.size + " -> " + after.size));
+                } else if (before.size != 0 || after.size != 0) {
+                    ambiguous.add(new Item[] {before, after});
+                }
+            }
+        }
+        
+        if (!ambiguous.isEmpty()) {
+            callback.onProgress(-1, "Verificando o CRC de " + ambiguous.size() + " entrada(s) de mesmo tamanho...");
+            resolveCrcs(reference, current, ambiguous);
+            
+            for (Item[] pair : ambiguous) {
+                long before = pair[0].crc;
+                long after = pair[1].crc;
+                if (before < 0 || after < 0) {
+                    differences.add(new Difference(pair[0].name, Difference.Kind.CHANGED,
+                        "não foi possível ler o conteúdo"));
+                } else if (before != after) {
+                    differences.add(new Difference(pair[0].name, Difference.Kind.CHANGED,
+                        String.format("CRC %08X -> %08X", before, after)));
+                }
+            }
+            differences.sort((a, b) -> a.getEntryName().compareTo(b.getEntryName()));
+        }
+        
+        callback.onProgress(100, differences.isEmpty()
+            ? "Comparação concluída! Conteúdos iguais."
+            : "Comparação concluída com " + differences.size() + " diferença(s).");
+        return differences;
+    }
+    
+    /**
+     * Entradas do índice do arquivo compactado, sem leitura de dados
+     */
+    private Map<String, Item> listArchive(File archive) throws IOException {
+        EntryTable table = ArchiveIndexCache.getDefault().get(archive).getTable();
+        Map<String, Item> items = new HashMap<>(table.size() * 2);
+        for (int i = 0; i < table.size(); i++) {
+            String path = table.getPath(i);
+            items.put(path, new Item(path, table.isDirectory(i), table.getSize(i), table.getCrc(i), null));
+        }
+        return items;
+    }
+    
+    /**
+     * Itens da pasta com nomes compatíveis com as entradas do outro lado
+     *
+     * @param other Itens do outro lado, ou null se também for uma pasta
+     */
+    private Map<String, Item> listDirectory(File folder, Map<String, Item> other) throws IOException {
+        String prefix = "";
+        if (other != null) {
+            String folderPrefix = folder.getAbsoluteFile().toPath().normalize().getFileName() + "/";
+            for (String name : other.keySet()) {
+                if (name.startsWith(folderPrefix) || name.equals(folderPrefix.substring(0, folderPrefix.length() - 1))) {
+                    prefix = folderPrefix;
+                    break;
+                }
+            }
+        }
+        
+        Map<String, Item> items = new HashMap<>();
+        String namePrefix = prefix;
+        try (DirectoryScanner scanner = new DirectoryScanner(limits)) {
+            scanner.scan(folder.toPath(), file -> {
+                String name = namePrefix + file.getRelativePath();
+                items.put(name, new Item(name, file.isDirectory(), file.isDirectory() ? 0 : file.getSize(),
+                    -1, file.getPath()));
+            });
+        }
+        return items;
+    }
+    
+    /**
+     * Preenche os CRCs ausentes: os arquivos das pastas são lidos em paralelo enquanto
+     * as entradas sem CRC dos arquivos compactados são descompactadas
+     */
+    private void resolveCrcs(File reference, File current, List<Item[]> ambiguous) throws IOException {
+        List<Item> files = new ArrayList<>();
+        EntryFilter[] entries = new EntryFilter[2];
+        for (Item[] pair : ambiguous) {
+            for (int side = 0; side < 2; side++) {
+                Item item = pair[side];
+                if (item.crc >= 0) {
+                    continue;
+                }
+                if (item.file != null) {
+                    files.add(item);
+                } else {
+                    if (entries[side] == null) {
+                        entries[side] = new EntryFilter();
+                    }
+                    entries[side].includeEntry(item.name);
+                }
+            }
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(limits.limitThreads(threads), files.size())));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (Item item : files) {
+                futures.add(executor.submit(() -> crcOf(item.file)));
+            }
+            
+            File[] archives = {reference, current};
+            for (int side = 0; side < 2; side++) {
+                if (entries[side] != null) {
+                    readArchiveCrcs(archives[side], entries[side], ambiguous, side);
+                }
+            }
+            
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    files.get(i).crc = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // Arquivo removido ou ilegível: a entrada é informada como não comparada
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Comparação interrompida", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Descompacta as entradas do filtro e guarda o CRC32 calculado
+     */
+    private void readArchiveCrcs(File archive, EntryFilter filter, List<Item[]> ambiguous, int side)
+            throws IOException {
+        Map<String, Long> crcs = new ConcurrentHashMap<>();
+        reader.readEntries(archive, filter, (entry, content) -> crcs.put(entry.getName(), crcOf(content)));
+        
+        for (Item[] pair : ambiguous) {
+            Long crc = crcs.get(pair[side].name);
+            if (pair[side].crc < 0 && crc != null) {
+                pair[side].crc = crc;
+            }
+        }
+    }
+    
+    private long crcOf(Path file) throws IOException {
+        try (InputStream in = limits.throttle(Files.newInputStream(file))) {
+            return crcOf(in);
+        }
+    }
+    
+    private static long crcOf(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            crc.update(buffer, 0, bytesRead);
+        }
+        return crc.getValue();
+    }
+}
\ No newline at end of file
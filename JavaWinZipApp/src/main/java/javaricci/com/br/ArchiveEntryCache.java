@@ -0,0 +1,332 @@
+package javaricci.com.br;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache em memória do conteúdo descompactado de entradas lidas com frequência
+ * (arquivos de configuração, manifestos, pré-visualizações).
+ *
+ * O conteúdo fica no heap ou, se configurado, em buffers diretos fora do heap. Quando
+ * o total ultrapassa o limite de bytes, as entradas usadas há mais tempo são
+ * descartadas primeiro; entradas maiores que uma fração do limite são entregues sem
+ * ficar no cache, para não expulsar várias entradas pequenas de uma vez. Leituras
+ * simultâneas da mesma entrada compartilham uma única descompactação.
+ */
+public class ArchiveEntryCache {
+    
+    /**
+     * Limite padrão de bytes em cache, reduzido para um oitavo do limite global de
+     * memória quando este for menor
+     */
+    public static final long DEFAULT_BYTE_BUDGET = 32L * 1024 * 1024;
+    
+    /**
+     * Maior entrada que pode ser lida em memória
+     */
+    private static final long MAX_ENTRY_SIZE = Integer.MAX_VALUE - 8;
+    
+    /**
+     * Estatísticas de uso do cache
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long coalesced;
+        private final long evictions;
+        private final int entryCount;
+        private final long bytes;
+        
+        Stats(long hits, long misses, long coalesced, long evictions, int entryCount, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.coalesced = coalesced;
+            this.evictions = evictions;
+            this.entryCount = entryCount;
+            this.bytes = bytes;
+        }
+        
+        /**
+         * Leituras atendidas pelo cache
+         */
+        public long getHits() {
+            return hits;
+        }
+        
+        /**
+         * Leituras que precisaram descompactar a entrada
+         */
+        public long getMisses() {
+            return misses;
+        }
+        
+        /**
+         * Leituras que aguardaram a descompactação iniciada por outra thread
+         */
+        public long getCoalesced() {
+            return coalesced;
+        }
+        
+        /**
+         * Entradas descartadas para respeitar o limite de bytes
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+        
+        public int getEntryCount() {
+            return entryCount;
+        }
+        
+        public long getBytes() {
+            return bytes;
+        }
+        
+        /**
+         * Fração das leituras atendidas sem nova descompactação (0 a 1)
+         */
+        public double getHitRate() {
+            long total = hits + misses + coalesced;
+            return total == 0 ? 0 : (double) (hits + coalesced) / total;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Acertos: %d, falhas: %d, compartilhadas: %d, descartes: %d, "
+                + "entradas: %d, %s em cache (%.0f%% de acerto)",
+                hits, misses, coalesced, evictions, entryCount,
+                FileUtils.formatFileSize(bytes), getHitRate() * 100);
+        }
+    }
+    
+    private static ArchiveEntryCache defaultCache;
+    
+    private final long byteBudget;
+    private final long maxCachedEntrySize;
+    private final boolean offHeap;
+    private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<ByteBuffer>> loading = new HashMap<>();
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long coalesced;
+    private long evictions;
+    
+    /**
+     * @param byteBudget Limite de bytes do conteúdo em cache
+     * @param offHeap true para guardar o conteúdo em buffers diretos, fora do heap
+     */
+    public ArchiveEntryCache(long byteBudget, boolean offHeap) {
+        this.byteBudget = byteBudget;
+        this.maxCachedEntrySize = byteBudget / 4;
+        this.offHeap = offHeap;
+    }
+    
+    /**
+     * Cache compartilhado pela aplicação, no heap e com o limite padrão
+     */
+    public static synchronized ArchiveEntryCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new ArchiveEntryCache(
+                Math.min(DEFAULT_BYTE_BUDGET, MemoryBudget.getDefault().getLimit() / 8), false);
+        }
+        return defaultCache;
+    }
+    
+    /**
+     * Retorna o conteúdo descompactado da entrada, descompactando-a somente se não
+     * estiver em cache nem sendo lida por outra thread
+     *
+     * @param archive Arquivo compactado
+     * @param entryName Caminho da entrada dentro do arquivo
+     * @return Buffer somente leitura, posicionado no início do conteúdo
+     * @throws IOException Se a entrada não existir ou ocorrer erro na leitura
+     */
+    public ByteBuffer get(File archive, String entryName) throws IOException {
+        if (!archive.exists()) {
+            throw new FileNotFoundException("Arquivo não encontrado: " + archive.getAbsolutePath());
+        }
+        
+        File canonical = archive.getCanonicalFile();
+        String name = ArchiveIndex.normalizeName(entryName);
+        String key = canonical.getPath() + "|" + ArchiveVolumes.totalSize(canonical) + "|" + canonical.lastModified() + "|" + name;
+        
+        CompletableFuture<ByteBuffer> load;
+        boolean owner = false;
+        
+        synchronized (this) {
+            ByteBuffer cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached.asReadOnlyBuffer();
+            }
+            
+            load = loading.get(key);
+            if (load == null) {
+                load = new CompletableFuture<>();
+                loading.put(key, load);
+                owner = true;
+                misses++;
+            } else {
+                coalesced++;
+            }
+        }
+        
+        if (owner) {
+            try {
+                ByteBuffer content = decode(canonical, name);
+                synchronized (this) {
+                    loading.remove(key);
+                    store(key, content);
+                }
+                load.complete(content);
+                return content.asReadOnlyBuffer();
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    loading.remove(key);
+                }
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+        
+        try {
+            return load.get().asReadOnlyBuffer();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Leitura interrompida");
+        }
+    }
+    
+    /**
+     * Abre o conteúdo descompactado da entrada como stream
+     *
+     * @see #get(File, String)
+     */
+    public InputStream open(File archive, String entryName) throws IOException {
+        ByteBuffer content = get(archive, entryName);
+        return new InputStream() {
+            @Override
+            public int read() {
+                return content.hasRemaining() ? content.get() & 0xFF : -1;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!content.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, content.remaining());
+                content.get(b, off, count);
+                return count;
+            }
+            
+            @Override
+            public int available() {
+                return content.remaining();
+            }
+        };
+    }
+    
+    /**
+     * Descarta as entradas do arquivo em cache
+     */
+    public synchronized void invalidate(File archive) throws IOException {
+        String prefix = archive.getCanonicalPath() + "|";
+        Iterator<Map.Entry<String, ByteBuffer>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ByteBuffer> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                bytes -= entry.getValue().capacity();
+                iterator.remove();
+            }
+        }
+    }
+    
+    /**
+     * Remove todas as entradas do cache, mantendo as estatísticas
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+    
+    /**
+     * Retorna uma cópia das estatísticas atuais
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, coalesced, evictions, entries.size(), bytes);
+    }
+    
+    private void store(String key, ByteBuffer content) {
+        long size = content.capacity();
+        if (size > maxCachedEntrySize) {
+            return;
+        }
+        
+        entries.put(key, content);
+        bytes += size;
+        
+        Iterator<ByteBuffer> iterator = entries.values().iterator();
+        while (bytes > byteBudget && iterator.hasNext()) {
+            bytes -= iterator.next().capacity();
+            iterator.remove();
+            evictions++;
+        }
+    }
+    
+    /**
+     * Descompacta a entrada para um buffer do tamanho exato do conteúdo
+     */
+    private ByteBuffer decode(File archive, String name) throws IOException {
+        ByteBuffer[] result = new ByteBuffer[1];
+        
+        ArchiveEntryInfo info = ArchiveIndexCache.getDefault().get(archive).getEntry(name);
+        if (info == null) {
+            throw new FileNotFoundException("Entrada não encontrada: " + name);
+        }
+        if (info.getSize() > MAX_ENTRY_SIZE) {
+            throw new IOException("Entrada grande demais para ser lida em memória: " + name);
+        }
+        
+        // A leitura inteira em memória entra no limite global; a reserva é feita antes da
+        // leitura para que os decodificadores reservem o restante em seguida
+        MemoryBudget.Reservation reservation = MemoryBudget.getDefault().reserve(
+            Math.max(0, info.getSize()), "ler " + name + " em memória");
+        try {
+            new ArchiveEntryReader(1).readEntries(archive, EntryFilter.all().includeEntry(name), (entry, content) -> {
+                if (entry.getSize() > MAX_ENTRY_SIZE) {
+                    throw new IOException("Entrada grande demais para ser lida em memória: " + name);
+                }
+                
+                byte[] data = content.readAllBytes();
+                if (offHeap) {
+                    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+                    direct.put(data).flip();
+                    result[0] = direct;
+                } else {
+                    result[0] = ByteBuffer.wrap(data);
+                }
+            });
+        } finally {
+            reservation.close();
+        }
+        
+        if (result[0] == null) {
+            throw new FileNotFoundException("Entrada não encontrada: " + name);
+        }
+        return result[0];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package javaricci.com.br;
+
+/**
+ * Metadados de uma entrada de arquivo compactado, obtidos sem descompactar o conteúdo
+ */
+public class ArchiveEntryInfo {
+    
+    private final String name;
+    private final boolean directory;
+    private final long size;
+    private final long compressedSize;
+    private final long crc;
+    private final long lastModified;
+    private final long offset;
+    private final int method;
+    
+    /**
+     * @param name Caminho da entrada, sem a barra final no caso de pastas
+     * @param directory Indica se a entrada é uma pasta
+     * @param size Tamanho original em bytes (-1 se desconhecido)
+     * @param compressedSize Tamanho compactado em bytes (-1 se desconhecido)
+     * @param crc CRC32 armazenado no arquivo (-1 se indisponível)
+     * @param lastModified Data de modificação em milissegundos (-1 se desconhecida)
+     */
+    public ArchiveEntryInfo(String name, boolean directory, long size, long compressedSize,
+                            long crc, long lastModified) {
+        this(name, directory, size, compressedSize, crc, lastModified, -1, -1);
+    }
+    
+    /**
+     * @param offset Posição da entrada no arquivo: cabeçalho local no ZIP, início dos dados
+     *               em um .tar simples (-1 se desconhecida ou se a entrada for criptografada)
+     * @param method Método de compressão ZIP da entrada (-1 se não se aplica)
+     */
+    public ArchiveEntryInfo(String name, boolean directory, long size, long compressedSize,
+                            long crc, long lastModified, long offset, int method) {
+        this.name = name;
+        this.directory = directory;
+        this.size = size;
+        this.compressedSize = compressedSize;
+        this.crc = crc;
+        this.lastModified = lastModified;
+        this.offset = offset;
+        this.method = method;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public boolean isDirectory() {
+        return directory;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+    
+    public long getCrc() {
+        return crc;
+    }
+    
+    public long getLastModified() {
+        return lastModified;
+    }
+    
+    /**
+     * Posição da entrada no arquivo compactado (-1 se desconhecida)
+     */
+    public long getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Método de compressão ZIP (-1 se não se aplica)
+     */
+    public int getMethod() {
+        return method;
+    }
+    
+    /**
+     * Percentual do tamanho compactado em relação ao original (-1 se desconhecido)
+     */
+    public int getCompressionRatio() {
+        return ratio(size, compressedSize);
+    }
+    
+    /**
+     * Calcula o percentual do tamanho compactado em relação ao original
+     */
+    static int ratio(long size, long compressedSize) {
+        if (size <= 0 || compressedSize < 0) {
+            return -1;
+        }
+        return (int) Math.min(999, (compressedSize * 100) / size);
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,372 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.sevenz.SevenZFileOptions;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.utils.BoundedInputStream;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Leitura do conteúdo das entradas de um arquivo compactado em memória, sem gravar em disco.
+ *
+ * Entradas ZIP independentes são lidas em paralelo sobre o mesmo ZipFile. No 7z cada
+ * tarefa abre o seu próprio SevenZFile e decodifica blocos sólidos inteiros, de modo
+ * que nenhum bloco é decodificado por mais de uma tarefa; um arquivo de bloco único,
+ * ou cujo cabeçalho não informe os blocos, é lido em uma única passada. TAR e GZ são
+ * formatos sequenciais e são lidos na thread chamadora. Um volume (.001, .002, ...) é
+ * lido junto com o restante do conjunto (veja {@link ArchiveVolumes}).
+ */
+public class ArchiveEntryReader {
+    
+    /**
+     * Recebe o conteúdo de cada entrada; pode ser chamado por várias threads ao mesmo tempo
+     */
+    public interface EntryVisitor {
+        void visit(ArchiveEntryInfo entry, InputStream content) throws IOException;
+    }
+    
+    private final int requestedThreads;
+    private final ResourceLimits limits;
+    
+    public ArchiveEntryReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * @param threads Número máximo de entradas ou blocos lidos em paralelo
+     */
+    public ArchiveEntryReader(int threads) {
+        this(threads, new ResourceLimits());
+    }
+    
+    /**
+     * @param threads Número máximo de entradas ou blocos lidos em paralelo
+     * @param limits Limites de threads e de banda aplicados à leitura
+     */
+    public ArchiveEntryReader(int threads, ResourceLimits limits) {
+        this.requestedThreads = Math.max(1, threads);
+        this.limits = limits;
+    }
+    
+    /**
+     * Entrega ao visitante o conteúdo descompactado de cada arquivo aceito pelo filtro.
+     * Pastas não são visitadas.
+     *
+     * @param archive Arquivo compactado
+     * @param filter Filtro das entradas a ler
+     * @param visitor Visitante que consome o conteúdo
+     * @throws IOException Se ocorrer erro na leitura ou no visitante
+     */
+    public void readEntries(File archive, EntryFilter filter, EntryVisitor visitor) throws IOException {
+        if (!archive.exists()) {
+            throw new FileNotFoundException("Arquivo não encontrado: " + archive.getAbsolutePath());
+        }
+        
+        ArchiveType type = ArchiveType.detect(archive);
+        
+        switch (type) {
+            case ZIP:
+                readZip(archive, filter, visitor);
+                break;
+            case SEVEN_Z:
+                read7z(archive, filter, visitor);
+                break;
+            case TAR:
+                if (!readTarFromIndex(archive, filter, visitor)) {
+                    try (InputStream in = limits.throttle(ArchiveVolumes.openStream(archive))) {
+                        readTar(in, true, filter, visitor);
+                    }
+                }
+                break;
+            case TAR_GZ:
+                try (InputStream in = limits.throttle(ArchiveVolumes.openStream(archive));
+                     GzipCompressorInputStream gzis = new GzipCompressorInputStream(in, true)) {
+                    readTar(gzis, false, filter, visitor);
+                }
+                break;
+            default:
+                readGz(archive, filter, visitor);
+                break;
+        }
+    }
+    
+    private void readZip(File archive, EntryFilter filter, EntryVisitor visitor) throws IOException {
+        try (ZipFile zipFile = new ZipFile(limits.throttle(ArchiveVolumes.openChannel(archive)),
+                 archive.getName(), "UTF8", true, true)) {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !filter.matches(entry.getName())) {
+                    continue;
+                }
+                
+                tasks.add(() -> {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        visitor.visit(ArchiveIndex.toEntryInfo(entry), in);
+                    }
+                    return null;
+                });
+            }
+            
+            runAll(tasks);
+        }
+    }
+    
+    /**
+     * Divide as entradas selecionadas em faixas contíguas de tamanho semelhante, uma por
+     * tarefa, cortando apenas no início de um bloco sólido: uma faixa iniciada no meio de
+     * um bloco teria de decodificar de novo todo o trecho anterior do bloco
+     */
+    private void read7z(File archive, EntryFilter filter, EntryVisitor visitor) throws IOException {
+        int threads = threads();
+        List<Boolean> selected = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        long totalSize = 0;
+        
+        try (SevenZFile sevenZFile = new SevenZFile(limits.throttle(ArchiveVolumes.openChannel(archive)),
+                 archive.getName(), MemoryBudget.getDefault().sevenZOptions(1))) {
+            for (SevenZArchiveEntry entry : sevenZFile.getEntries()) {
+                boolean matches = entry.hasStream() && !entry.isDirectory() && filter.matches(entry.getName());
+                long size = matches ? Math.max(1, entry.getSize()) : 0;
+                selected.add(matches);
+                sizes.add(size);
+                totalSize += size;
+            }
+        } catch (MemoryLimitException e) {
+            throw MemoryBudget.exceeded(e, archive.getName());
+        }
+        
+        SevenZFolderMap folderMap;
+        try (SeekableByteChannel channel = ArchiveVolumes.openChannel(archive)) {
+            folderMap = SevenZFolderMap.read(channel);
+        }
+        
+        // Cada faixa abre seus próprios decodificadores; só abre tantas quantas cabem no limite.
+        // Sem o cabeçalho, lê em uma faixa só e o próprio SevenZFile aplica o limite
+        MemoryBudget budget = MemoryBudget.getDefault();
+        long decoderMemory = 0;
+        if (folderMap != null) {
+            decoderMemory = folderMap.getDecoderMemory();
+            threads = budget.workers(threads, decoderMemory, "ler " + archive.getName());
+        }
+        int[] folders = folderMap != null && threads > 1 && folderMap.getEntryFolders().length == selected.size()
+            ? folderMap.getEntryFolders() : null;
+        
+        List<int[]> ranges = new ArrayList<>();
+        long rangeTarget = Math.max(1, totalSize / threads);
+        long rangeSize = 0;
+        int rangeStart = 0;
+        int lastFolder = -1;
+        
+        for (int i = 0; folders != null && i < selected.size(); i++) {
+            if (folders[i] < 0) {
+                continue;
+            }
+            if (folders[i] != lastFolder && lastFolder >= 0 && rangeSize >= rangeTarget
+                && ranges.size() < threads - 1) {
+                ranges.add(new int[] {rangeStart, i});
+                rangeStart = i;
+                rangeSize = 0;
+            }
+            lastFolder = folders[i];
+            rangeSize += sizes.get(i);
+        }
+        if (rangeStart < selected.size()) {
+            ranges.add(new int[] {rangeStart, selected.size()});
+        }
+        
+        int readers = ranges.size();
+        SevenZFileOptions options = budget.sevenZOptions(readers);
+        
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int[] range : ranges) {
+            tasks.add(() -> {
+                read7zRange(archive, range[0], range[1], selected, options, visitor);
+                return null;
+            });
+        }
+        
+        MemoryBudget.Reservation reservation = budget.reserve(decoderMemory * readers, "ler " + archive.getName());
+        try {
+            runAll(tasks);
+        } finally {
+            reservation.close();
+        }
+    }
+    
+    private void read7zRange(File archive, int start, int end, List<Boolean> selected, SevenZFileOptions options,
+                             EntryVisitor visitor) throws IOException {
+        try (SevenZFile sevenZFile = new SevenZFile(limits.throttle(ArchiveVolumes.openChannel(archive)),
+                 archive.getName(), options)) {
+            InputStream content = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    return sevenZFile.read();
+                }
+                
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return sevenZFile.read(b, off, len);
+                }
+            };
+            
+            SevenZArchiveEntry entry;
+            int i = 0;
+            while (i < end && (entry = sevenZFile.getNextEntry()) != null) {
+                if (i >= start && selected.get(i)) {
+                    visitor.visit(ArchiveIndex.toEntryInfo(entry), content);
+                }
+                i++;
+            }
+        } catch (MemoryLimitException e) {
+            throw MemoryBudget.exceeded(e, archive.getName());
+        }
+    }
+    
+    private void readTar(InputStream in, boolean uncompressed, EntryFilter filter,
+                         EntryVisitor visitor) throws IOException {
+        TarArchiveInputStream tais = new TarArchiveInputStream(in);
+        InputStream content = new FilterInputStream(tais) {
+            @Override
+            public void close() {
+                // o stream TAR continua aberto para as próximas entradas
+            }
+        };
+        
+        TarArchiveEntry entry;
+        while ((entry = tais.getNextTarEntry()) != null) {
+            if (!entry.isDirectory() && entry.isFile() && filter.matches(entry.getName())) {
+                visitor.visit(ArchiveIndex.toEntryInfo(entry, uncompressed), content);
+            }
+        }
+    }
+    
+    /**
+     * Lê as entradas pedidas pelo nome nas posições de dados do índice, sem percorrer
+     * os cabeçalhos do TAR
+     *
+     * @return false se o filtro não for uma lista de nomes ou alguma entrada não
+     *         tiver a posição no índice
+     */
+    private boolean readTarFromIndex(File archive, EntryFilter filter, EntryVisitor visitor) throws IOException {
+        Set<String> explicit = filter.getExplicitEntries();
+        if (explicit == null) {
+            return false;
+        }
+        
+        ArchiveIndex index = ArchiveIndexCache.getDefault().get(archive);
+        List<ArchiveEntryInfo> selected = new ArrayList<>();
+        for (String name : explicit) {
+            ArchiveEntryInfo entry = index.getEntry(ArchiveIndex.normalizeName(name));
+            if (entry == null || entry.getOffset() < 0) {
+                return false;
+            }
+            if (!entry.isDirectory() && filter.matches(entry.getName())) {
+                selected.add(entry);
+            }
+        }
+        
+        try (SeekableByteChannel channel = limits.throttle(ArchiveVolumes.openChannel(archive))) {
+            for (ArchiveEntryInfo entry : selected) {
+                InputStream content = new BoundedInputStream(
+                    Channels.newInputStream(channel.position(entry.getOffset())), entry.getSize()) {
+                    @Override
+                    public void close() {
+                        // o canal continua aberto para as próximas entradas
+                    }
+                };
+                visitor.visit(entry, content);
+            }
+        }
+        return true;
+    }
+    
+    private void readGz(File archive, EntryFilter filter, EntryVisitor visitor) throws IOException {
+        // O decodificador já confere o CRC e o tamanho de cada membro; o tamanho total
+        // fica como desconhecido para não descompactar o arquivo duas vezes
+        ArchiveEntryInfo entry = ArchiveIndex.gzEntry(archive, -1);
+        if (!filter.matches(entry.getName())) {
+            return;
+        }
+        
+        try (InputStream in = limits.throttle(ArchiveVolumes.openStream(archive));
+             GzipCompressorInputStream gzis = new GzipCompressorInputStream(in, true)) {
+            visitor.visit(entry, gzis);
+        }
+    }
+    
+    /**
+     * Threads a usar, consultando o limite atual dos recursos
+     */
+    private int threads() {
+        return Math.max(1, limits.limitThreads(requestedThreads));
+    }
+    
+    /**
+     * Executa as tarefas no pool e propaga a primeira falha, cancelando as demais
+     */
+    private void runAll(List<Callable<Void>> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        
+        int threads = threads();
+        if (threads == 1 || tasks.size() == 1) {
+            for (Callable<Void> task : tasks) {
+                call(task);
+            }
+            return;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Leitura interrompida");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static void call(Callable<Void> task) throws IOException {
+        try {
+            task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+}
\ No newline at end of file
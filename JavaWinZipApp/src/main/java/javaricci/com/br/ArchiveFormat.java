@@ -0,0 +1,74 @@
+package javaricci.com.br;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Formato de arquivo compactado, registrado por um {@link ArchiveFormatProvider}.
+ *
+ * O formato é reconhecido pelos bytes iniciais do arquivo, lidos uma única vez
+ * pelo {@link ArchiveFormats}; a extensão do nome só desempata formatos com a mesma
+ * assinatura ou identifica arquivos sem assinatura. As capacidades declaradas
+ * permitem ao motor escolher a estratégia de leitura mais rápida para cada formato.
+ *
+ * Formatos sem {@link ArchiveType} correspondente são extraídos pelo próprio formato,
+ * em {@link #extract}.
+ */
+public interface ArchiveFormat {
+    
+    /**
+     * Capacidades de leitura do formato
+     */
+    enum Capability {
+        /** Índice de entradas no próprio arquivo: listar e localizar entradas não exige ler os dados */
+        RANDOM_ACCESS,
+        /** Entradas ou blocos independentes, que podem ser descompactados em paralelo */
+        PARALLEL_DECODE,
+        /** Fluxo contínuo: qualquer leitura exige descompactar desde o início */
+        STREAMING_ONLY,
+        /** Entradas podem ser copiadas para outro arquivo do mesmo formato sem descompactar */
+        RAW_COPY
+    }
+    
+    /**
+     * Nome exibido para o usuário
+     */
+    String getName();
+    
+    /**
+     * Tipo tratado pelo motor da aplicação, ou null se o próprio formato faz a extração
+     */
+    ArchiveType getType();
+    
+    /**
+     * Extensões reconhecidas, em minúsculas e com o ponto (".tar.gz")
+     */
+    List<String> getExtensions();
+    
+    /**
+     * Verifica a assinatura do formato
+     *
+     * @param header Bytes iniciais do arquivo, até {@link ArchiveFormats#HEADER_LENGTH};
+     *               arquivos menores entregam menos bytes
+     */
+    boolean matches(ByteBuffer header);
+    
+    Set<Capability> getCapabilities();
+    
+    default boolean has(Capability capability) {
+        return getCapabilities().contains(capability);
+    }
+    
+    /**
+     * Extrai as entradas aceitas pelo filtro; usado apenas por formatos sem {@link ArchiveType}
+     *
+     * @throws IOException Se ocorrer erro durante a extração
+     */
+    default void extract(File archive, File outputFolder, EntryFilter filter,
+                         DecompressionService.ProgressCallback callback) throws IOException {
+        throw new UnsupportedOperationException("Extração não suportada para o formato " + getName());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package javaricci.com.br;
+
+import java.util.List;
+
+/**
+ * Fornecedor de formatos de arquivo, carregado pelo {@link java.util.ServiceLoader}.
+ *
+ * Implementações são registradas em
+ * META-INF/services/javaricci.com.br.ArchiveFormatProvider e precisam de um
+ * construtor público sem parâmetros.
+ */
+public interface ArchiveFormatProvider {
+    
+    /**
+     * Formatos fornecidos, na ordem em que as assinaturas devem ser testadas
+     */
+    List<ArchiveFormat> getFormats();
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+package javaricci.com.br;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Registro dos formatos de arquivo carregados pelo {@link ServiceLoader}.
+ *
+ * A identificação lê os primeiros {@value #HEADER_LENGTH} bytes uma única vez e
+ * testa as assinaturas de todos os formatos sobre o mesmo buffer. Quando mais de
+ * um formato reconhece a assinatura (gzip com ou sem TAR dentro), vale o indicado
+ * pela extensão; sem nenhuma assinatura reconhecida, a extensão decide. Assim um
+ * arquivo com a extensão errada ainda é aberto pelo formato correto.
+ */
+public final class ArchiveFormats {
+    
+    /**
+     * Bytes iniciais entregues aos formatos para o teste de assinatura
+     */
+    public static final int HEADER_LENGTH = 4096;
+    
+    private static List<ArchiveFormat> formats;
+    
+    private ArchiveFormats() {
+    }
+    
+    /**
+     * Formatos registrados: os de fornecedores externos primeiro, para que possam
+     * substituir os da aplicação, e os da aplicação por último
+     */
+    public static synchronized List<ArchiveFormat> getFormats() {
+        if (formats == null) {
+            List<ArchiveFormat> loaded = new ArrayList<>();
+            List<ArchiveFormat> builtIn = new ArrayList<>();
+            for (ArchiveFormatProvider provider : ServiceLoader.load(ArchiveFormatProvider.class,
+                    ArchiveFormats.class.getClassLoader())) {
+                if (provider instanceof BuiltInArchiveFormats) {
+                    builtIn.addAll(provider.getFormats());
+                } else {
+                    loaded.addAll(provider.getFormats());
+                }
+            }
+            loaded.addAll(builtIn);
+            formats = Collections.unmodifiableList(loaded);
+        }
+        return formats;
+    }
+    
+    /**
+     * Identifica o formato de um arquivo existente pelo conteúdo; de um conjunto de
+     * volumes, pelo início do primeiro volume e pelo nome sem o número
+     *
+     * @return Formato identificado ou null se não for suportado
+     * @throws IOException Se o arquivo não puder ser lido
+     */
+    public static ArchiveFormat detect(File file) throws IOException {
+        if (ArchiveVolumes.isVolume(file)) {
+            try (SeekableByteChannel channel = ArchiveVolumes.openChannel(file)) {
+                return detect(channel, ArchiveVolumes.baseFile(file).getName());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return detect(channel, file.getName());
+        }
+    }
+    
+    /**
+     * Identifica o formato pelos bytes iniciais do canal; a posição do canal é restaurada
+     *
+     * @param name Nome do arquivo, usado para desempate (pode ser null)
+     * @return Formato identificado ou null se não for suportado
+     */
+    public static ArchiveFormat detect(SeekableByteChannel channel, String name) throws IOException {
+        long position = channel.position();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        try {
+            channel.position(0);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // lê até completar o cabeçalho ou chegar ao fim do arquivo
+            }
+        } finally {
+            channel.position(position);
+        }
+        header.flip();
+        return detect(header.asReadOnlyBuffer(), name);
+    }
+    
+    /**
+     * Identifica o formato pelos bytes iniciais já lidos
+     *
+     * @param header Bytes iniciais do arquivo
+     * @param name Nome do arquivo, usado para desempate (pode ser null)
+     * @return Formato identificado ou null se não for suportado
+     */
+    public static ArchiveFormat detect(ByteBuffer header, String name) {
+        ArchiveFormat byName = name != null ? forName(name) : null;
+        ArchiveFormat first = null;
+        for (ArchiveFormat format : getFormats()) {
+            if (format.matches(header.duplicate())) {
+                if (format == byName) {
+                    return format;
+                }
+                if (first == null) {
+                    first = format;
+                }
+            }
+        }
+        return first != null ? first : byName;
+    }
+    
+    /**
+     * Identifica o formato pela extensão do nome, para arquivos ainda não criados;
+     * vale a extensão mais longa (".tar.gz" antes de ".gz")
+     *
+     * @return Formato identificado ou null se não for suportado
+     */
+    public static ArchiveFormat forName(String name) {
+        String lowerName = name.toLowerCase();
+        ArchiveFormat found = null;
+        int foundLength = 0;
+        for (ArchiveFormat format : getFormats()) {
+            for (String extension : format.getExtensions()) {
+                if (lowerName.endsWith(extension) && extension.length() > foundLength) {
+                    found = format;
+                    foundLength = extension.length();
+                }
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Formato registrado para o tipo tratado pelo motor da aplicação
+     */
+    public static ArchiveFormat forType(ArchiveType type) {
+        for (ArchiveFormat format : getFormats()) {
+            if (format.getType() == type) {
+                return format;
+            }
+        }
+        throw new IllegalStateException("Formato não registrado: " + type);
+    }
+}
\ No newline at end of file
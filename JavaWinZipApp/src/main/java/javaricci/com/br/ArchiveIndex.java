@@ -0,0 +1,452 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarFile;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice hierárquico das entradas de um arquivo compactado.
+ *
+ * O índice é montado apenas com os metadados do arquivo (diretório central do ZIP,
+ * cabeçalho do 7z ou cabeçalhos TAR), sem descompactar o conteúdo das entradas.
+ * Em um .tar simples o índice guarda a posição dos dados de cada entrada, que pode
+ * então ser lida diretamente.
+ * As entradas ficam numa {@link EntryTable}, sem um objeto por entrada; objetos
+ * {@link Node} e {@link ArchiveEntryInfo} são criados apenas para as páginas exibidas
+ * e as entradas consultadas. Os filhos de uma pasta só são ordenados quando ela é
+ * aberta pela primeira vez.
+ */
+public class ArchiveIndex {
+    
+    /**
+     * Nó da árvore: uma entrada do arquivo ou uma pasta implícita
+     */
+    public static class Node {
+        private final String path;
+        private final String name;
+        private final boolean directory;
+        private final ArchiveEntryInfo entry;
+        
+        Node(String path, String name, boolean directory, ArchiveEntryInfo entry) {
+            this.path = path;
+            this.name = name;
+            this.directory = directory;
+            this.entry = entry;
+        }
+        
+        /**
+         * Caminho completo dentro do arquivo, sem barra final
+         */
+        public String getPath() {
+            return path;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public boolean isDirectory() {
+            return directory;
+        }
+        
+        /**
+         * Entrada correspondente ou null para pastas que não existem explicitamente no arquivo
+         */
+        public ArchiveEntryInfo getEntry() {
+            return entry;
+        }
+        
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+    
+    private static final int MISSING = -2;
+    
+    /**
+     * Maior conteúdo GZ descompactado para conferir o tamanho ao montar o índice
+     */
+    static final long GZ_SIZE_CHECK_LIMIT = 64L * 1024 * 1024;
+    
+    private final File archive;
+    private final ArchiveType type;
+    private final EntryTable table;
+    private final long totalSize;
+    private final long totalCompressedSize;
+    
+    /**
+     * Filhos de cada pasta já aberta, como índices da tabela em ordem de exibição
+     */
+    private final Map<Integer, int[]> childrenCache = new ConcurrentHashMap<>();
+    private final Map<Integer, long[]> totalsCache = new ConcurrentHashMap<>();
+    
+    ArchiveIndex(File archive, ArchiveType type, EntryTable table) {
+        this.archive = archive;
+        this.type = type;
+        this.table = table;
+        table.trimToSize();
+        
+        long size = 0;
+        long compressed = 0;
+        for (int i = 0; i < table.size(); i++) {
+            if (!table.isDirectory(i)) {
+                size += Math.max(0, table.getSize(i));
+                compressed += Math.max(0, table.getCompressedSize(i));
+            }
+        }
+        this.totalSize = size;
+        this.totalCompressedSize = compressed;
+    }
+    
+    /**
+     * Lê os metadados de um arquivo compactado e monta o índice
+     *
+     * @param archive Arquivo compactado
+     * @return Índice das entradas
+     * @throws IOException Se ocorrer erro na leitura dos metadados
+     */
+    public static ArchiveIndex build(File archive) throws IOException {
+        if (!archive.exists()) {
+            throw new FileNotFoundException("Arquivo não encontrado: " + archive.getAbsolutePath());
+        }
+        
+        ArchiveType type = ArchiveType.detect(archive);
+        
+        EntryTable table;
+        switch (type) {
+            case ZIP:
+                table = ZipCentralDirectoryReader.read(archive);
+                break;
+            case SEVEN_Z:
+                table = read7zEntries(archive);
+                break;
+            case TAR:
+                table = readTarFileEntries(archive);
+                break;
+            case TAR_GZ:
+                try (InputStream in = ArchiveVolumes.openStream(archive);
+                     GzipCompressorInputStream gzis = new GzipCompressorInputStream(in, true)) {
+                    table = readTarEntries(gzis);
+                }
+                break;
+            default:
+                table = new EntryTable(1);
+                table.add(readGzEntry(archive).get(0));
+                break;
+        }
+        
+        return new ArchiveIndex(archive, type, table);
+    }
+    
+    /**
+     * Lê o cabeçalho do 7z; o tamanho compactado por entrada não existe em blocos sólidos
+     */
+    private static EntryTable read7zEntries(File archive) throws IOException {
+        try (SevenZFile sevenZFile = new SevenZFile(ArchiveVolumes.openChannel(archive), archive.getName(),
+                 MemoryBudget.getDefault().sevenZOptions(1))) {
+            EntryTable table = new EntryTable();
+            for (SevenZArchiveEntry entry : sevenZFile.getEntries()) {
+                table.add(toEntryInfo(entry));
+            }
+            return table;
+        } catch (MemoryLimitException e) {
+            throw MemoryBudget.exceeded(e, archive.getName());
+        }
+    }
+    
+    /**
+     * Indexa um .tar simples saltando de cabeçalho em cabeçalho pelo campo de tamanho,
+     * sem ler os dados das entradas; a posição dos dados de cada entrada vai para o índice
+     */
+    private static EntryTable readTarFileEntries(File archive) throws IOException {
+        try (TarFile tarFile = new TarFile(ArchiveVolumes.openChannel(archive))) {
+            List<TarArchiveEntry> entries = tarFile.getEntries();
+            EntryTable table = new EntryTable(entries.size());
+            for (TarArchiveEntry entry : entries) {
+                table.add(toEntryInfo(entry, true));
+            }
+            return table;
+        }
+    }
+    
+    /**
+     * Percorre os cabeçalhos de um TAR compactado, descompactando o fluxo inteiro
+     */
+    private static EntryTable readTarEntries(InputStream in) throws IOException {
+        try (TarArchiveInputStream tais = new TarArchiveInputStream(in)) {
+            EntryTable table = new EntryTable();
+            TarArchiveEntry entry;
+            while ((entry = tais.getNextTarEntry()) != null) {
+                table.add(toEntryInfo(entry, false));
+            }
+            return table;
+        }
+    }
+    
+    static ArchiveEntryInfo toEntryInfo(ZipArchiveEntry entry) {
+        return new ArchiveEntryInfo(
+            normalizeName(entry.getName()),
+            entry.isDirectory(),
+            entry.getSize(),
+            entry.getCompressedSize(),
+            entry.getCrc(),
+            entry.getTime(),
+            -1,
+            entry.getMethod());
+    }
+    
+    static ArchiveEntryInfo toEntryInfo(SevenZArchiveEntry entry) {
+        return new ArchiveEntryInfo(
+            normalizeName(entry.getName()),
+            entry.isDirectory(),
+            entry.getSize(),
+            -1,
+            entry.getHasCrc() ? entry.getCrcValue() : -1,
+            entry.getHasLastModifiedDate() ? entry.getLastModifiedDate().getTime() : -1);
+    }
+    
+    /**
+     * A posição dos dados só é guardada para pastas e arquivos comuns de um .tar simples;
+     * entradas esparsas, links e dispositivos precisam do caminho sequencial na extração
+     */
+    static ArchiveEntryInfo toEntryInfo(TarArchiveEntry entry, boolean uncompressed) {
+        boolean direct = uncompressed && !entry.isSparse() && !entry.isLink() && !entry.isSymbolicLink()
+            && !entry.isCharacterDevice() && !entry.isBlockDevice() && !entry.isFIFO();
+        return new ArchiveEntryInfo(
+            normalizeName(entry.getName()),
+            entry.isDirectory(),
+            entry.isSparse() ? entry.getRealSize() : entry.getSize(),
+            uncompressed ? entry.getSize() : -1,
+            -1,
+            entry.getLastModifiedDate() != null ? entry.getLastModifiedDate().getTime() : -1,
+            direct ? entry.getDataOffset() : -1,
+            -1);
+    }
+    
+    /**
+     * Um arquivo GZ contém uma única entrada. O ISIZE do trailer é o tamanho do último
+     * membro módulo 2^32, então não serve para arquivos com vários membros nem acima
+     * de 4 GB; o tamanho só é informado quando o arquivo tem um único membro de até
+     * {@value #GZ_SIZE_CHECK_LIMIT} bytes, conferido pela descompactação, e nos demais
+     * casos fica desconhecido (-1)
+     */
+    static List<ArchiveEntryInfo> readGzEntry(File archive) throws IOException {
+        long size = 0;
+        
+        try (InputStream in = ArchiveVolumes.openStream(archive);
+             GzipCompressorInputStream member = new GzipCompressorInputStream(in, false)) {
+            byte[] buffer = new byte[64 * 1024];
+            int bytesRead;
+            while (size >= 0 && (bytesRead = member.read(buffer)) != -1) {
+                size = size + bytesRead > GZ_SIZE_CHECK_LIMIT ? -1 : size + bytesRead;
+            }
+            // O stream com buffer termina posicionado no fim do primeiro membro
+            if (size >= 0 && in.read() != -1) {
+                size = -1;
+            }
+        }
+        
+        return Collections.singletonList(gzEntry(archive, size));
+    }
+    
+    /**
+     * Entrada de um arquivo GZ com o tamanho já conhecido, ou -1, sem ler os dados
+     */
+    static ArchiveEntryInfo gzEntry(File archive, long size) throws FileNotFoundException {
+        String fileName = ArchiveVolumes.baseFile(archive).getName();
+        String entryName = fileName.substring(0, fileName.lastIndexOf('.'));
+        return new ArchiveEntryInfo(entryName, false, size, ArchiveVolumes.totalSize(archive), -1,
+            archive.lastModified());
+    }
+    
+    /**
+     * Padroniza o caminho da entrada: separador '/', sem barras no início ou no fim
+     */
+    static String normalizeName(String name) {
+        String normalized = name.replace('\\', '/');
+        while (normalized.startsWith("/") || normalized.startsWith("./")) {
+            normalized = normalized.substring(normalized.startsWith("/") ? 1 : 2);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+    
+    public File getArchive() {
+        return archive;
+    }
+    
+    public ArchiveType getType() {
+        return type;
+    }
+    
+    /**
+     * Número de entradas registradas no arquivo
+     */
+    public int getEntryCount() {
+        return table.getExplicitCount();
+    }
+    
+    public long getTotalSize() {
+        return totalSize;
+    }
+    
+    /**
+     * Soma dos tamanhos compactados conhecidos
+     */
+    public long getTotalCompressedSize() {
+        return totalCompressedSize;
+    }
+    
+    /**
+     * Retorna a entrada com o caminho informado ou null se não existir
+     */
+    public ArchiveEntryInfo getEntry(String path) {
+        int i = table.find(normalizeName(path));
+        return i >= 0 && !table.isImplicit(i) ? table.toEntryInfo(i) : null;
+    }
+    
+    /**
+     * Tabela com todas as entradas, para percorrer arquivos grandes sem criar objetos
+     */
+    public EntryTable getTable() {
+        return table;
+    }
+    
+    /**
+     * Quantidade de filhos diretos de uma pasta ("" para a raiz)
+     */
+    public int getChildCount(String dirPath) {
+        return children(dirPath).length;
+    }
+    
+    /**
+     * Retorna uma página dos filhos diretos de uma pasta, pastas primeiro
+     *
+     * @param dirPath Caminho da pasta ("" para a raiz)
+     * @param offset Posição do primeiro filho da página
+     * @param limit Quantidade máxima de filhos retornados
+     */
+    public List<Node> getChildren(String dirPath, int offset, int limit) {
+        int[] all = children(dirPath);
+        if (offset >= all.length) {
+            return Collections.emptyList();
+        }
+        
+        int end = Math.min(all.length, offset + limit);
+        List<Node> page = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            int child = all[i];
+            page.add(new Node(table.getPath(child), table.getName(child), table.isDirectory(child),
+                table.isImplicit(child) ? null : table.toEntryInfo(child)));
+        }
+        return Collections.unmodifiableList(page);
+    }
+    
+    /**
+     * Soma dos tamanhos original e compactado de todas as entradas de uma pasta
+     *
+     * @return Array com {tamanho original, tamanho compactado}
+     */
+    public long[] getDirectoryTotals(String dirPath) {
+        int directory = directoryIndex(dirPath);
+        if (directory == EntryTable.ROOT) {
+            return new long[] {totalSize, totalCompressedSize};
+        }
+        if (directory == MISSING) {
+            return new long[] {0, 0};
+        }
+        
+        return totalsCache.computeIfAbsent(directory, d -> {
+            long size = 0;
+            long compressed = 0;
+            int[] pending = new int[16];
+            int top = 0;
+            pending[top++] = d;
+            
+            while (top > 0) {
+                int current = pending[--top];
+                for (int c = table.getFirstChild(current); c >= 0; c = table.getNextSibling(c)) {
+                    if (table.isDirectory(c)) {
+                        if (top == pending.length) {
+                            pending = Arrays.copyOf(pending, top * 2);
+                        }
+                        pending[top++] = c;
+                    } else {
+                        size += Math.max(0, table.getSize(c));
+                        compressed += Math.max(0, table.getCompressedSize(c));
+                    }
+                }
+            }
+            return new long[] {size, compressed};
+        });
+    }
+    
+    private int[] children(String dirPath) {
+        int directory = directoryIndex(dirPath);
+        if (directory == MISSING) {
+            return new int[0];
+        }
+        return childrenCache.computeIfAbsent(directory, this::sortedChildren);
+    }
+    
+    /**
+     * Ordena os filhos diretos da pasta: pastas primeiro, depois por nome sem
+     * diferenciar maiúsculas
+     */
+    private int[] sortedChildren(int directory) {
+        int count = 0;
+        for (int c = table.getFirstChild(directory); c >= 0; c = table.getNextSibling(c)) {
+            count++;
+        }
+        
+        Integer[] order = new Integer[count];
+        String[] names = new String[count];
+        int[] indexes = new int[count];
+        int n = 0;
+        for (int c = table.getFirstChild(directory); c >= 0; c = table.getNextSibling(c)) {
+            order[n] = n;
+            names[n] = table.getName(c);
+            indexes[n] = c;
+            n++;
+        }
+        
+        Arrays.sort(order, (a, b) -> {
+            boolean aDirectory = table.isDirectory(indexes[a]);
+            if (aDirectory != table.isDirectory(indexes[b])) {
+                return aDirectory ? -1 : 1;
+            }
+            return names[a].compareToIgnoreCase(names[b]);
+        });
+        
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = indexes[order[i]];
+        }
+        return sorted;
+    }
+    
+    /**
+     * Índice da pasta na tabela, {@link EntryTable#ROOT} para a raiz ou
+     * {@link #MISSING} se a pasta não existir
+     */
+    private int directoryIndex(String dirPath) {
+        String normalized = normalizeName(dirPath);
+        if (normalized.isEmpty()) {
+            return EntryTable.ROOT;
+        }
+        int i = table.find(normalized);
+        return i >= 0 && table.isDirectory(i) ? i : MISSING;
+    }
+}
\ No newline at end of file
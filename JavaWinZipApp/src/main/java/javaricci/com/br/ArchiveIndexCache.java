@@ -0,0 +1,290 @@
+package javaricci.com.br;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cache de índices de arquivos compactados, em memória e em disco.
+ *
+ * Um índice vale enquanto o caminho, o tamanho e a data de modificação do arquivo
+ * não mudarem; assim, reabrir, listar ou extrair entradas de um arquivo já visto
+ * não exige ler de novo o diretório central do ZIP ou o cabeçalho do 7z. As duas
+ * camadas descartam primeiro os índices usados há mais tempo quando o total
+ * ultrapassa o limite de bytes configurado.
+ */
+public class ArchiveIndexCache {
+    
+    /**
+     * Limite padrão de bytes, aplicado à memória e ao disco separadamente; a parte em
+     * memória é reduzida para um oitavo do limite global de memória quando este for menor
+     */
+    public static final long DEFAULT_BYTE_BUDGET = 64L * 1024 * 1024;
+    
+    private static final int MAGIC = 0x4A575A49;
+    private static final int FORMAT_VERSION = 3;
+    private static final String FILE_SUFFIX = ".idx";
+    
+    /**
+     * Índice em memória com o tamanho estimado que ocupa
+     */
+    private static class CachedIndex {
+        final ArchiveIndex index;
+        final long bytes;
+        
+        CachedIndex(ArchiveIndex index, long bytes) {
+            this.index = index;
+            this.bytes = bytes;
+        }
+    }
+    
+    private static ArchiveIndexCache defaultCache;
+    
+    private final File directory;
+    private final long byteBudget;
+    private final long memoryBudget;
+    private final LinkedHashMap<String, CachedIndex> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    
+    /**
+     * @param directory Pasta dos índices persistidos (null para manter apenas em memória)
+     * @param byteBudget Limite de bytes da memória e do disco
+     */
+    public ArchiveIndexCache(File directory, long byteBudget) {
+        this(directory, byteBudget, byteBudget);
+    }
+    
+    /**
+     * @param directory Pasta dos índices persistidos (null para manter apenas em memória)
+     * @param diskBudget Limite de bytes do disco
+     * @param memoryBudget Limite de bytes da memória
+     */
+    public ArchiveIndexCache(File directory, long diskBudget, long memoryBudget) {
+        this.directory = directory;
+        this.byteBudget = diskBudget;
+        this.memoryBudget = memoryBudget;
+    }
+    
+    /**
+     * Cache compartilhado pela aplicação, persistido em ~/.javawinzip/index-cache
+     */
+    public static synchronized ArchiveIndexCache getDefault() {
+        if (defaultCache == null) {
+            File directory = new File(System.getProperty("user.home"), ".javawinzip" + File.separator + "index-cache");
+            defaultCache = new ArchiveIndexCache(directory, DEFAULT_BYTE_BUDGET,
+                Math.min(DEFAULT_BYTE_BUDGET, MemoryBudget.getDefault().getLimit() / 8));
+        }
+        return defaultCache;
+    }
+    
+    /**
+     * Retorna o índice do arquivo, lendo os metadados somente se o arquivo mudou
+     * desde a última vez ou nunca foi indexado
+     *
+     * @param archive Arquivo compactado
+     * @return Índice das entradas
+     * @throws IOException Se ocorrer erro na leitura dos metadados
+     */
+    public ArchiveIndex get(File archive) throws IOException {
+        if (!archive.exists()) {
+            throw new FileNotFoundException("Arquivo não encontrado: " + archive.getAbsolutePath());
+        }
+        
+        File canonical = archive.getCanonicalFile();
+        String key = canonical.getPath() + "|" + ArchiveVolumes.totalSize(canonical) + "|" + canonical.lastModified();
+        
+        synchronized (this) {
+            CachedIndex cached = memory.get(key);
+            if (cached != null) {
+                return cached.index;
+            }
+        }
+        
+        ArchiveIndex index = load(canonical);
+        if (index == null) {
+            index = ArchiveIndex.build(archive);
+            store(canonical, index);
+        }
+        
+        synchronized (this) {
+            // Versões anteriores do mesmo arquivo não serão mais usadas
+            removeFromMemory(canonical.getPath() + "|");
+            
+            CachedIndex cached = new CachedIndex(index, estimateBytes(index));
+            memory.put(key, cached);
+            memoryBytes += cached.bytes;
+            evictMemory();
+        }
+        return index;
+    }
+    
+    /**
+     * Descarta o índice do arquivo da memória e do disco
+     */
+    public void invalidate(File archive) throws IOException {
+        File canonical = archive.getCanonicalFile();
+        
+        synchronized (this) {
+            removeFromMemory(canonical.getPath() + "|");
+        }
+        
+        if (directory != null) {
+            new File(directory, fileName(canonical)).delete();
+        }
+    }
+    
+    /**
+     * Remove todos os índices da memória e do disco
+     */
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        
+        File[] files = directory != null ? directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX)) : null;
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+    
+    private void removeFromMemory(String keyPrefix) {
+        Iterator<Map.Entry<String, CachedIndex>> iterator = memory.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedIndex> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                memoryBytes -= entry.getValue().bytes;
+                iterator.remove();
+            }
+        }
+    }
+    
+    private void evictMemory() {
+        Iterator<CachedIndex> iterator = memory.values().iterator();
+        // O índice recém-usado fica por último e nunca é descartado
+        while (memoryBytes > memoryBudget && memory.size() > 1) {
+            memoryBytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * Lê o índice persistido, se existir e corresponder ao tamanho e à data atuais do arquivo
+     */
+    private ArchiveIndex load(File archive) {
+        if (directory == null) {
+            return null;
+        }
+        
+        File file = new File(directory, fileName(archive));
+        if (!file.isFile()) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new FileInputStream(file))))) {
+            
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || !in.readUTF().equals(archive.getPath())
+                    || in.readLong() != ArchiveVolumes.totalSize(archive)
+                    || in.readLong() != archive.lastModified()) {
+                return null;
+            }
+            
+            ArchiveType type = ArchiveType.valueOf(in.readUTF());
+            EntryTable table = EntryTable.readFrom(in);
+            
+            // Marca o uso para a ordem de descarte do disco
+            file.setLastModified(System.currentTimeMillis());
+            return new ArchiveIndex(archive, type, table);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Índice em cache inválido: " + file + " - " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+    
+    /**
+     * Grava o índice em disco; falhas apenas deixam o arquivo fora do cache
+     */
+    private void store(File archive, ArchiveIndex index) {
+        if (directory == null) {
+            return;
+        }
+        
+        File file = new File(directory, fileName(archive));
+        File temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = File.createTempFile("index", ".tmp", directory);
+            
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(new FileOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(archive.getPath());
+                out.writeLong(ArchiveVolumes.totalSize(archive));
+                out.writeLong(archive.lastModified());
+                out.writeUTF(index.getType().name());
+                index.getTable().writeTo(out);
+            }
+            
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            evictDisk();
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar índice em cache: " + file + " - " + e.getMessage());
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+    
+    /**
+     * Apaga os índices persistidos usados há mais tempo até caber no limite
+     */
+    private synchronized void evictDisk() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= byteBudget) {
+            return;
+        }
+        
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - 1 && total > byteBudget; i++) {
+            total -= files[i].length();
+            files[i].delete();
+        }
+    }
+    
+    /**
+     * Nome do índice persistido: um por caminho, de modo que versões antigas do
+     * mesmo arquivo são substituídas em vez de acumuladas
+     */
+    private static String fileName(File archive) {
+        DigestAlgorithm.Digest digest = DigestAlgorithm.SHA_256.newDigest();
+        byte[] path = archive.getPath().getBytes(StandardCharsets.UTF_8);
+        digest.update(path, 0, path.length);
+        return digest.toHex() + FILE_SUFFIX;
+    }
+    
+    /**
+     * Estimativa da memória ocupada pelo índice
+     */
+    private static long estimateBytes(ArchiveIndex index) {
+        return 256 + index.getTable().memoryBytes();
+    }
+}
\ No newline at end of file
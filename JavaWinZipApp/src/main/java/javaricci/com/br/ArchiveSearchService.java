@@ -0,0 +1,245 @@
+package javaricci.com.br;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serviço de pesquisa de texto dentro de arquivos compactados.
+ *
+ * O conteúdo de cada entrada é descompactado em memória e passado linha a linha
+ * pelo padrão de busca; nada é gravado em disco. Entradas ZIP e blocos 7z são
+ * pesquisados em paralelo pelo {@link ArchiveEntryReader}.
+ */
+public class ArchiveSearchService {
+    
+    /**
+     * Interface para callback de progresso
+     */
+    public interface ProgressCallback {
+        void onProgress(int progress, String message);
+    }
+    
+    /**
+     * Linha de uma entrada que contém o texto pesquisado
+     */
+    public static class SearchMatch {
+        private final String entryName;
+        private final long offset;
+        private final long lineNumber;
+        private final String line;
+        
+        SearchMatch(String entryName, long offset, long lineNumber, String line) {
+            this.entryName = entryName;
+            this.offset = offset;
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+        
+        public String getEntryName() {
+            return entryName;
+        }
+        
+        /**
+         * Posição em bytes da primeira ocorrência dentro do conteúdo descompactado da entrada
+         */
+        public long getOffset() {
+            return offset;
+        }
+        
+        public long getLineNumber() {
+            return lineNumber;
+        }
+        
+        public String getLine() {
+            return line;
+        }
+        
+        @Override
+        public String toString() {
+            return entryName + ":" + lineNumber + ": " + line;
+        }
+    }
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final int MAX_DISPLAY_LENGTH = 300;
+    
+    private final ArchiveEntryReader reader;
+    private int maxMatches = 10000;
+    
+    public ArchiveSearchService() {
+        this(new ArchiveEntryReader());
+    }
+    
+    public ArchiveSearchService(ArchiveEntryReader reader) {
+        this.reader = reader;
+    }
+    
+    /**
+     * Define o número máximo de linhas retornadas; ao atingir o limite a pesquisa para
+     */
+    public void setMaxMatches(int maxMatches) {
+        this.maxMatches = maxMatches;
+    }
+    
+    /**
+     * Pesquisa um texto ou expressão regular no conteúdo das entradas.
+     * Entradas binárias (com bytes nulos no início) são ignoradas.
+     *
+     * @param archive Arquivo compactado
+     * @param query Texto ou expressão regular pesquisada
+     * @param regex Indica se a consulta é uma expressão regular
+     * @param ignoreCase Ignora diferenças entre maiúsculas e minúsculas
+     * @param filter Filtro das entradas pesquisadas
+     * @param callback Callback para atualização do progresso
+     * @return Linhas encontradas, ordenadas por entrada e posição
+     * @throws IOException Se ocorrer erro na leitura do arquivo
+     */
+    public List<SearchMatch> search(File archive, String query, boolean regex, boolean ignoreCase,
+                                    EntryFilter filter, ProgressCallback callback) throws IOException {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("Texto de pesquisa não especificado");
+        }
+        
+        int flags = regex ? 0 : Pattern.LITERAL;
+        if (ignoreCase) {
+            flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        Pattern pattern = Pattern.compile(query, flags);
+        
+        Queue<SearchMatch> matches = new ConcurrentLinkedQueue<>();
+        AtomicInteger matchCount = new AtomicInteger();
+        AtomicInteger entryCount = new AtomicInteger();
+        
+        callback.onProgress(0, "Pesquisando em " + archive.getName() + "...");
+        
+        reader.readEntries(archive, filter, (entry, content) -> {
+            if (matchCount.get() >= maxMatches) {
+                return;
+            }
+            entryCount.incrementAndGet();
+            callback.onProgress(-1, "Pesquisando: " + entry.getName());
+            searchEntry(entry.getName(), content, pattern, matches, matchCount);
+        });
+        
+        List<SearchMatch> result = new ArrayList<>(matches);
+        result.sort(Comparator.comparing(SearchMatch::getEntryName).thenComparingLong(SearchMatch::getOffset));
+        if (result.size() > maxMatches) {
+            result = new ArrayList<>(result.subList(0, maxMatches));
+        }
+        
+        callback.onProgress(100, "Pesquisa concluída! " + result.size() + " linha(s) em "
+            + entryCount.get() + " entrada(s).");
+        return result;
+    }
+    
+    /**
+     * Divide o conteúdo em linhas sem decodificar o buffer inteiro e aplica o padrão
+     * a cada linha
+     */
+    private void searchEntry(String entryName, InputStream content, Pattern pattern,
+                             Queue<SearchMatch> matches, AtomicInteger matchCount) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long lineStart = 0;
+        long lineNumber = 1;
+        long position = 0;
+        boolean firstBlock = true;
+        int bytesRead;
+        
+        while ((bytesRead = content.read(buffer)) != -1) {
+            if (firstBlock && bytesRead > 0) {
+                if (isBinary(buffer, bytesRead)) {
+                    return;
+                }
+                firstBlock = false;
+            }
+            
+            int start = 0;
+            for (int i = 0; i < bytesRead; i++) {
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+                
+                line = append(line, lineLength, buffer, start, i - start);
+                lineLength = Math.min(MAX_LINE_LENGTH, lineLength + (i - start));
+                matchLine(entryName, line, lineLength, lineStart, lineNumber, pattern, matches, matchCount);
+                
+                lineStart = position + i + 1;
+                lineNumber++;
+                lineLength = 0;
+                start = i + 1;
+            }
+            
+            line = append(line, lineLength, buffer, start, bytesRead - start);
+            lineLength = Math.min(MAX_LINE_LENGTH, lineLength + (bytesRead - start));
+            position += bytesRead;
+            
+            if (matchCount.get() >= maxMatches) {
+                return;
+            }
+        }
+        
+        if (lineLength > 0) {
+            matchLine(entryName, line, lineLength, lineStart, lineNumber, pattern, matches, matchCount);
+        }
+    }
+    
+    private void matchLine(String entryName, byte[] line, int length, long lineStart, long lineNumber,
+                           Pattern pattern, Queue<SearchMatch> matches, AtomicInteger matchCount) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        
+        String text = new String(line, 0, length, StandardCharsets.UTF_8);
+        Matcher matcher = pattern.matcher(text);
+        if (!matcher.find()) {
+            return;
+        }
+        
+        long offset = lineStart + text.substring(0, matcher.start()).getBytes(StandardCharsets.UTF_8).length;
+        String display = text.length() > MAX_DISPLAY_LENGTH ? text.substring(0, MAX_DISPLAY_LENGTH) + "..." : text;
+        
+        if (matchCount.incrementAndGet() <= maxMatches) {
+            matches.add(new SearchMatch(entryName, offset, lineNumber, display));
+        }
+    }
+    
+    /**
+     * Acrescenta bytes à linha atual respeitando o tamanho máximo de linha
+     */
+    private static byte[] append(byte[] line, int lineLength, byte[] source, int offset, int length) {
+        int count = Math.min(length, MAX_LINE_LENGTH - lineLength);
+        if (count <= 0) {
+            return line;
+        }
+        if (lineLength + count > line.length) {
+            byte[] larger = new byte[Math.min(MAX_LINE_LENGTH, Math.max(line.length * 2, lineLength + count))];
+            System.arraycopy(line, 0, larger, 0, lineLength);
+            line = larger;
+        }
+        System.arraycopy(source, offset, line, lineLength, count);
+        return line;
+    }
+    
+    private static boolean isBinary(byte[] buffer, int length) {
+        int limit = Math.min(length, 8000);
+        for (int i = 0; i < limit; i++) {
+            if (buffer[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
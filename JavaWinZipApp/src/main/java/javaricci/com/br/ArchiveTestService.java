@@ -0,0 +1,178 @@
+package javaricci.com.br;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Serviço de teste de integridade de arquivos compactados.
+ *
+ * Cada entrada é descompactada e descartada em memória enquanto o CRC32 e o
+ * tamanho são calculados e comparados com os metadados do arquivo. Nada é gravado
+ * em disco; entradas ZIP e blocos 7z são verificados em paralelo.
+ */
+public class ArchiveTestService {
+    
+    /**
+     * Interface para callback de progresso
+     */
+    public interface ProgressCallback {
+        void onProgress(int progress, String message);
+    }
+    
+    /**
+     * Resultado da verificação de uma entrada
+     */
+    public static class EntryTestResult {
+        private final String entryName;
+        private final boolean ok;
+        private final long size;
+        private final long expectedCrc;
+        private final long actualCrc;
+        private final String message;
+        
+        EntryTestResult(String entryName, boolean ok, long size, long expectedCrc, long actualCrc, String message) {
+            this.entryName = entryName;
+            this.ok = ok;
+            this.size = size;
+            this.expectedCrc = expectedCrc;
+            this.actualCrc = actualCrc;
+            this.message = message;
+        }
+        
+        public String getEntryName() {
+            return entryName;
+        }
+        
+        public boolean isOk() {
+            return ok;
+        }
+        
+        /**
+         * Quantidade de bytes descompactados
+         */
+        public long getSize() {
+            return size;
+        }
+        
+        /**
+         * CRC32 registrado no arquivo (-1 se o formato não armazena CRC)
+         */
+        public long getExpectedCrc() {
+            return expectedCrc;
+        }
+        
+        public long getActualCrc() {
+            return actualCrc;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        @Override
+        public String toString() {
+            return (ok ? "OK    " : "ERRO  ") + entryName + " - " + message;
+        }
+    }
+    
+    private final ArchiveEntryReader reader;
+    
+    public ArchiveTestService() {
+        this(new ArchiveEntryReader());
+    }
+    
+    /**
+     * @param limits Limites de threads e de banda aplicados à leitura do arquivo
+     */
+    public ArchiveTestService(ResourceLimits limits) {
+        this(new ArchiveEntryReader(Runtime.getRuntime().availableProcessors(), limits));
+    }
+    
+    public ArchiveTestService(ArchiveEntryReader reader) {
+        this.reader = reader;
+    }
+    
+    /**
+     * Verifica todas as entradas do arquivo
+     *
+     * @param archive Arquivo compactado
+     * @param callback Callback para atualização do progresso
+     * @return Resultado por entrada, ordenado por nome; falhas de leitura da
+     *         estrutura do arquivo aparecem como uma entrada com o nome do arquivo
+     * @throws IOException Se o arquivo não puder ser aberto
+     */
+    public List<EntryTestResult> testArchive(File archive, ProgressCallback callback) throws IOException {
+        if (!archive.exists()) {
+            throw new FileNotFoundException("Arquivo não encontrado: " + archive.getAbsolutePath());
+        }
+        
+        Queue<EntryTestResult> results = new ConcurrentLinkedQueue<>();
+        
+        callback.onProgress(0, "Testando " + archive.getName() + "...");
+        
+        try {
+            reader.readEntries(archive, EntryFilter.all(), (entry, content) -> {
+                callback.onProgress(-1, "Testando: " + entry.getName());
+                results.add(testEntry(entry, content));
+            });
+        } catch (IOException e) {
+            results.add(new EntryTestResult(archive.getName(), false, -1, -1, -1,
+                "Estrutura do arquivo corrompida: " + e.getMessage()));
+        }
+        
+        List<EntryTestResult> report = new ArrayList<>(results);
+        report.sort(Comparator.comparing(EntryTestResult::getEntryName));
+        
+        long failures = report.stream().filter(r -> !r.isOk()).count();
+        callback.onProgress(100, failures == 0
+            ? "Teste concluído! " + report.size() + " entradas íntegras."
+            : "Teste concluído com " + failures + " erro(s) em " + report.size() + " entradas.");
+        return report;
+    }
+    
+    /**
+     * Lê a entrada até o fim, descartando os dados, e compara CRC32 e tamanho
+     */
+    private EntryTestResult testEntry(ArchiveEntryInfo entry, InputStream content) {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        
+        try {
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) != -1) {
+                crc.update(buffer, 0, bytesRead);
+                size += bytesRead;
+            }
+        } catch (IOException | RuntimeException e) {
+            return new EntryTestResult(entry.getName(), false, size, entry.getCrc(), -1,
+                "Erro ao descompactar: " + e.getMessage());
+        }
+        
+        long actualCrc = crc.getValue();
+        
+        // O trailer GZ guarda o tamanho módulo 2^32
+        boolean sizeMatches = entry.getSize() == size
+            || (size > 0xFFFFFFFFL && entry.getSize() == (size & 0xFFFFFFFFL));
+        
+        if (entry.getSize() >= 0 && !sizeMatches) {
+            return new EntryTestResult(entry.getName(), false, size, entry.getCrc(), actualCrc,
+                "Tamanho inválido: esperado " + entry.getSize() + ", lido " + size);
+        }
+        if (entry.getCrc() >= 0 && entry.getCrc() != actualCrc) {
+            return new EntryTestResult(entry.getName(), false, size, entry.getCrc(), actualCrc,
+                String.format("CRC inválido: esperado %08X, calculado %08X", entry.getCrc(), actualCrc));
+        }
+        
+        return new EntryTestResult(entry.getName(), true, size, entry.getCrc(), actualCrc,
+            entry.getCrc() >= 0 ? String.format("CRC %08X", actualCrc) : "tamanho verificado");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,626 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.UnixStat;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.archivers.zip.ZipMethod;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.utils.BoundedInputStream;
+import org.tukaani.xz.LZMA2Options;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Conversão direta entre formatos de arquivo compactado.
+ *
+ * As entradas são lidas do arquivo de origem e gravadas no de destino em um
+ * único fluxo, preservando nome, data e permissões Unix, sem extração para
+ * disco. De ZIP para ZIP, e entre GZ de um só membro e ZIP de uma só entrada
+ * Deflate, os dados compactados são copiados sem recompressão. Links simbólicos e
+ * físicos de um TAR são mantidos como links em um TAR de destino.
+ */
+public class ArchiveTranscoder {
+    
+    /**
+     * Interface para callback de progresso
+     */
+    public interface ProgressCallback {
+        void onProgress(int progress, String message);
+    }
+    
+    /**
+     * Recebe as entradas lidas da origem, na ordem do arquivo
+     */
+    private interface EntrySink {
+        /**
+         * @param entry Metadados da entrada
+         * @param unixMode Permissões Unix (-1 se o formato de origem não informa)
+         * @param link Entrada TAR de origem quando ela é um link simbólico ou físico
+         *        (null nos demais casos)
+         * @param content Conteúdo descompactado (vazio para pastas e links)
+         */
+        void accept(ArchiveEntryInfo entry, int unixMode, TarArchiveEntry link, InputStream content) throws IOException;
+    }
+    
+    /**
+     * Posição do fluxo Deflate do primeiro membro de um arquivo GZ
+     */
+    private static class GzipLayout {
+        long dataStart;
+        long dataEnd;
+        long crc;
+        long size;
+        boolean singleMember;
+    }
+    
+    private long solidBlockSize = CompressionOptions.DEFAULT_SOLID_BLOCK_SIZE;
+    private ResourceLimits limits = new ResourceLimits();
+    
+    /**
+     * Define o tamanho dos blocos sólidos quando o destino é 7z
+     */
+    public void setSolidBlockSize(long solidBlockSize) {
+        this.solidBlockSize = Math.max(1, solidBlockSize);
+    }
+    
+    /**
+     * Define os limites de banda aplicados à leitura da origem e à gravação do destino
+     */
+    public void setResourceLimits(ResourceLimits limits) {
+        this.limits = limits != null ? limits : new ResourceLimits();
+    }
+    
+    /**
+     * Converte um arquivo compactado para o formato indicado pela extensão do destino
+     *
+     * @param source Arquivo de origem (ZIP, 7z, TAR, TAR.GZ ou GZ)
+     * @param target Arquivo de destino (ZIP, 7z, TAR, TAR.GZ ou GZ)
+     * @param callback Callback para atualização do progresso
+     * @return Número de entradas convertidas
+     * @throws IOException Se ocorrer erro na leitura ou gravação
+     */
+    public int transcode(File source, File target, ProgressCallback callback) throws IOException {
+        if (!source.exists()) {
+            throw new FileNotFoundException("Arquivo não encontrado: " + source.getAbsolutePath());
+        }
+        if (source.getCanonicalFile().equals(target.getCanonicalFile())) {
+            throw new IllegalArgumentException("O arquivo de destino deve ser diferente do arquivo de origem");
+        }
+        
+        ArchiveFormat sourceFormat = ArchiveFormats.detect(source);
+        ArchiveType sourceType = sourceFormat != null ? sourceFormat.getType() : null;
+        ArchiveType targetType = ArchiveType.fromFile(target);
+        if (sourceType == null) {
+            throw new IllegalArgumentException("Formato de arquivo não suportado: " + source.getName());
+        }
+        if (targetType == null) {
+            throw new IllegalArgumentException("Formato de destino não suportado: " + target.getName());
+        }
+        
+        callback.onProgress(0, "Convertendo " + source.getName() + " para " + targetType.getDisplayName() + "...");
+        
+        int entryCount = -1;
+        if (sourceType == targetType && sourceFormat.has(ArchiveFormat.Capability.RAW_COPY)) {
+            entryCount = copyRaw(source, sourceType, target);
+        } else if (sourceType == ArchiveType.GZ && targetType == ArchiveType.ZIP) {
+            entryCount = copyGzToZip(source, target);
+        } else if (sourceType == ArchiveType.ZIP && targetType == ArchiveType.GZ) {
+            entryCount = copyZipToGz(source, target);
+        }
+        
+        if (entryCount < 0) {
+            switch (targetType) {
+                case ZIP:
+                    entryCount = writeZip(source, sourceType, target, callback);
+                    break;
+                case SEVEN_Z:
+                    entryCount = write7z(source, sourceType, target, callback);
+                    break;
+                case TAR:
+                case TAR_GZ:
+                    entryCount = writeTar(source, sourceType, target, targetType == ArchiveType.TAR_GZ, callback);
+                    break;
+                default:
+                    entryCount = writeGz(source, sourceType, target, callback);
+                    break;
+            }
+        }
+        
+        callback.onProgress(100, "Conversão concluída! " + entryCount + " entradas convertidas.");
+        return entryCount;
+    }
+    
+    /**
+     * Copia as entradas com os bytes compactados originais, sem descompactar
+     */
+    private int copyRaw(File source, ArchiveType type, File target) throws IOException {
+        if (type != ArchiveType.ZIP) {
+            throw new UnsupportedOperationException("Cópia sem descompactar não suportada para " + type.getDisplayName());
+        }
+        
+        try (ZipFile zipFile = new ZipFile(openChannel(source), source.getName(), "UTF8", true);
+             ZipArchiveOutputStream zos = new ZipArchiveOutputStream(openTarget(target))) {
+            
+            int[] count = new int[1];
+            zipFile.copyRawEntries(zos, entry -> {
+                count[0]++;
+                return true;
+            });
+            zos.finish();
+            return count[0];
+        }
+    }
+    
+    /**
+     * Grava o fluxo Deflate de um GZ como a única entrada de um ZIP, sem recompressão
+     *
+     * @return Número de entradas, ou -1 se o GZ tiver mais de um membro
+     */
+    private int copyGzToZip(File source, File target) throws IOException {
+        GzipLayout layout = scanGz(source);
+        if (!layout.singleMember) {
+            return -1;
+        }
+        ArchiveEntryInfo info = ArchiveIndex.gzEntry(source, layout.size);
+        
+        ZipArchiveEntry entry = new ZipArchiveEntry(info.getName());
+        entry.setMethod(ZipArchiveEntry.DEFLATED);
+        entry.setSize(layout.size);
+        entry.setCompressedSize(layout.dataEnd - layout.dataStart);
+        entry.setCrc(layout.crc);
+        if (info.getLastModified() >= 0) {
+            entry.setTime(info.getLastModified());
+        }
+        
+        try (SeekableByteChannel channel = openChannel(source);
+             ZipArchiveOutputStream zos = new ZipArchiveOutputStream(openTarget(target))) {
+            InputStream raw = new BoundedInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel.position(layout.dataStart)), 64 * 1024),
+                layout.dataEnd - layout.dataStart);
+            zos.addRawArchiveEntry(entry, raw);
+            zos.finish();
+        }
+        return 1;
+    }
+    
+    /**
+     * Grava a única entrada Deflate de um ZIP como um GZ, sem recompressão
+     *
+     * @return Número de entradas, ou -1 se o ZIP não tiver exatamente um arquivo
+     *         compactado com Deflate
+     */
+    private int copyZipToGz(File source, File target) throws IOException {
+        try (ZipFile zipFile = new ZipFile(openChannel(source), source.getName(), "UTF8", true)) {
+            List<ZipArchiveEntry> files = new ArrayList<>();
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    files.add(entry);
+                }
+            }
+            if (files.size() != 1) {
+                return -1;
+            }
+            
+            ZipArchiveEntry entry = files.get(0);
+            if (entry.getMethod() != ZipMethod.DEFLATED.getCode() || entry.getGeneralPurposeBit().usesEncryption()
+                || entry.getCrc() < 0 || entry.getSize() < 0) {
+                return -1;
+            }
+            
+            String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+            byte[] fileName = name.getBytes(StandardCharsets.ISO_8859_1);
+            ByteBuffer header = ByteBuffer.allocate(10 + fileName.length + 1).order(ByteOrder.LITTLE_ENDIAN);
+            header.put((byte) 0x1F).put((byte) 0x8B).put((byte) Deflater.DEFLATED).put((byte) 0x08);
+            header.putInt(entry.getTime() >= 0 ? (int) (entry.getTime() / 1000) : 0);
+            header.put((byte) 0).put((byte) 0xFF).put(fileName).put((byte) 0);
+            
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) entry.getCrc()).putInt((int) entry.getSize());
+            
+            try (OutputStream out = openOutput(target);
+                 InputStream raw = zipFile.getRawInputStream(entry)) {
+                out.write(header.array());
+                copy(raw, out, new byte[64 * 1024]);
+                out.write(trailer.array());
+            }
+            return 1;
+        }
+    }
+    
+    private int writeZip(File source, ArchiveType sourceType, File target,
+                         ProgressCallback callback) throws IOException {
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(openTarget(target))) {
+            zos.setLevel(Deflater.DEFAULT_COMPRESSION);
+            zos.setMethod(ZipArchiveOutputStream.DEFLATED);
+            
+            byte[] buffer = new byte[64 * 1024];
+            int count = readEntries(source, sourceType, false, (entry, unixMode, link, content) -> {
+                callback.onProgress(-1, "Convertendo: " + entry.getName());
+                
+                ZipArchiveEntry zipEntry = new ZipArchiveEntry(entry.isDirectory() ? entry.getName() + "/" : entry.getName());
+                if (entry.getLastModified() >= 0) {
+                    zipEntry.setTime(entry.getLastModified());
+                }
+                
+                // O ZIP representa links simbólicos pelo modo Unix, com o destino como conteúdo
+                if (link != null && link.isSymbolicLink()) {
+                    byte[] linkName = link.getLinkName().getBytes(StandardCharsets.UTF_8);
+                    zipEntry.setUnixMode(UnixStat.LINK_FLAG | (unixMode > 0 ? unixMode : UnixStat.DEFAULT_LINK_PERM));
+                    zipEntry.setSize(linkName.length);
+                    zos.putArchiveEntry(zipEntry);
+                    zos.write(linkName);
+                    zos.closeArchiveEntry();
+                    return;
+                }
+                
+                if (!entry.isDirectory() && entry.getSize() >= 0) {
+                    zipEntry.setSize(entry.getSize());
+                }
+                if (unixMode >= 0) {
+                    zipEntry.setUnixMode(unixMode);
+                }
+                
+                zos.putArchiveEntry(zipEntry);
+                copy(content, zos, buffer);
+                zos.closeArchiveEntry();
+            });
+            
+            zos.finish();
+            return count;
+        }
+    }
+    
+    /**
+     * Grava um 7z sólido, compactando as entradas diretamente na saída
+     */
+    private int write7z(File source, ArchiveType sourceType, File target,
+                        ProgressCallback callback) throws IOException {
+        try (SolidSevenZWriter writer = new SolidSevenZWriter(target, limits)) {
+            SolidSevenZWriter.BlockOutput[] block = new SolidSevenZWriter.BlockOutput[1];
+            
+            int count = readEntries(source, sourceType, false, (entry, unixMode, link, content) -> {
+                callback.onProgress(-1, "Convertendo: " + entry.getName());
+                
+                if (entry.isDirectory() || entry.getSize() == 0) {
+                    writer.addEmptyEntry(new SolidSevenZWriter.Entry(entry.getName(), entry.isDirectory(),
+                        0, 0, entry.getLastModified()));
+                    return;
+                }
+                
+                if (block[0] == null) {
+                    block[0] = writer.openBlock(new LZMA2Options());
+                }
+                block[0].addEntry(entry.getName(), entry.getLastModified(), content);
+                if (block[0].getUnpackSize() >= solidBlockSize) {
+                    block[0].close();
+                    block[0] = null;
+                }
+            });
+            
+            if (block[0] != null) {
+                block[0].close();
+            }
+            return count;
+        }
+    }
+    
+    private int writeTar(File source, ArchiveType sourceType, File target, boolean gzip,
+                         ProgressCallback callback) throws IOException {
+        try (OutputStream fos = openOutput(target);
+             OutputStream out = gzip ? new GzipCompressorOutputStream(fos) : fos;
+             TarArchiveOutputStream tos = new TarArchiveOutputStream(out)) {
+            
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tos.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            
+            byte[] buffer = new byte[64 * 1024];
+            int count = readEntries(source, sourceType, true, (entry, unixMode, link, content) -> {
+                callback.onProgress(-1, "Convertendo: " + entry.getName());
+                
+                TarArchiveEntry tarEntry;
+                if (link != null) {
+                    tarEntry = new TarArchiveEntry(entry.getName(), link.getLinkFlag());
+                    tarEntry.setLinkName(link.getLinkName());
+                } else {
+                    tarEntry = new TarArchiveEntry(entry.isDirectory() ? entry.getName() + "/" : entry.getName());
+                }
+                if (entry.getLastModified() >= 0) {
+                    tarEntry.setModTime(entry.getLastModified());
+                }
+                if (unixMode >= 0) {
+                    tarEntry.setMode(tarEntry.getMode() & ~07777 | unixMode);
+                }
+                if (!entry.isDirectory() && link == null) {
+                    // O TarArchiveOutputStream exige o tamanho antes do conteúdo
+                    tarEntry.setSize(entry.getSize());
+                }
+                
+                tos.putArchiveEntry(tarEntry);
+                copy(content, tos, buffer);
+                tos.closeArchiveEntry();
+            });
+            
+            tos.finish();
+            return count;
+        }
+    }
+    
+    /**
+     * Grava um GZ, que comporta uma única entrada
+     */
+    private int writeGz(File source, ArchiveType sourceType, File target,
+                        ProgressCallback callback) throws IOException {
+        try (OutputStream fos = openOutput(target)) {
+            GzipCompressorOutputStream[] gzip = new GzipCompressorOutputStream[1];
+            byte[] buffer = new byte[64 * 1024];
+            
+            int count = readEntries(source, sourceType, false, (entry, unixMode, link, content) -> {
+                if (entry.isDirectory()) {
+                    return;
+                }
+                if (gzip[0] != null) {
+                    throw new IOException("O formato GZIP comporta apenas um arquivo: " + source.getName()
+                        + " contém mais de uma entrada");
+                }
+                callback.onProgress(-1, "Convertendo: " + entry.getName());
+                
+                GzipParameters parameters = new GzipParameters();
+                parameters.setFilename(entry.getName().substring(entry.getName().lastIndexOf('/') + 1));
+                if (entry.getLastModified() >= 0) {
+                    parameters.setModificationTime(entry.getLastModified());
+                }
+                gzip[0] = new GzipCompressorOutputStream(fos, parameters);
+                copy(content, gzip[0], buffer);
+                gzip[0].finish();
+            });
+            
+            if (gzip[0] == null) {
+                throw new IOException("Nenhum arquivo para converter em " + source.getName());
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Percorre as entradas da origem em ordem, entregando o conteúdo descompactado
+     *
+     * @param sizeRequired true se o destino precisa do tamanho antes do conteúdo; sem
+     *                     isso o tamanho de um GZ é entregue como desconhecido (-1)
+     * @return Número de entradas lidas
+     */
+    private int readEntries(File source, ArchiveType sourceType, boolean sizeRequired, EntrySink sink)
+            throws IOException {
+        int count = 0;
+        
+        switch (sourceType) {
+            case ZIP:
+                try (ZipFile zipFile = new ZipFile(openChannel(source), source.getName(), "UTF8", true)) {
+                    Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+                    while (entries.hasMoreElements()) {
+                        ZipArchiveEntry entry = entries.nextElement();
+                        int unixMode = entry.getPlatform() == ZipArchiveEntry.PLATFORM_UNIX ? entry.getUnixMode() : -1;
+                        try (InputStream content = zipFile.getInputStream(entry)) {
+                            sink.accept(ArchiveIndex.toEntryInfo(entry), unixMode, null, content);
+                        }
+                        count++;
+                    }
+                }
+                break;
+            
+            case SEVEN_Z:
+                try (SevenZFile sevenZFile = new SevenZFile(openChannel(source), source.getName(),
+                         MemoryBudget.getDefault().sevenZOptions(1))) {
+                    InputStream content = new InputStream() {
+                        @Override
+                        public int read() throws IOException {
+                            return sevenZFile.read();
+                        }
+                        
+                        @Override
+                        public int read(byte[] b, int off, int len) throws IOException {
+                            return sevenZFile.read(b, off, len);
+                        }
+                    };
+                    
+                    SevenZArchiveEntry entry;
+                    while ((entry = sevenZFile.getNextEntry()) != null) {
+                        sink.accept(ArchiveIndex.toEntryInfo(entry), -1, null, content);
+                        count++;
+                    }
+                } catch (MemoryLimitException e) {
+                    throw MemoryBudget.exceeded(e, source.getName());
+                }
+                break;
+            
+            case TAR:
+            case TAR_GZ:
+                try (InputStream fis = openInput(source);
+                     InputStream in = sourceType == ArchiveType.TAR_GZ ? new GzipCompressorInputStream(fis, true) : fis;
+                     TarArchiveInputStream tais = new TarArchiveInputStream(in)) {
+                    
+                    TarArchiveEntry entry;
+                    while ((entry = tais.getNextTarEntry()) != null) {
+                        TarArchiveEntry link = entry.isSymbolicLink() || entry.isLink() ? entry : null;
+                        sink.accept(ArchiveIndex.toEntryInfo(entry, true), entry.getMode() & 07777, link, tais);
+                        count++;
+                    }
+                }
+                break;
+            
+            default:
+                // O ISIZE do trailer é o tamanho do último membro módulo 2^32; o tamanho
+                // real exige descompactar o arquivo uma vez a mais, o que só é feito para
+                // o TAR, que grava o tamanho antes do conteúdo
+                long size = -1;
+                if (sizeRequired) {
+                    GzipLayout layout = scanGz(source);
+                    size = layout.singleMember ? layout.size : gzContentSize(source);
+                }
+                ArchiveEntryInfo entry = ArchiveIndex.gzEntry(source, size);
+                try (InputStream fis = openInput(source);
+                     GzipCompressorInputStream gzis = new GzipCompressorInputStream(fis, true)) {
+                    sink.accept(entry, -1, null, gzis);
+                    count++;
+                }
+                break;
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Descompacta o primeiro membro do GZ sem gravar a saída, localizando o fluxo
+     * Deflate e conferindo o CRC
+     */
+    private GzipLayout scanGz(File source) throws IOException {
+        GzipLayout layout = new GzipLayout();
+        
+        try (SeekableByteChannel channel = openChannel(source)) {
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+            layout.dataStart = skipGzHeader(in, source);
+            
+            Inflater inflater = new Inflater(true);
+            CRC32 crc = new CRC32();
+            byte[] input = new byte[64 * 1024];
+            byte[] output = new byte[64 * 1024];
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        int bytesRead = in.read(input);
+                        if (bytesRead == -1) {
+                            throw new EOFException("Fim inesperado do arquivo GZ: " + source.getName());
+                        }
+                        inflater.setInput(input, 0, bytesRead);
+                    }
+                    int inflated = inflater.inflate(output);
+                    crc.update(output, 0, inflated);
+                    layout.size += inflated;
+                }
+                layout.dataEnd = layout.dataStart + inflater.getBytesRead();
+            } catch (DataFormatException e) {
+                throw new IOException("Dados inválidos no arquivo GZ: " + source.getName(), e);
+            } finally {
+                inflater.end();
+            }
+            
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(layout.dataEnd);
+            while (trailer.hasRemaining()) {
+                if (channel.read(trailer) == -1) {
+                    throw new EOFException("Fim inesperado do arquivo GZ: " + source.getName());
+                }
+            }
+            trailer.flip();
+            layout.crc = crc.getValue();
+            if ((trailer.getInt() & 0xFFFFFFFFL) != layout.crc) {
+                throw new IOException("CRC inválido no arquivo GZ: " + source.getName());
+            }
+            layout.singleMember = layout.dataEnd + trailer.capacity() == channel.size();
+        }
+        return layout;
+    }
+    
+    /**
+     * Soma o conteúdo descompactado de todos os membros do GZ
+     */
+    private long gzContentSize(File source) throws IOException {
+        long size = 0;
+        try (InputStream fis = openInput(source);
+             GzipCompressorInputStream gzis = new GzipCompressorInputStream(fis, true)) {
+            byte[] buffer = new byte[64 * 1024];
+            int bytesRead;
+            while ((bytesRead = gzis.read(buffer)) != -1) {
+                size += bytesRead;
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Salta o cabeçalho do membro GZ (RFC 1952)
+     *
+     * @return Tamanho do cabeçalho em bytes
+     */
+    private static long skipGzHeader(DataInputStream in, File source) throws IOException {
+        byte[] fixed = new byte[10];
+        in.readFully(fixed);
+        if ((fixed[0] & 0xFF) != 0x1F || (fixed[1] & 0xFF) != 0x8B || fixed[2] != Deflater.DEFLATED) {
+            throw new IOException("Cabeçalho GZ inválido: " + source.getName());
+        }
+        
+        int flags = fixed[3] & 0xFF;
+        long length = fixed.length;
+        if ((flags & 0x04) != 0) {
+            int extraLength = in.readUnsignedByte() | in.readUnsignedByte() << 8;
+            in.readFully(new byte[extraLength]);
+            length += 2 + extraLength;
+        }
+        // Nome e comentário terminam em zero
+        for (int flag : new int[] {0x08, 0x10}) {
+            if ((flags & flag) != 0) {
+                do {
+                    length++;
+                } while (in.readUnsignedByte() != 0);
+            }
+        }
+        if ((flags & 0x02) != 0) {
+            in.readUnsignedShort();
+            length += 2;
+        }
+        return length;
+    }
+    
+    /**
+     * Abre a origem, ou o conjunto de volumes, para leitura com acesso direto, com os
+     * limites de banda
+     */
+    private SeekableByteChannel openChannel(File source) throws IOException {
+        return limits.throttle(ArchiveVolumes.openChannel(source));
+    }
+    
+    private InputStream openInput(File source) throws IOException {
+        return limits.throttle(ArchiveVolumes.openStream(source));
+    }
+    
+    private SeekableByteChannel openTarget(File target) throws IOException {
+        return limits.throttle(Files.newByteChannel(target.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+    
+    private OutputStream openOutput(File target) throws IOException {
+        return new BufferedOutputStream(limits.throttle(new FileOutputStream(target)), 64 * 1024);
+    }
+    
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package javaricci.com.br;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tipos de arquivo compactado reconhecidos pela aplicação
+ */
+public enum ArchiveType {
+    
+    ZIP("ZIP"),
+    SEVEN_Z("7-Zip"),
+    TAR_GZ("TAR.GZ"),
+    TAR("TAR"),
+    GZ("GZIP");
+    
+    private final String displayName;
+    
+    ArchiveType(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    /**
+     * Nome exibido para o usuário
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    /**
+     * Identifica o tipo do arquivo pela extensão do nome, para arquivos a criar.
+     * Arquivos existentes devem ser identificados pelo conteúdo, com {@link #detect}.
+     *
+     * @param file Arquivo compactado
+     * @return Tipo identificado ou null se o formato não for suportado
+     */
+    public static ArchiveType fromFile(File file) {
+        ArchiveFormat format = ArchiveFormats.forName(file.getName());
+        return format != null ? format.getType() : null;
+    }
+    
+    /**
+     * Identifica o tipo de um arquivo existente pelos bytes iniciais
+     *
+     * @param file Arquivo compactado
+     * @return Tipo identificado
+     * @throws UnsupportedOperationException Se o formato não for suportado ou for
+     *         tratado por um formato externo
+     * @throws IOException Se o arquivo não puder ser lido
+     */
+    public static ArchiveType detect(File file) throws IOException {
+        ArchiveFormat format = ArchiveFormats.detect(file);
+        if (format == null || format.getType() == null) {
+            throw new UnsupportedOperationException("Formato de arquivo não suportado: " + file.getName());
+        }
+        return format.getType();
+    }
+}
\ No newline at end of file
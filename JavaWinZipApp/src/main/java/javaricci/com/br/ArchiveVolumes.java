@@ -0,0 +1,109 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.utils.MultiReadOnlySeekableByteChannel;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Leitura de arquivos divididos em volumes (backup.zip.001, backup.zip.002, ...),
+ * gravados pelo {@link VolumeWriter}.
+ *
+ * Os volumes são vistos como um único canal, sem juntar as partes em disco: o ZIP
+ * e o 7z são lidos pelo diretório central ou cabeçalho, com acesso direto a
+ * qualquer volume; os formatos de fluxo leem os volumes em sequência. Qualquer
+ * volume pode ser informado; a leitura sempre começa pelo .001.
+ */
+public final class ArchiveVolumes {
+    
+    private static final Pattern VOLUME_NAME = Pattern.compile("(.+)\\.(\\d{3})");
+    
+    private ArchiveVolumes() {
+    }
+    
+    /**
+     * Arquivo do volume de número informado, a partir de 1
+     */
+    public static File volumeFile(File baseFile, int number) {
+        return new File(baseFile.getPath() + String.format(".%03d", number));
+    }
+    
+    /**
+     * Verifica se o nome termina com o número de um volume (.001, .002, ...)
+     */
+    public static boolean isVolume(File file) {
+        Matcher matcher = VOLUME_NAME.matcher(file.getName());
+        return matcher.matches() && Integer.parseInt(matcher.group(2)) > 0;
+    }
+    
+    /**
+     * Arquivo sem o número do volume (backup.zip para backup.zip.002), usado para
+     * identificar o formato pela extensão; arquivos comuns são retornados sem alteração
+     */
+    public static File baseFile(File file) {
+        if (!isVolume(file)) {
+            return file;
+        }
+        String path = file.getPath();
+        return new File(path.substring(0, path.length() - 4));
+    }
+    
+    /**
+     * Volumes do conjunto, do .001 até o último número consecutivo existente
+     *
+     * @throws FileNotFoundException Se o primeiro volume não existir
+     */
+    public static List<File> list(File file) throws FileNotFoundException {
+        File base = baseFile(file);
+        List<File> volumes = new ArrayList<>();
+        for (int number = 1; volumeFile(base, number).isFile(); number++) {
+            volumes.add(volumeFile(base, number));
+        }
+        if (volumes.isEmpty()) {
+            throw new FileNotFoundException("Primeiro volume não encontrado: " + volumeFile(base, 1).getAbsolutePath());
+        }
+        return volumes;
+    }
+    
+    /**
+     * Abre o arquivo ou o conjunto de volumes como um único canal somente leitura
+     */
+    public static SeekableByteChannel openChannel(File file) throws IOException {
+        if (!isVolume(file)) {
+            return Files.newByteChannel(file.toPath());
+        }
+        List<File> volumes = list(file);
+        return MultiReadOnlySeekableByteChannel.forFiles(volumes.toArray(new File[0]));
+    }
+    
+    /**
+     * Abre o arquivo ou o conjunto de volumes para leitura sequencial
+     */
+    public static InputStream openStream(File file) throws IOException {
+        return new BufferedInputStream(Channels.newInputStream(openChannel(file)), 64 * 1024);
+    }
+    
+    /**
+     * Tamanho total do arquivo ou da soma dos volumes
+     */
+    public static long totalSize(File file) throws FileNotFoundException {
+        if (!isVolume(file)) {
+            return file.length();
+        }
+        long total = 0;
+        for (File volume : list(file)) {
+            total += volume.length();
+        }
+        return total;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package javaricci.com.br;
+
+import javaricci.com.br.ArchiveFormat.Capability;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Formatos tratados pelo motor da aplicação: ZIP, 7z, TAR, TAR.GZ e GZ
+ */
+public class BuiltInArchiveFormats implements ArchiveFormatProvider {
+    
+    private static final int TAR_BLOCK = 512;
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final int TAR_CHECKSUM_OFFSET = 148;
+    
+    /**
+     * Formato com assinatura e capacidades fixas
+     */
+    private static class BuiltInFormat implements ArchiveFormat {
+        private final ArchiveType type;
+        private final List<String> extensions;
+        private final Set<Capability> capabilities;
+        private final Predicate<ByteBuffer> signature;
+        
+        BuiltInFormat(ArchiveType type, List<String> extensions, Set<Capability> capabilities,
+                      Predicate<ByteBuffer> signature) {
+            this.type = type;
+            this.extensions = extensions;
+            this.capabilities = Collections.unmodifiableSet(capabilities);
+            this.signature = signature;
+        }
+        
+        @Override
+        public String getName() {
+            return type.getDisplayName();
+        }
+        
+        @Override
+        public ArchiveType getType() {
+            return type;
+        }
+        
+        @Override
+        public List<String> getExtensions() {
+            return extensions;
+        }
+        
+        @Override
+        public boolean matches(ByteBuffer header) {
+            return signature.test(header.duplicate());
+        }
+        
+        @Override
+        public Set<Capability> getCapabilities() {
+            return capabilities;
+        }
+        
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+    
+    /**
+     * O TAR.GZ vem antes do GZ porque a assinatura gzip é a mesma; o TAR vem por
+     * último porque arquivos TAR antigos só são reconhecidos pela soma do cabeçalho
+     */
+    private static final List<ArchiveFormat> FORMATS = List.of(
+        new BuiltInFormat(ArchiveType.ZIP, List.of(".zip"),
+            EnumSet.of(Capability.RANDOM_ACCESS, Capability.PARALLEL_DECODE, Capability.RAW_COPY),
+            header -> startsWith(header, 0x50, 0x4B, 0x03, 0x04)
+                || startsWith(header, 0x50, 0x4B, 0x05, 0x06)
+                || startsWith(header, 0x50, 0x4B, 0x07, 0x08)),
+        new BuiltInFormat(ArchiveType.SEVEN_Z, List.of(".7z"),
+            EnumSet.of(Capability.RANDOM_ACCESS, Capability.PARALLEL_DECODE),
+            header -> startsWith(header, 0x37, 0x7A, 0xBC, 0xAF, 0x27, 0x1C)),
+        new BuiltInFormat(ArchiveType.TAR_GZ, List.of(".tar.gz", ".tgz"),
+            EnumSet.of(Capability.STREAMING_ONLY),
+            header -> startsWith(header, 0x1F, 0x8B) && isTarHeader(inflateTarHeader(header))),
+        new BuiltInFormat(ArchiveType.GZ, List.of(".gz"),
+            EnumSet.of(Capability.STREAMING_ONLY),
+            header -> startsWith(header, 0x1F, 0x8B)),
+        new BuiltInFormat(ArchiveType.TAR, List.of(".tar"),
+            EnumSet.of(Capability.RANDOM_ACCESS),
+            header -> isTarHeader(firstBlock(header))));
+    
+    @Override
+    public List<ArchiveFormat> getFormats() {
+        return FORMATS;
+    }
+    
+    private static boolean startsWith(ByteBuffer header, int... signature) {
+        if (header.remaining() < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header.get(header.position() + i) & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static byte[] firstBlock(ByteBuffer header) {
+        if (header.remaining() < TAR_BLOCK) {
+            return null;
+        }
+        byte[] block = new byte[TAR_BLOCK];
+        header.get(block);
+        return block;
+    }
+    
+    /**
+     * Descompacta o primeiro bloco do fluxo gzip contido no cabeçalho
+     */
+    private static byte[] inflateTarHeader(ByteBuffer header) {
+        byte[] compressed = new byte[header.remaining()];
+        header.get(compressed);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] block = in.readNBytes(TAR_BLOCK);
+            return block.length == TAR_BLOCK ? block : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Reconhece o cabeçalho POSIX ou GNU pela marca "ustar" e o TAR antigo pela soma
+     * de verificação do cabeçalho
+     */
+    private static boolean isTarHeader(byte[] block) {
+        if (block == null) {
+            return false;
+        }
+        if (new String(block, TAR_MAGIC_OFFSET, 5, StandardCharsets.US_ASCII).equals("ustar")) {
+            return true;
+        }
+        
+        // Campo octal, completado com espaços ou NUL
+        long stored = 0;
+        boolean digits = false;
+        for (int i = TAR_CHECKSUM_OFFSET; i < TAR_CHECKSUM_OFFSET + 8; i++) {
+            byte b = block[i];
+            if (b >= '0' && b <= '7') {
+                stored = stored * 8 + (b - '0');
+                digits = true;
+            } else if (b != ' ' && b != 0) {
+                return false;
+            }
+        }
+        if (!digits) {
+            return false;
+        }
+        
+        long sum = 0;
+        for (int i = 0; i < TAR_BLOCK; i++) {
+            boolean checksumField = i >= TAR_CHECKSUM_OFFSET && i < TAR_CHECKSUM_OFFSET + 8;
+            sum += checksumField ? ' ' : block[i] & 0xFF;
+        }
+        return sum == stored;
+    }
+}
\ No newline at end of file
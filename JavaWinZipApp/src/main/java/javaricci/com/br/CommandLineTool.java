@@ -0,0 +1,420 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modo de linha de comando para uso em pipelines de shell, sem arquivos temporários.
+ *
+ * Os dados fluem da entrada padrão para a saída padrão (ou de arquivos para a saída,
+ * no caso do TAR) por buffers de tamanho fixo. Como as leituras e gravações são
+ * bloqueantes, um consumidor lento segura o produtor: o uso de memória não cresce com
+ * o tamanho dos dados.
+ *
+ * <pre>
+ * compress   [-f gz|xz|bz2|zst] [-l nível]               entrada padrão -> saída padrão
+ * decompress [-f gz|xz|bz2|zst]                          entrada padrão -> saída padrão
+ * tar        [-f none|gz|xz|bz2|zst] [-l nível] [-S] itens... arquivos -> saída padrão
+ * untar      [-f none|gz|xz|bz2|zst] [-C pasta] [padrões...]  entrada padrão -> pasta
+ * watch      [-z] [-C destino] [-s tamanho] [-t segundos] [-q ms] pastas...
+ * compare    referência atual                       diferenças -> saída padrão
+ * </pre>
+ *
+ * O comando watch arquiva continuamente as alterações das pastas em segmentos
+ * TAR.GZ (ou ZIP com -z) gravados no destino, até o processo ser interrompido;
+ * veja {@link WatchFolderArchiver}.
+ *
+ * O comando compare lista as entradas acrescentadas (+), removidas (-) e alteradas (M)
+ * entre dois arquivos compactados ou pastas (veja {@link ArchiveCompareService}) e
+ * termina com o código 3 quando há diferenças.
+ *
+ * Sem -f, decompress e untar identificam a compressão pelos primeiros bytes.
+ * O formato zst exige a biblioteca zstd-jni no classpath.
+ *
+ * Todos os comandos aceitam limites de recursos (veja {@link ResourceLimits}):
+ * -r e -w limitam a banda de leitura e gravação (bytes por segundo, com sufixos
+ * K, M ou G), -c limita a fração de CPU (0,01 a 1) e -p ativa a baixa prioridade.
+ * -m define o limite de memória (veja {@link MemoryBudget}); um fluxo XZ cujo
+ * dicionário não cabe no limite falha logo no início.
+ */
+public class CommandLineTool {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_DIFFERENT = 3;
+    
+    private static final String USAGE = String.join(System.lineSeparator(),
+        "Uso:",
+        "  compress   [-f gz|xz|bz2|zst] [-l nível]                  < entrada > saída",
+        "  decompress [-f gz|xz|bz2|zst]                             < entrada > saída",
+        "  tar        [-f none|gz|xz|bz2|zst] [-l nível] [-S] itens... > saída",
+        "             -S grava regiões zeradas como entradas esparsas",
+        "  untar      [-f none|gz|xz|bz2|zst] [-C pasta] [padrões...] < entrada",
+        "  watch      [-z] [-C destino] [-s tamanho] [-t segundos] [-q ms] pastas...",
+        "             arquiva as alterações das pastas em segmentos TAR.GZ até ser interrompido",
+        "             -z grava segmentos ZIP; -s tamanho máximo do segmento;",
+        "             -t intervalo máximo entre gravações; -q silêncio antes de arquivar um arquivo",
+        "  compare    referência atual                            > diferenças",
+        "             compara arquivos compactados ou pastas pelos CRCs; código 3 se diferentes",
+        "",
+        "Limites de recursos, aceitos por todos os comandos:",
+        "  -r taxa    banda de leitura em bytes/s (sufixos K, M, G)",
+        "  -w taxa    banda de gravação em bytes/s (sufixos K, M, G)",
+        "  -c fração  fração de CPU, de 0.01 a 1",
+        "  -p         baixa prioridade: recua quando a latência do disco sobe",
+        "  -m tamanho limite de memória (sufixos K, M, G)",
+        "",
+        "Sem -f, decompress e untar identificam a compressão automaticamente.");
+    
+    /**
+     * Compressão aplicada ao fluxo
+     */
+    private enum Codec {
+        NONE, GZ, XZ, BZ2, ZST;
+        
+        static Codec parse(String name) {
+            switch (name.toLowerCase()) {
+                case "none":
+                    return NONE;
+                case "gz":
+                case "gzip":
+                    return GZ;
+                case "xz":
+                    return XZ;
+                case "bz2":
+                case "bzip2":
+                    return BZ2;
+                case "zst":
+                case "zstd":
+                    return ZST;
+                default:
+                    throw new IllegalArgumentException("Formato desconhecido: " + name);
+            }
+        }
+    }
+    
+    /**
+     * Opções comuns aos comandos
+     */
+    private static class Arguments {
+        Codec codec;
+        int level = -1;
+        File directory = new File(".");
+        boolean sparse;
+        boolean zip;
+        long segmentSize = -1;
+        long commitSeconds = -1;
+        long quietMillis = -1;
+        final ResourceLimits limits = new ResourceLimits();
+        final List<String> operands = new ArrayList<>();
+    }
+    
+    /**
+     * Executa o comando e retorna o código de saída do processo
+     */
+    public static int run(String[] args) {
+        if (args.length == 0 || args[0].equals("-h") || args[0].equals("--help")) {
+            System.err.println(USAGE);
+            return args.length == 0 ? EXIT_USAGE : EXIT_OK;
+        }
+        
+        Arguments arguments;
+        try {
+            arguments = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        
+        // System.out não propaga erros de gravação; um pipe fechado precisa interromper o comando.
+        // Em caso de erro a saída não é fechada: o fluxo incompleto não deve parecer finalizado
+        ResourceLimits limits = arguments.limits;
+        InputStream stdin = new BufferedInputStream(limits.throttle(new FileInputStream(FileDescriptor.in)), BUFFER_SIZE);
+        OutputStream stdout = new BufferedOutputStream(limits.throttle(new FileOutputStream(FileDescriptor.out)), BUFFER_SIZE);
+        
+        try {
+            switch (args[0]) {
+                case "compress":
+                    OutputStream compressed = compressor(orDefault(arguments.codec, Codec.GZ), arguments.level, stdout);
+                    copy(stdin, compressed);
+                    compressed.close();
+                    break;
+                case "decompress":
+                    try (InputStream in = decompressor(arguments.codec, stdin)) {
+                        copy(in, stdout);
+                    }
+                    stdout.flush();
+                    break;
+                case "tar":
+                    if (arguments.operands.isEmpty()) {
+                        throw new IllegalArgumentException("Nenhum arquivo ou pasta especificado");
+                    }
+                    File[] files = new File[arguments.operands.size()];
+                    for (int i = 0; i < files.length; i++) {
+                        files[i] = new File(arguments.operands.get(i));
+                    }
+                    CompressionOptions options = new CompressionOptions();
+                    options.setResourceLimits(limits);
+                    options.setSparse(arguments.sparse);
+                    OutputStream archive = compressor(orDefault(arguments.codec, Codec.NONE), arguments.level, stdout);
+                    new CompressionService().writeTar(files, archive, options, (progress, message) -> { });
+                    archive.close();
+                    break;
+                case "untar":
+                    EntryFilter filter = EntryFilter.all();
+                    for (String pattern : arguments.operands) {
+                        filter.include(pattern);
+                    }
+                    try (InputStream in = decompressor(arguments.codec, stdin)) {
+                        new DecompressionService(limits).extractTarStream(in, arguments.directory, filter,
+                            (progress, message) -> { });
+                    }
+                    break;
+                case "watch":
+                    watch(arguments);
+                    break;
+                case "compare":
+                    if (arguments.operands.size() != 2) {
+                        throw new IllegalArgumentException("Informe a referência e o item a comparar");
+                    }
+                    List<ArchiveCompareService.Difference> differences = new ArchiveCompareService(
+                        Runtime.getRuntime().availableProcessors(), limits).compare(
+                        new File(arguments.operands.get(0)), new File(arguments.operands.get(1)),
+                        (progress, message) -> { });
+                    PrintStream report = new PrintStream(stdout, false, "UTF-8");
+                    for (ArchiveCompareService.Difference difference : differences) {
+                        report.println(difference);
+                    }
+                    report.flush();
+                    if (report.checkError()) {
+                        throw new IOException("Erro ao gravar a saída");
+                    }
+                    return differences.isEmpty() ? EXIT_OK : EXIT_DIFFERENT;
+                default:
+                    throw new IllegalArgumentException("Comando desconhecido: " + args[0]);
+            }
+            return EXIT_OK;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return EXIT_USAGE;
+        } catch (MemoryLimitException e) {
+            System.err.println("Erro: " + MemoryBudget.exceeded(e, "o fluxo XZ").getMessage());
+            return EXIT_ERROR;
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Erro: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+    }
+    
+    private static Arguments parse(String[] args) {
+        Arguments arguments = new Arguments();
+        
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = arg.equals("-f") || arg.equals("-l") || arg.equals("-C")
+                || arg.equals("-r") || arg.equals("-w") || arg.equals("-c") || arg.equals("-m")
+                || arg.equals("-s") || arg.equals("-t") || arg.equals("-q");
+            if (hasValue && i + 1 >= args.length) {
+                throw new IllegalArgumentException("Valor ausente para " + arg);
+            }
+            
+            if (arg.equals("-f")) {
+                arguments.codec = Codec.parse(args[++i]);
+            } else if (arg.equals("-l")) {
+                try {
+                    arguments.level = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Nível inválido: " + args[i]);
+                }
+            } else if (arg.equals("-C")) {
+                arguments.directory = new File(args[++i]);
+            } else if (arg.equals("-r")) {
+                arguments.limits.setReadBytesPerSecond(parseRate(args[++i]));
+            } else if (arg.equals("-w")) {
+                arguments.limits.setWriteBytesPerSecond(parseRate(args[++i]));
+            } else if (arg.equals("-c")) {
+                try {
+                    arguments.limits.setCpuShare(Double.parseDouble(args[++i].replace(',', '.')));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Fração de CPU inválida: " + args[i]);
+                }
+            } else if (arg.equals("-m")) {
+                MemoryBudget.setDefault(new MemoryBudget(MemoryBudget.parseSize(args[++i])));
+            } else if (arg.equals("-p")) {
+                arguments.limits.setLowPriority(true);
+            } else if (arg.equals("-S")) {
+                arguments.sparse = true;
+            } else if (arg.equals("-z")) {
+                arguments.zip = true;
+            } else if (arg.equals("-s")) {
+                arguments.segmentSize = MemoryBudget.parseSize(args[++i]);
+            } else if (arg.equals("-t")) {
+                arguments.commitSeconds = parseNumber(args[++i], "Intervalo inválido: ");
+            } else if (arg.equals("-q")) {
+                arguments.quietMillis = parseNumber(args[++i], "Tempo de silêncio inválido: ");
+            } else if (arg.startsWith("-") && !arg.equals("-")) {
+                throw new IllegalArgumentException("Opção desconhecida: " + arg);
+            } else {
+                arguments.operands.add(arg);
+            }
+        }
+        return arguments;
+    }
+    
+    private static long parseNumber(String value, String error) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(error + value);
+        }
+    }
+    
+    /**
+     * Monitora as pastas até o processo ser interrompido; o gancho de encerramento
+     * grava os arquivos pendentes e conclui o segmento aberto
+     */
+    private static void watch(Arguments arguments) throws IOException {
+        if (arguments.operands.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma pasta especificada");
+        }
+        WatchFolderArchiver archiver = new WatchFolderArchiver(arguments.directory,
+            arguments.zip ? ArchiveType.ZIP : ArchiveType.TAR_GZ);
+        for (String folder : arguments.operands) {
+            archiver.addFolder(new File(folder));
+        }
+        if (arguments.segmentSize > 0) {
+            archiver.setSegmentMaxBytes(arguments.segmentSize);
+        }
+        if (arguments.commitSeconds >= 0) {
+            archiver.setCommitMillis(arguments.commitSeconds * 1000);
+        }
+        if (arguments.quietMillis >= 0) {
+            archiver.setQuietMillis(arguments.quietMillis);
+        }
+        archiver.setResourceLimits(arguments.limits);
+        archiver.setCallback((progress, message) -> System.err.println(message));
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(archiver::close));
+        archiver.run();
+    }
+    
+    /**
+     * Converte uma taxa como 500K, 20M ou 1G em bytes por segundo
+     */
+    private static long parseRate(String value) {
+        try {
+            return MemoryBudget.parseSize(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Taxa inválida: " + value);
+        }
+    }
+    
+    /**
+     * Envolve a saída com o compressor; fechar o resultado finaliza o fluxo e esvazia
+     * os buffers da saída padrão
+     */
+    private static OutputStream compressor(Codec codec, int level, OutputStream out) throws IOException {
+        switch (codec) {
+            case GZ:
+                GzipParameters parameters = new GzipParameters();
+                if (level >= 0) {
+                    parameters.setCompressionLevel(level);
+                }
+                return new GzipCompressorOutputStream(out, parameters);
+            case XZ:
+                return new XZCompressorOutputStream(out, level >= 0 ? level : 6);
+            case BZ2:
+                return new BZip2CompressorOutputStream(out, level > 0 ? level : BZip2CompressorOutputStream.MAX_BLOCKSIZE);
+            case ZST:
+                requireZstd();
+                return new ZstdCompressorOutputStream(out, level > 0 ? level : 3);
+            default:
+                return out;
+        }
+    }
+    
+    /**
+     * Envolve a entrada com o descompressor; membros concatenados são lidos em
+     * sequência, como fazem gzip, xz e bzip2
+     */
+    private static InputStream decompressor(Codec codec, InputStream in) throws IOException {
+        if (codec == null) {
+            codec = detect(in);
+        }
+        
+        switch (codec) {
+            case GZ:
+                return new GzipCompressorInputStream(in, true);
+            case XZ:
+                return new XZCompressorInputStream(in, true, MemoryBudget.getDefault().getLimitInKb());
+            case BZ2:
+                return new BZip2CompressorInputStream(in, true);
+            case ZST:
+                requireZstd();
+                return new ZstdCompressorInputStream(in);
+            default:
+                return in;
+        }
+    }
+    
+    /**
+     * Identifica a compressão pelos primeiros bytes; sem assinatura conhecida, o
+     * fluxo é tratado como não compactado
+     */
+    private static Codec detect(InputStream in) {
+        try {
+            String name = CompressorStreamFactory.detect(in);
+            switch (name) {
+                case CompressorStreamFactory.GZIP:
+                    return Codec.GZ;
+                case CompressorStreamFactory.XZ:
+                    return Codec.XZ;
+                case CompressorStreamFactory.BZIP2:
+                    return Codec.BZ2;
+                case CompressorStreamFactory.ZSTANDARD:
+                    return Codec.ZST;
+                default:
+                    throw new UnsupportedOperationException("Compressão não suportada: " + name);
+            }
+        } catch (CompressorException e) {
+            return Codec.NONE;
+        }
+    }
+    
+    private static void requireZstd() {
+        if (!ZstdUtils.isZstdCompressionAvailable()) {
+            throw new UnsupportedOperationException("O formato zst exige a biblioteca zstd-jni no classpath");
+        }
+    }
+    
+    private static Codec orDefault(Codec codec, Codec defaultCodec) {
+        return codec != null ? codec : defaultCodec;
+    }
+    
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
\ No newline at end of file
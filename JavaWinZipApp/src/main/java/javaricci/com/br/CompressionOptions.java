@@ -0,0 +1,183 @@
+package javaricci.com.br;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Opções de compactação
+ */
+public class CompressionOptions {
+    
+    /**
+     * Onde gravar o manifesto de hashes
+     */
+    public enum ManifestTarget {
+        /** Não gera manifesto */
+        NONE,
+        /** Grava o manifesto como a entrada CHECKSUMS dentro do arquivo */
+        ENTRY,
+        /** Grava o manifesto em um arquivo ao lado do compactado (.checksums) */
+        SIDECAR
+    }
+    
+    /**
+     * Nome da entrada do manifesto dentro do arquivo compactado
+     */
+    public static final String MANIFEST_ENTRY_NAME = "CHECKSUMS";
+    
+    /**
+     * Extensão acrescentada ao nome do arquivo compactado para o manifesto externo
+     */
+    public static final String MANIFEST_SIDECAR_SUFFIX = ".checksums";
+    
+    /**
+     * Tamanho padrão dos blocos sólidos 7z
+     */
+    public static final long DEFAULT_SOLID_BLOCK_SIZE = 64L * 1024 * 1024;
+    
+    private Set<DigestAlgorithm> digests = EnumSet.noneOf(DigestAlgorithm.class);
+    private ManifestTarget manifestTarget = ManifestTarget.NONE;
+    private long solidBlockSize = DEFAULT_SOLID_BLOCK_SIZE;
+    private int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private boolean deduplicate;
+    private long targetThroughput;
+    private long targetDuration;
+    private ResourceLimits resourceLimits = new ResourceLimits();
+    private boolean sparse;
+    private long volumeSize;
+    
+    /**
+     * Hashes calculados sobre cada arquivo durante a leitura para compactação
+     */
+    public Set<DigestAlgorithm> getDigests() {
+        return Collections.unmodifiableSet(digests);
+    }
+    
+    public void setDigests(Set<DigestAlgorithm> digests) {
+        this.digests = digests.isEmpty() ? EnumSet.noneOf(DigestAlgorithm.class) : EnumSet.copyOf(digests);
+    }
+    
+    public ManifestTarget getManifestTarget() {
+        return manifestTarget;
+    }
+    
+    public void setManifestTarget(ManifestTarget manifestTarget) {
+        this.manifestTarget = manifestTarget;
+    }
+    
+    /**
+     * Indica se algum manifesto deve ser gerado
+     */
+    public boolean isManifestEnabled() {
+        return manifestTarget != ManifestTarget.NONE && !digests.isEmpty();
+    }
+    
+    /**
+     * Quantidade aproximada de dados descompactados por bloco sólido 7z. Blocos
+     * maiores melhoram a taxa de compressão; blocos menores permitem mais paralelismo.
+     */
+    public long getSolidBlockSize() {
+        return solidBlockSize;
+    }
+    
+    public void setSolidBlockSize(long solidBlockSize) {
+        this.solidBlockSize = Math.max(1, solidBlockSize);
+    }
+    
+    /**
+     * Número de blocos 7z compactados ao mesmo tempo. Cada codificador LZMA2
+     * ocupa cerca de 100 MB no nível padrão.
+     */
+    public int getThreads() {
+        return threads;
+    }
+    
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Compacta uma única vez cada conteúdo repetido no ZIP, reutilizando os bytes
+     * compactados nas demais entradas. Exige listar todos os arquivos antes de
+     * começar e ler para hash os arquivos com tamanho repetido.
+     */
+    public boolean isDeduplicate() {
+        return deduplicate;
+    }
+    
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+    
+    /**
+     * Vazão mínima desejada na compactação ZIP, em bytes por segundo (0 desativa).
+     * Com uma meta definida, o nível do Deflate é ajustado durante a compactação
+     * em vez de usar o nível padrão.
+     */
+    public long getTargetThroughput() {
+        return targetThroughput;
+    }
+    
+    public void setTargetThroughput(long targetThroughput) {
+        this.targetThroughput = Math.max(0, targetThroughput);
+    }
+    
+    /**
+     * Tempo desejado para concluir a compactação ZIP, em milissegundos (0 desativa).
+     * O nível do Deflate é ajustado conforme os bytes e o tempo restantes; pode ser
+     * combinado com {@link #getTargetThroughput()}, valendo a meta mais exigente.
+     */
+    public long getTargetDuration() {
+        return targetDuration;
+    }
+    
+    public void setTargetDuration(long targetDuration) {
+        this.targetDuration = Math.max(0, targetDuration);
+    }
+    
+    /**
+     * Indica se o nível de compressão é ajustado para cumprir uma meta
+     */
+    public boolean isAdaptiveLevel() {
+        return targetThroughput > 0 || targetDuration > 0;
+    }
+    
+    /**
+     * Grava como entradas esparsas (PAX 1.0 do GNU tar) os arquivos com blocos
+     * zerados ao criar TAR, armazenando só as regiões com dados. Os arquivos com
+     * blocos zerados têm as regiões com dados lidas duas vezes.
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+    
+    public void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+    
+    /**
+     * Tamanho máximo de cada volume em bytes, ou 0 para gravar um único arquivo.
+     * Com volumes, a saída backup.zip é gravada como backup.zip.001, backup.zip.002
+     * e assim por diante (veja {@link VolumeWriter}).
+     */
+    public long getVolumeSize() {
+        return volumeSize;
+    }
+    
+    public void setVolumeSize(long volumeSize) {
+        this.volumeSize = Math.max(0, volumeSize);
+    }
+    
+    /**
+     * Limites de disco e CPU da compactação. A instância pode ser compartilhada com
+     * outros serviços para que dividam a mesma banda.
+     */
+    public ResourceLimits getResourceLimits() {
+        return resourceLimits;
+    }
+    
+    public void setResourceLimits(ResourceLimits resourceLimits) {
+        this.resourceLimits = resourceLimits != null ? resourceLimits : new ResourceLimits();
+    }
+}
\ No newline at end of file
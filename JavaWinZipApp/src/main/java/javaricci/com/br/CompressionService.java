@@ -1,12 +1,35 @@
 package javaricci.com.br;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.tukaani.xz.FinishableOutputStream;
+import org.tukaani.xz.FinishableWrapperOutputStream;
+import org.tukaani.xz.LZMA2Options;
 
 import java.io.*;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * Serviço responsável pela compactação de arquivos e pastas
@@ -20,6 +43,212 @@ public class CompressionService {
         void onProgress(int progress, String message);
     }
     
+    /**
+     * Estado de uma compactação em andamento
+     */
+    private static class CompressionJob {
+        final CompressionOptions options;
+        final ProgressCallback callback;
+        final DirectoryScanner scanner;
+        final int directFiles;
+        final AtomicInteger processedFiles = new AtomicInteger();
+        final List<String> manifest = new ArrayList<>();
+        AdaptiveCompressionLevel adaptiveLevel;
+        
+        /**
+         * Pasta dos arquivos temporários, a mesma do arquivo de saída; null no fluxo
+         * TAR, que usa a pasta temporária do sistema
+         */
+        File tempDir;
+        
+        CompressionJob(CompressionOptions options, ProgressCallback callback,
+                       DirectoryScanner scanner, int directFiles) {
+            this.options = options;
+            this.callback = callback;
+            this.scanner = scanner;
+            this.directFiles = directFiles;
+        }
+        
+        /**
+         * Percentual concluído, ou -1 enquanto a varredura das pastas ainda não
+         * conhece o total de arquivos
+         */
+        int progress() {
+            if (scanner != null && !scanner.isComplete()) {
+                return -1;
+            }
+            long totalFiles = directFiles + (scanner != null ? scanner.getDiscoveredFiles() : 0);
+            return (int) ((processedFiles.get() * 100L) / Math.max(1, totalFiles));
+        }
+    }
+    
+    /**
+     * Arquivo ou pasta de origem, quando a compactação precisa da lista completa
+     * antes de começar
+     */
+    private static class SourceFile {
+        final File file;
+        final String entryName;
+        final boolean directory;
+        final String extension;
+        final String parentPath;
+        final long size;
+        final long lastModified;
+        final long device;
+        final long inode;
+        
+        SourceFile(File file, String entryName, boolean directory, long size, long lastModified,
+                   long device, long inode) {
+            this.file = file;
+            this.entryName = entryName;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.device = device;
+            this.inode = inode;
+            
+            int slash = entryName.lastIndexOf('/');
+            this.parentPath = slash >= 0 ? entryName.substring(0, slash) : "";
+            String name = entryName.substring(slash + 1);
+            int dot = name.lastIndexOf('.');
+            this.extension = dot > 0 ? name.substring(dot + 1).toLowerCase() : "";
+        }
+    }
+    
+    /**
+     * Bloco 7z compactado por uma tarefa, com as linhas de manifesto das suas entradas
+     */
+    private static class PackedBlock {
+        final SolidSevenZWriter.Block block;
+        final File packedFile;
+        final List<String> manifest;
+        
+        PackedBlock(SolidSevenZWriter.Block block, File packedFile, List<String> manifest) {
+            this.block = block;
+            this.packedFile = packedFile;
+            this.manifest = manifest;
+        }
+    }
+    
+    /**
+     * Conteúdo já compactado com Deflate, reutilizado por todas as entradas ZIP
+     * com o mesmo conteúdo. Conteúdos pequenos ficam em memória, reservada no
+     * {@link MemoryBudget}; os maiores, ou os que não cabem no limite, em um
+     * arquivo temporário.
+     */
+    private static class RawPayload {
+        final long size;
+        final long compressedSize;
+        final long crc;
+        final List<String> digests;
+        final byte[] data;
+        final File spillFile;
+        final MemoryBudget.Reservation reservation;
+        
+        RawPayload(long size, long compressedSize, long crc, List<String> digests, byte[] data, File spillFile,
+                   MemoryBudget.Reservation reservation) {
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.crc = crc;
+            this.digests = digests;
+            this.data = data;
+            this.spillFile = spillFile;
+            this.reservation = reservation;
+        }
+        
+        InputStream open() throws IOException {
+            return data != null ? new ByteArrayInputStream(data) : new FileInputStream(spillFile);
+        }
+        
+        void release() {
+            if (spillFile != null) {
+                spillFile.delete();
+            }
+            if (reservation != null) {
+                reservation.close();
+            }
+        }
+    }
+    
+    /**
+     * ZIP cujo nível do Deflate pode ser alterado no meio de uma entrada, usado pelo
+     * ajuste adaptativo do nível
+     */
+    private static class LevelAdjustableZipOutputStream extends ZipArchiveOutputStream {
+        
+        LevelAdjustableZipOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        /**
+         * Deflater da entrada atual; alterações de nível valem para os próximos dados gravados
+         */
+        Deflater getDeflater() {
+            return def;
+        }
+    }
+    
+    /**
+     * Entrada TAR esparsa no formato PAX 1.0 do GNU tar.
+     * 
+     * O nome gravado no cabeçalho é apenas um marcador; leitores que entendem o
+     * formato usam GNU.sparse.name. Os registros são devolvidos aqui porque o
+     * TarArchiveEntry interpreta GNU.sparse.name e GNU.sparse.realsize ao recebê-los,
+     * em vez de guardá-los para gravação.
+     */
+    private static class SparseTarEntry extends TarArchiveEntry {
+        private final String realName;
+        private final long realSize;
+        
+        SparseTarEntry(String realName, long realSize) {
+            super(sparseHeaderName(realName));
+            this.realName = realName;
+            this.realSize = realSize;
+        }
+        
+        @Override
+        public Map<String, String> getExtraPaxHeaders() {
+            Map<String, String> headers = new LinkedHashMap<>(super.getExtraPaxHeaders());
+            headers.put("GNU.sparse.major", "1");
+            headers.put("GNU.sparse.minor", "0");
+            headers.put("GNU.sparse.name", realName);
+            headers.put("GNU.sparse.realsize", Long.toString(realSize));
+            return headers;
+        }
+        
+        /**
+         * Nome do cabeçalho no padrão do GNU tar, curto o bastante para dispensar um
+         * registro PAX de caminho
+         */
+        private static String sparseHeaderName(String realName) {
+            String name = "GNUSparseFile.0/" + realName.substring(realName.lastIndexOf('/') + 1);
+            return name.getBytes(StandardCharsets.UTF_8).length <= 100 ? name : "GNUSparseFile.0/sparse";
+        }
+    }
+    
+    /**
+     * Arquivos menores que isto não são analisados em busca de regiões zeradas
+     */
+    private static final long SPARSE_MIN_SIZE = 64 * 1024;
+    
+    /**
+     * Granularidade da detecção de regiões zeradas, o bloco usual dos sistemas de arquivos
+     */
+    private static final int SPARSE_BLOCK_SIZE = 4096;
+    
+    private static final byte[] ZERO_BLOCK = new byte[SPARSE_BLOCK_SIZE];
+    
+    /**
+     * Total mínimo de blocos zerados para gravar uma entrada esparsa; abaixo disso o
+     * mapa de regiões e os registros PAX não compensam
+     */
+    private static final long SPARSE_MIN_HOLE_SIZE = 64 * 1024;
+    
+    /**
+     * Conteúdos duplicados até este tamanho são mantidos em memória entre as ocorrências
+     */
+    private static final long IN_MEMORY_PAYLOAD_LIMIT = 4L * 1024 * 1024;
+    
     /**
      * Compacta um array de arquivos e pastas em um arquivo ZIP
      * 
@@ -29,16 +258,100 @@ public class CompressionService {
      * @throws IOException Se ocorrer erro durante a compactação
      */
     public void compressFiles(File[] files, File outputFile, ProgressCallback callback) throws IOException {
+        compressFiles(files, outputFile, new CompressionOptions(), callback);
+    }
+    
+    /**
+     * Compacta um array de arquivos e pastas em um arquivo ZIP com as opções informadas.
+     * 
+     * Os hashes configurados são calculados sobre o mesmo buffer que alimenta o
+     * ZipArchiveOutputStream, de modo que o manifesto não exige uma segunda leitura
+     * dos arquivos de origem.
+     * 
+     * As pastas são listadas em paralelo pelo {@link DirectoryScanner}, e a
+     * compactação começa assim que os primeiros arquivos são encontrados, sem uma
+     * contagem prévia da árvore inteira.
+     * 
+     * Se o arquivo de saída tiver a extensão .7z, é gerado um arquivo 7z sólido
+     * (veja {@link #compressTo7z}); com .tar ou .tar.gz, um TAR gravado por
+     * {@link #writeTar}.
+     * 
+     * Com uma meta de vazão ou de duração nas opções, o nível do Deflate é ajustado
+     * durante a compactação (veja {@link AdaptiveCompressionLevel}).
+     * 
+     * Com um tamanho de volume nas opções, a saída é dividida em volumes numerados
+     * durante a própria gravação, sem uma segunda leitura do arquivo.
+     * 
+     * @param files Array de arquivos e pastas para compactar
+     * @param outputFile Arquivo ZIP de saída
+     * @param options Opções de compactação
+     * @param callback Callback para atualização do progresso
+     * @throws IOException Se ocorrer erro durante a compactação
+     */
+    public void compressFiles(File[] files, File outputFile, CompressionOptions options,
+                              ProgressCallback callback) throws IOException {
         if (files == null || files.length == 0) {
             throw new IllegalArgumentException("Nenhum arquivo ou pasta especificado");
         }
         
-        // Calcular número total de arquivos para o progresso
-        int totalFiles = countFiles(files);
-        final int[] processedFiles = {0};
+        ArchiveType type = ArchiveType.fromFile(outputFile);
+        if (type == ArchiveType.SEVEN_Z) {
+            compressTo7z(files, outputFile, options, callback);
+            return;
+        }
+        if (type == ArchiveType.TAR || type == ArchiveType.TAR_GZ) {
+            try (OutputStream fos = options.getResourceLimits().throttle(openOutput(outputFile, options));
+                 OutputStream out = type == ArchiveType.TAR_GZ
+                     ? new GzipCompressorOutputStream(new BufferedOutputStream(fos, 64 * 1024))
+                     : new BufferedOutputStream(fos, 64 * 1024)) {
+                writeTar(files, out, options, callback);
+            }
+            return;
+        }
+        
+        byte[] manifest = null;
         
-        try (FileOutputStream fos = new FileOutputStream(outputFile);
-             ZipArchiveOutputStream zos = new ZipArchiveOutputStream(fos)) {
+        try (DirectoryScanner scanner = new DirectoryScanner(options.getResourceLimits());
+             OutputStream fos = options.getResourceLimits().throttle(openOutput(outputFile, options));
+             LevelAdjustableZipOutputStream zos = new LevelAdjustableZipOutputStream(fos)) {
+            
+            DirectoryScanner.Scan[] scans = new DirectoryScanner.Scan[files.length];
+            List<SourceFile> sources = null;
+            int directFiles = 0;
+            long directBytes = 0;
+            
+            if (options.isDeduplicate()) {
+                // A deduplicação agrupa arquivos por tamanho e precisa da lista completa
+                callback.onProgress(-1, "Listando arquivos...");
+                sources = collectSources(files, scanner);
+                for (SourceFile source : sources) {
+                    if (!source.directory) {
+                        directFiles++;
+                        directBytes += source.size;
+                    }
+                }
+            } else {
+                // Iniciar a varredura de todas as pastas antes de compactar, para que o
+                // total de arquivos do progresso seja conhecido o quanto antes
+                for (int i = 0; i < files.length; i++) {
+                    if (files[i].isDirectory()) {
+                        scans[i] = scanner.start(files[i].toPath());
+                    } else if (files[i].exists()) {
+                        directFiles++;
+                        directBytes += files[i].length();
+                    }
+                }
+            }
+            CompressionJob job = new CompressionJob(options, callback, sources == null ? scanner : null, directFiles);
+            job.tempDir = outputFile.getAbsoluteFile().getParentFile();
+            
+            if (options.isAdaptiveLevel()) {
+                // O total cresce enquanto a varredura das pastas não termina
+                long knownBytes = directBytes;
+                boolean scanned = sources != null;
+                job.adaptiveLevel = new AdaptiveCompressionLevel(options,
+                    () -> knownBytes + (scanned ? 0 : scanner.getDiscoveredBytes()));
+            }
             
             // Configurar compressão
             zos.setLevel(Deflater.DEFAULT_COMPRESSION);
@@ -46,120 +359,943 @@ public class CompressionService {
             
             callback.onProgress(0, "Iniciando compactação...");
             
-            for (File file : files) {
-                if (file.exists()) {
-                    if (file.isDirectory()) {
-                        addDirectoryToZip(file, file.getName(), zos, callback, totalFiles, processedFiles);
-                    } else {
-                        addFileToZip(file, file.getName(), zos, callback, totalFiles, processedFiles);
+            if (sources != null) {
+                addDeduplicatedToZip(sources, zos, job);
+            } else {
+                for (int i = 0; i < files.length; i++) {
+                    File file = files[i];
+                    if (scans[i] != null) {
+                        addDirectoryToZip(scans[i], file.getName(), zos, job);
+                    } else if (file.exists()) {
+                        addFileToZip(file, file.getName(), file.length(), file.lastModified(), zos, job);
                     }
                 }
             }
             
+            if (options.isManifestEnabled()
+                    && options.getManifestTarget() == CompressionOptions.ManifestTarget.ENTRY) {
+                addManifestToZip(zos, job);
+            }
+            
             callback.onProgress(100, "Finalizando arquivo...");
             zos.finish();
+            
+            if (options.isManifestEnabled()
+                    && options.getManifestTarget() == CompressionOptions.ManifestTarget.SIDECAR) {
+                manifest = manifestBytes(job);
+            }
+        }
+        
+        if (manifest != null) {
+            File sidecar = new File(outputFile.getAbsolutePath() + CompressionOptions.MANIFEST_SIDECAR_SUFFIX);
+            Files.write(sidecar.toPath(), manifest);
+        }
+        
+        callback.onProgress(100, "Compactação concluída!");
+    }
+    
+    /**
+     * Abre o arquivo de saída, ou o primeiro volume se as opções pedirem divisão
+     */
+    private static OutputStream openOutput(File outputFile, CompressionOptions options) throws IOException {
+        if (options.getVolumeSize() > 0) {
+            return Channels.newOutputStream(new VolumeWriter(outputFile, options.getVolumeSize()));
+        }
+        return new FileOutputStream(outputFile);
+    }
+    
+    /**
+     * Grava os arquivos e pastas como um fluxo TAR, sem fechar o stream de saída.
+     * 
+     * As pastas são percorridas pelo {@link DirectoryScanner} e cada arquivo é copiado
+     * com um buffer fixo. Como a gravação é bloqueante, um consumidor lento (um pipe,
+     * por exemplo) limita o ritmo da leitura sem acúmulo de dados em memória. O
+     * manifesto, se habilitado, é sempre gravado como entrada, já que não há um
+     * arquivo de saída ao lado do qual gravá-lo.
+     * 
+     * @param files Array de arquivos e pastas para incluir
+     * @param out Stream que recebe o TAR
+     * @param options Opções de compactação
+     * @param callback Callback para atualização do progresso
+     * @throws IOException Se ocorrer erro na leitura ou na gravação
+     */
+    public void writeTar(File[] files, OutputStream out, CompressionOptions options,
+                         ProgressCallback callback) throws IOException {
+        if (files == null || files.length == 0) {
+            throw new IllegalArgumentException("Nenhum arquivo ou pasta especificado");
+        }
+        
+        try (DirectoryScanner scanner = new DirectoryScanner(options.getResourceLimits())) {
+            TarArchiveOutputStream tos = new TarArchiveOutputStream(out);
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tos.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            
+            DirectoryScanner.Scan[] scans = new DirectoryScanner.Scan[files.length];
+            int directFiles = 0;
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].isDirectory()) {
+                    scans[i] = scanner.start(files[i].toPath());
+                } else if (files[i].exists()) {
+                    directFiles++;
+                }
+            }
+            CompressionJob job = new CompressionJob(options, callback, scanner, directFiles);
+            
+            callback.onProgress(0, "Iniciando compactação...");
+            
+            for (int i = 0; i < files.length; i++) {
+                File file = files[i];
+                if (scans[i] != null) {
+                    String baseName = file.getName();
+                    addTarEntry(baseName, null, 0, file.lastModified(), tos, job);
+                    scans[i].forEach(item -> addTarEntry(baseName + "/" + item.getRelativePath(),
+                        item.isDirectory() ? null : item.getPath().toFile(),
+                        item.getSize(), item.getLastModified(), tos, job));
+                } else if (file.exists()) {
+                    addTarEntry(file.getName(), file, file.length(), file.lastModified(), tos, job);
+                }
+            }
+            
+            if (options.isManifestEnabled()) {
+                byte[] content = manifestBytes(job);
+                TarArchiveEntry entry = new TarArchiveEntry(CompressionOptions.MANIFEST_ENTRY_NAME);
+                entry.setSize(content.length);
+                entry.setModTime(System.currentTimeMillis());
+                tos.putArchiveEntry(entry);
+                tos.write(content);
+                tos.closeArchiveEntry();
+            }
+            
+            tos.finish();
+            tos.flush();
+        }
+        
+        callback.onProgress(100, "Compactação concluída!");
+    }
+    
+    /**
+     * Grava uma entrada TAR; sem arquivo de origem, a entrada é uma pasta
+     */
+    private void addTarEntry(String entryName, File file, long size, long lastModified,
+                             TarArchiveOutputStream tos, CompressionJob job) throws IOException {
+        if (file == null) {
+            TarArchiveEntry entry = new TarArchiveEntry(entryName + "/");
+            entry.setModTime(lastModified);
+            tos.putArchiveEntry(entry);
+            tos.closeArchiveEntry();
+            return;
+        }
+        
+        job.callback.onProgress(job.progress(), "Compactando: " + file.getName());
+        
+        List<DigestAlgorithm.Digest> digests = new ArrayList<>();
+        for (DigestAlgorithm algorithm : job.options.getDigests()) {
+            digests.add(algorithm.newDigest());
+        }
+        
+        if (job.options.isSparse() && size >= SPARSE_MIN_SIZE) {
+            try (SparseScan scan = findDataRegions(file, size, digests, job)) {
+                if (scan.holeBytes >= SPARSE_MIN_HOLE_SIZE) {
+                    addSparseTarEntry(entryName, size, lastModified, scan, tos);
+                } else {
+                    // Poucos blocos zerados: entrada comum, remontada com os dados já lidos
+                    addExpandedTarEntry(entryName, size, lastModified, scan, tos);
+                }
+            }
+            addManifestLines(entryName, digests, job);
+            return;
+        }
+        
+        TarArchiveEntry entry = new TarArchiveEntry(entryName);
+        entry.setSize(size);
+        entry.setModTime(lastModified);
+        tos.putArchiveEntry(entry);
+        
+        try (InputStream fis = job.options.getResourceLimits().throttle(new FileInputStream(file))) {
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = size;
+            int bytesRead;
+            
+            // O tamanho do cabeçalho já foi gravado: um arquivo que cresceu é truncado
+            while (remaining > 0 && (bytesRead = fis.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                tos.write(buffer, 0, bytesRead);
+                for (DigestAlgorithm.Digest digest : digests) {
+                    digest.update(buffer, 0, bytesRead);
+                }
+                remaining -= bytesRead;
+            }
+            
+            if (remaining > 0) {
+                throw new IOException("Arquivo diminuiu durante a leitura: " + file);
+            }
+        }
+        
+        tos.closeArchiveEntry();
+        addManifestLines(entryName, digests, job);
+    }
+    
+    /**
+     * Regiões com dados de um arquivo analisado para gravação esparsa, com uma cópia
+     * desses dados feita na própria análise para que o arquivo seja lido uma única
+     * vez. A cópia fica em memória até {@link #IN_MEMORY_PAYLOAD_LIMIT} e passa
+     * depois para um arquivo temporário.
+     */
+    private static class SparseScan implements Closeable {
+        /**
+         * Regiões como {posição, tamanho}, terminando em uma região vazia no fim do
+         * arquivo quando ele termina em buraco
+         */
+        final List<long[]> regions = new ArrayList<>();
+        long holeBytes;
+        long dataBytes;
+        private final File tempDir;
+        private final ResourceLimits limits;
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File spillFile;
+        private OutputStream spill;
+        
+        SparseScan(File tempDir, ResourceLimits limits) {
+            this.tempDir = tempDir;
+            this.limits = limits;
+        }
+        
+        void write(byte[] data, int offset, int length) throws IOException {
+            if (spill == null && memory.size() + length > IN_MEMORY_PAYLOAD_LIMIT) {
+                spillFile = File.createTempFile("javawinzip", ".sparse", tempDir);
+                spill = new BufferedOutputStream(limits.throttle(new FileOutputStream(spillFile)));
+                memory.writeTo(spill);
+                memory = null;
+            }
+            (spill != null ? spill : memory).write(data, offset, length);
+            dataBytes += length;
+        }
+        
+        /**
+         * Dados das regiões, na ordem, concatenados
+         */
+        InputStream openData() throws IOException {
+            if (spill == null) {
+                return new ByteArrayInputStream(memory.toByteArray());
+            }
+            spill.close();
+            return limits.throttle(new FileInputStream(spillFile));
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (spill != null) {
+                try {
+                    spill.close();
+                } finally {
+                    spillFile.delete();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Lê o arquivo procurando blocos inteiramente zerados, calculando os hashes e
+     * guardando os blocos com dados na mesma leitura
+     */
+    private SparseScan findDataRegions(File file, long size, List<DigestAlgorithm.Digest> digests,
+                                       CompressionJob job) throws IOException {
+        ResourceLimits limits = job.options.getResourceLimits();
+        SparseScan scan = new SparseScan(job.tempDir, limits);
+        List<long[]> regions = scan.regions;
+        byte[] buffer = new byte[16 * SPARSE_BLOCK_SIZE];
+        long regionStart = -1;
+        long position = 0;
+        
+        try (InputStream in = limits.throttle(new FileInputStream(file))) {
+            while (position < size) {
+                // Blocos alinhados: o buffer é sempre preenchido por inteiro, exceto no fim
+                int length = (int) Math.min(buffer.length, size - position);
+                int filled = 0;
+                while (filled < length) {
+                    int read = in.read(buffer, filled, length - filled);
+                    if (read < 0) {
+                        throw new IOException("Arquivo diminuiu durante a leitura: " + file);
+                    }
+                    filled += read;
+                }
+                for (DigestAlgorithm.Digest digest : digests) {
+                    digest.update(buffer, 0, length);
+                }
+                
+                for (int offset = 0; offset < length; offset += SPARSE_BLOCK_SIZE) {
+                    int blockLength = Math.min(SPARSE_BLOCK_SIZE, length - offset);
+                    long blockStart = position + offset;
+                    if (Arrays.mismatch(buffer, offset, offset + blockLength, ZERO_BLOCK, 0, blockLength) < 0) {
+                        if (regionStart >= 0) {
+                            regions.add(new long[] {regionStart, blockStart - regionStart});
+                            regionStart = -1;
+                        }
+                        scan.holeBytes += blockLength;
+                    } else {
+                        if (regionStart < 0) {
+                            regionStart = blockStart;
+                        }
+                        scan.write(buffer, offset, blockLength);
+                    }
+                }
+                position += length;
+            }
+        } catch (IOException | RuntimeException e) {
+            scan.close();
+            throw e;
+        }
+        
+        if (regionStart >= 0) {
+            regions.add(new long[] {regionStart, size - regionStart});
+        } else {
+            regions.add(new long[] {size, 0});
+        }
+        return scan;
+    }
+    
+    /**
+     * Grava uma entrada esparsa PAX 1.0: o mapa de regiões em texto, completado até
+     * o bloco de 512 bytes, seguido apenas dos dados das regiões não zeradas
+     */
+    private void addSparseTarEntry(String entryName, long size, long lastModified,
+                                   SparseScan scan, TarArchiveOutputStream tos) throws IOException {
+        StringBuilder map = new StringBuilder().append(scan.regions.size()).append('\n');
+        for (long[] region : scan.regions) {
+            map.append(region[0]).append('\n').append(region[1]).append('\n');
+        }
+        byte[] mapBytes = map.toString().getBytes(StandardCharsets.US_ASCII);
+        int mapSize = (mapBytes.length + 511) / 512 * 512;
+        
+        SparseTarEntry entry = new SparseTarEntry(entryName, size);
+        entry.setSize(mapSize + scan.dataBytes);
+        entry.setModTime(lastModified);
+        tos.putArchiveEntry(entry);
+        tos.write(mapBytes);
+        tos.write(new byte[mapSize - mapBytes.length]);
+        
+        try (InputStream data = scan.openData()) {
+            copyTarData(data, scan.dataBytes, tos);
+        }
+        
+        tos.closeArchiveEntry();
+    }
+    
+    /**
+     * Grava uma entrada TAR comum a partir dos dados guardados na análise,
+     * preenchendo com zeros os blocos que ficaram de fora
+     */
+    private void addExpandedTarEntry(String entryName, long size, long lastModified,
+                                     SparseScan scan, TarArchiveOutputStream tos) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(entryName);
+        entry.setSize(size);
+        entry.setModTime(lastModified);
+        tos.putArchiveEntry(entry);
+        
+        try (InputStream data = scan.openData()) {
+            long position = 0;
+            for (long[] region : scan.regions) {
+                for (long zeros = region[0] - position; zeros > 0; zeros -= SPARSE_BLOCK_SIZE) {
+                    tos.write(ZERO_BLOCK, 0, (int) Math.min(SPARSE_BLOCK_SIZE, zeros));
+                }
+                copyTarData(data, region[1], tos);
+                position = region[0] + region[1];
+            }
+        }
+        
+        tos.closeArchiveEntry();
+    }
+    
+    /**
+     * Copia exatamente length bytes dos dados guardados para a entrada aberta
+     */
+    private static void copyTarData(InputStream data, long length, TarArchiveOutputStream tos)
+            throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Dados das regiões esparsas incompletos");
+            }
+            tos.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+    
+    /**
+     * Conta o arquivo como processado e registra as linhas de manifesto da entrada
+     */
+    private void addManifestLines(String entryName, List<DigestAlgorithm.Digest> digests, CompressionJob job) {
+        job.processedFiles.incrementAndGet();
+        
+        int i = 0;
+        for (DigestAlgorithm algorithm : job.options.getDigests()) {
+            job.manifest.add(algorithm.getTag() + " (" + entryName + ") = " + digests.get(i++).toHex());
+        }
+    }
+    
+    /**
+     * Compacta em um arquivo 7z sólido com LZMA2.
+     * 
+     * Os arquivos são ordenados por extensão e pasta, para que conteúdos parecidos
+     * fiquem próximos no mesmo bloco e melhorem a taxa de compressão, e dentro de
+     * cada pasta por inode, que aproxima a ordem física no disco. A lista ordenada
+     * é dividida em blocos sólidos de {@link CompressionOptions#getSolidBlockSize()}
+     * bytes, compactados em paralelo em arquivos temporários e copiados para a
+     * saída na ordem original.
+     */
+    private void compressTo7z(File[] files, File outputFile, CompressionOptions options,
+                              ProgressCallback callback) throws IOException {
+        List<SourceFile> sources = new ArrayList<>();
+        List<SolidSevenZWriter.Entry> emptyEntries = new ArrayList<>();
+        
+        callback.onProgress(-1, "Listando arquivos...");
+        
+        try (DirectoryScanner scanner = new DirectoryScanner(options.getResourceLimits())) {
+            for (SourceFile source : collectSources(files, scanner)) {
+                if (source.directory || source.size == 0) {
+                    emptyEntries.add(new SolidSevenZWriter.Entry(source.entryName, source.directory,
+                        0, 0, source.lastModified));
+                } else {
+                    sources.add(source);
+                }
+            }
+        }
+        
+        sources.sort(Comparator.<SourceFile, String>comparing(s -> s.extension)
+            .thenComparing(s -> s.parentPath)
+            .thenComparingLong(s -> s.inode)
+            .thenComparing(s -> s.entryName));
+        
+        List<List<SourceFile>> blocks = new ArrayList<>();
+        List<SourceFile> current = new ArrayList<>();
+        long currentSize = 0;
+        long largestBlock = 0;
+        for (SourceFile source : sources) {
+            current.add(source);
+            currentSize += source.size;
+            largestBlock = Math.max(largestBlock, currentSize);
+            if (currentSize >= options.getSolidBlockSize()) {
+                blocks.add(current);
+                current = new ArrayList<>();
+                currentSize = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            blocks.add(current);
+        }
+        
+        CompressionJob job = new CompressionJob(options, callback, null, sources.size());
+        File tempDir = outputFile.getAbsoluteFile().getParentFile();
+        
+        callback.onProgress(0, "Iniciando compactação de " + blocks.size() + " bloco(s) sólido(s)...");
+        
+        // Cada bloco em andamento ocupa um codificador LZMA2 inteiro
+        int threads = MemoryBudget.getDefault().workers(
+            options.getResourceLimits().limitThreads(options.getThreads()),
+            solidBlockOptions(largestBlock).getEncoderMemoryUsage() * 1024L, "compactação 7z");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, blocks.size())));
+        List<Future<PackedBlock>> futures = new ArrayList<>();
+        try {
+            for (List<SourceFile> block : blocks) {
+                futures.add(executor.submit(() -> compressSolidBlock(block, tempDir, job)));
+            }
+            
+            try (SolidSevenZWriter writer = options.getVolumeSize() > 0
+                     ? new SolidSevenZWriter(new VolumeWriter(outputFile, options.getVolumeSize()),
+                         options.getResourceLimits())
+                     : new SolidSevenZWriter(outputFile, options.getResourceLimits())) {
+                for (SolidSevenZWriter.Entry entry : emptyEntries) {
+                    writer.addEmptyEntry(entry);
+                }
+                
+                for (Future<PackedBlock> future : futures) {
+                    PackedBlock packed = awaitBlock(future);
+                    try {
+                        writer.addBlock(packed.block);
+                    } finally {
+                        packed.packedFile.delete();
+                    }
+                    job.manifest.addAll(packed.manifest);
+                }
+                
+                if (options.isManifestEnabled()
+                        && options.getManifestTarget() == CompressionOptions.ManifestTarget.ENTRY) {
+                    addManifestTo7z(writer, tempDir, job);
+                }
+                
+                callback.onProgress(100, "Finalizando arquivo...");
+            }
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Remover blocos já compactados que não chegaram a ser copiados
+            for (Future<PackedBlock> future : futures) {
+                if (future.isDone() && !future.isCancelled()) {
+                    try {
+                        future.get().packedFile.delete();
+                    } catch (InterruptedException | ExecutionException e) {
+                        // Tarefa sem arquivo temporário
+                    }
+                }
+            }
+        }
+        
+        if (options.isManifestEnabled()
+                && options.getManifestTarget() == CompressionOptions.ManifestTarget.SIDECAR) {
+            File sidecar = new File(outputFile.getAbsolutePath() + CompressionOptions.MANIFEST_SIDECAR_SUFFIX);
+            Files.write(sidecar.toPath(), manifestBytes(job));
         }
         
         callback.onProgress(100, "Compactação concluída!");
     }
     
     /**
-     * Adiciona um arquivo ao ZIP
+     * Compacta os arquivos de um bloco em sequência, em um único fluxo LZMA2 gravado
+     * em um arquivo temporário, calculando o CRC32 de cada entrada
      */
-    private void addFileToZip(File file, String entryName, ZipArchiveOutputStream zos, 
-                             ProgressCallback callback, int totalFiles, int[] processedFiles) throws IOException {
+    private PackedBlock compressSolidBlock(List<SourceFile> sources, File tempDir,
+                                           CompressionJob job) throws IOException {
+        long blockSize = 0;
+        for (SourceFile source : sources) {
+            blockSize += source.size;
+        }
+        
+        LZMA2Options lzma2Options = solidBlockOptions(blockSize);
+        // O codificador ocupa a reserva enquanto o bloco é compactado
+        MemoryBudget.Reservation reservation = MemoryBudget.getDefault().reserve(
+            lzma2Options.getEncoderMemoryUsage() * 1024L, "compactação 7z");
+        File packedFile;
+        try {
+            packedFile = File.createTempFile("javawinzip", ".7zblock", tempDir);
+        } catch (IOException e) {
+            reservation.close();
+            throw e;
+        }
+        List<SolidSevenZWriter.Entry> entries = new ArrayList<>();
+        List<String> manifest = new ArrayList<>();
+        byte[] buffer = new byte[64 * 1024];
         
-        callback.onProgress(
-            (processedFiles[0] * 100) / totalFiles,
-            "Compactando: " + file.getName()
-        );
+        ResourceLimits limits = job.options.getResourceLimits();
+        try (OutputStream fos = limits.throttle(new FileOutputStream(packedFile));
+             FinishableOutputStream lzma2 = lzma2Options.getOutputStream(
+                 new FinishableWrapperOutputStream(new BufferedOutputStream(fos)))) {
+            
+            for (SourceFile source : sources) {
+                job.callback.onProgress(job.progress(), "Compactando: " + source.file.getName());
+                
+                List<DigestAlgorithm.Digest> digests = new ArrayList<>();
+                for (DigestAlgorithm algorithm : job.options.getDigests()) {
+                    digests.add(algorithm.newDigest());
+                }
+                CRC32 crc = new CRC32();
+                long size = 0;
+                
+                try (InputStream fis = limits.throttle(new FileInputStream(source.file))) {
+                    int bytesRead;
+                    while ((bytesRead = fis.read(buffer)) != -1) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedIOException("Compactação interrompida");
+                        }
+                        lzma2.write(buffer, 0, bytesRead);
+                        crc.update(buffer, 0, bytesRead);
+                        for (DigestAlgorithm.Digest digest : digests) {
+                            digest.update(buffer, 0, bytesRead);
+                        }
+                        size += bytesRead;
+                    }
+                }
+                
+                entries.add(new SolidSevenZWriter.Entry(source.entryName, false, size, crc.getValue(),
+                    source.lastModified));
+                int i = 0;
+                for (DigestAlgorithm algorithm : job.options.getDigests()) {
+                    manifest.add(algorithm.getTag() + " (" + source.entryName + ") = " + digests.get(i++).toHex());
+                }
+                job.processedFiles.incrementAndGet();
+            }
+            
+            lzma2.finish();
+        } catch (IOException | RuntimeException e) {
+            packedFile.delete();
+            throw e;
+        } finally {
+            reservation.close();
+        }
+        
+        return new PackedBlock(new SolidSevenZWriter.Block(packedFile, lzma2Options.getDictSize(), entries),
+            packedFile, manifest);
+    }
+    
+    /**
+     * Opções LZMA2 de um bloco sólido; dicionário maior que o bloco só ocupa memória
+     */
+    private static LZMA2Options solidBlockOptions(long blockSize) throws IOException {
+        LZMA2Options lzma2Options = new LZMA2Options();
+        lzma2Options.setDictSize((int) Math.min(lzma2Options.getDictSize(),
+            Math.max(LZMA2Options.DICT_SIZE_MIN, Long.highestOneBit(Math.max(1, blockSize - 1)) << 1)));
+        return lzma2Options;
+    }
+    
+    /**
+     * Grava o manifesto de hashes como uma entrada do 7z, em um bloco próprio
+     */
+    private void addManifestTo7z(SolidSevenZWriter writer, File tempDir, CompressionJob job) throws IOException {
+        File manifestFile = File.createTempFile("javawinzip", ".checksums", tempDir);
+        try {
+            Files.write(manifestFile.toPath(), manifestBytes(job));
+            SourceFile source = new SourceFile(manifestFile, CompressionOptions.MANIFEST_ENTRY_NAME, false,
+                manifestFile.length(), System.currentTimeMillis(), -1, -1);
+            
+            CompressionOptions noDigests = new CompressionOptions();
+            CompressionJob manifestJob = new CompressionJob(noDigests, job.callback, null, 1);
+            PackedBlock packed = compressSolidBlock(List.of(source), tempDir, manifestJob);
+            try {
+                writer.addBlock(packed.block);
+            } finally {
+                packed.packedFile.delete();
+            }
+        } finally {
+            manifestFile.delete();
+        }
+    }
+    
+    /**
+     * Lista todos os arquivos e pastas de origem, na ordem em que seriam compactados
+     */
+    private List<SourceFile> collectSources(File[] files, DirectoryScanner scanner) throws IOException {
+        List<SourceFile> sources = new ArrayList<>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                String baseName = file.getName();
+                scanner.scan(file.toPath(), item -> sources.add(new SourceFile(item.getPath().toFile(),
+                    baseName + "/" + item.getRelativePath(), item.isDirectory(), item.getSize(),
+                    item.getLastModified(), item.getDevice(), item.getInode())));
+            } else if (file.exists()) {
+                sources.add(new SourceFile(file, file.getName(), false, file.length(), file.lastModified(), -1, -1));
+            }
+        }
+        return sources;
+    }
+    
+    private static PackedBlock awaitBlock(Future<PackedBlock> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compactação interrompida");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+    
+    /**
+     * Adiciona um arquivo ao ZIP, usando o tamanho e a data já obtidos na listagem
+     */
+    private void addFileToZip(File file, String entryName, long size, long lastModified,
+                             LevelAdjustableZipOutputStream zos, CompressionJob job) throws IOException {
+        
+        job.callback.onProgress(job.progress(), "Compactando: " + file.getName());
         
         ZipArchiveEntry entry = new ZipArchiveEntry(entryName);
-        entry.setSize(file.length());
-        entry.setTime(file.lastModified());
+        entry.setSize(size);
+        entry.setTime(lastModified);
         zos.putArchiveEntry(entry);
         
-        try (FileInputStream fis = new FileInputStream(file);
+        AdaptiveCompressionLevel.Sample sample = job.adaptiveLevel != null
+            ? job.adaptiveLevel.begin(zos.getDeflater()) : null;
+        
+        List<DigestAlgorithm.Digest> digests = new ArrayList<>();
+        for (DigestAlgorithm algorithm : job.options.getDigests()) {
+            digests.add(algorithm.newDigest());
+        }
+        
+        try (InputStream fis = job.options.getResourceLimits().throttle(new FileInputStream(file));
              BufferedInputStream bis = new BufferedInputStream(fis)) {
             
             byte[] buffer = new byte[8192];
             int bytesRead;
             
             while ((bytesRead = bis.read(buffer)) != -1) {
-                zos.write(buffer, 0, bytesRead);
+                if (sample != null) {
+                    long start = System.nanoTime();
+                    zos.write(buffer, 0, bytesRead);
+                    sample.written(System.nanoTime() - start);
+                } else {
+                    zos.write(buffer, 0, bytesRead);
+                }
+                for (DigestAlgorithm.Digest digest : digests) {
+                    digest.update(buffer, 0, bytesRead);
+                }
             }
         }
         
+        long start = System.nanoTime();
         zos.closeArchiveEntry();
-        processedFiles[0]++;
+        if (sample != null) {
+            sample.finish(entry.getSize(), entry.getCompressedSize(), System.nanoTime() - start);
+        }
+        job.processedFiles.incrementAndGet();
+        
+        int i = 0;
+        for (DigestAlgorithm algorithm : job.options.getDigests()) {
+            job.manifest.add(algorithm.getTag() + " (" + entryName + ") = " + digests.get(i++).toHex());
+        }
     }
     
     /**
-     * Adiciona uma pasta ao ZIP recursivamente
+     * Adiciona os arquivos ao ZIP compactando uma única vez cada conteúdo repetido.
+     * 
+     * A primeira ocorrência de um conteúdo repetido é compactada com Deflate em um
+     * buffer, e os bytes compactados são gravados sem recompressão, com
+     * addRawArchiveEntry, nela e em todas as duplicatas, que não chegam a ser lidas.
      */
-    private void addDirectoryToZip(File dir, String baseName, ZipArchiveOutputStream zos,
-                                  ProgressCallback callback, int totalFiles, int[] processedFiles) throws IOException {
+    private void addDeduplicatedToZip(List<SourceFile> sources, LevelAdjustableZipOutputStream zos,
+                                      CompressionJob job) throws IOException {
+        job.callback.onProgress(-1, "Procurando arquivos duplicados...");
+        Map<SourceFile, SourceFile> originals = findDuplicates(sources, job.options.getResourceLimits());
         
-        Path dirPath = dir.toPath();
+        // Quantas duplicatas ainda faltam gravar para cada conteúdo original
+        Map<SourceFile, Integer> pendingCopies = new IdentityHashMap<>();
+        for (SourceFile original : originals.values()) {
+            pendingCopies.merge(original, 1, Integer::sum);
+        }
         
-        Files.walkFileTree(dirPath, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                String relativePath = baseName + "/" + dirPath.relativize(file).toString().replace('\\', '/');
-                addFileToZip(file.toFile(), relativePath, zos, callback, totalFiles, processedFiles);
-                return FileVisitResult.CONTINUE;
-            }
-            
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                if (!dir.equals(dirPath)) {
-                    String relativePath = baseName + "/" + dirPath.relativize(dir).toString().replace('\\', '/') + "/";
-                    
-                    ZipArchiveEntry entry = new ZipArchiveEntry(relativePath);
-                    entry.setTime(dir.toFile().lastModified());
+        Map<SourceFile, RawPayload> payloads = new IdentityHashMap<>();
+        try {
+            for (SourceFile source : sources) {
+                if (source.directory) {
+                    ZipArchiveEntry entry = new ZipArchiveEntry(source.entryName + "/");
+                    entry.setTime(source.lastModified);
                     zos.putArchiveEntry(entry);
                     zos.closeArchiveEntry();
+                    continue;
+                }
+                
+                SourceFile original = originals.get(source);
+                if (original != null) {
+                    job.callback.onProgress(job.progress(), "Reutilizando: " + source.file.getName());
+                    addRawToZip(source, payloads.get(original), zos, job);
+                    if (pendingCopies.merge(original, -1, Integer::sum) == 0) {
+                        payloads.remove(original).release();
+                    }
+                } else if (pendingCopies.containsKey(source)) {
+                    job.callback.onProgress(job.progress(), "Compactando: " + source.file.getName());
+                    RawPayload payload = deflate(source, job);
+                    payloads.put(source, payload);
+                    addRawToZip(source, payload, zos, job);
+                } else {
+                    addFileToZip(source.file, source.entryName, source.size, source.lastModified, zos, job);
                 }
-                return FileVisitResult.CONTINUE;
+            }
+        } finally {
+            for (RawPayload payload : payloads.values()) {
+                payload.release();
+            }
+        }
+    }
+    
+    /**
+     * Associa cada arquivo duplicado à primeira ocorrência do mesmo conteúdo.
+     * 
+     * Somente arquivos com o mesmo tamanho de outro são lidos para o cálculo do
+     * SHA-256; hard links (mesmo dispositivo e inode) são reconhecidos sem leitura.
+     */
+    private Map<SourceFile, SourceFile> findDuplicates(List<SourceFile> sources, ResourceLimits limits) {
+        Map<Long, List<SourceFile>> bySize = new LinkedHashMap<>();
+        for (SourceFile source : sources) {
+            if (!source.directory && source.size > 0) {
+                bySize.computeIfAbsent(source.size, size -> new ArrayList<>()).add(source);
+            }
+        }
+        
+        Map<SourceFile, SourceFile> originals = new IdentityHashMap<>();
+        byte[] buffer = new byte[64 * 1024];
+        
+        for (List<SourceFile> group : bySize.values()) {
+            if (group.size() < 2) {
+                continue;
             }
             
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-                System.err.println("Erro ao processar arquivo: " + file + " - " + exc.getMessage());
-                return FileVisitResult.CONTINUE;
+            Map<String, SourceFile> byInode = new HashMap<>();
+            Map<String, SourceFile> byContent = new HashMap<>();
+            
+            for (SourceFile source : group) {
+                String inodeKey = source.inode >= 0 ? source.device + ":" + source.inode : null;
+                SourceFile original = inodeKey != null ? byInode.get(inodeKey) : null;
+                
+                if (original == null) {
+                    DigestAlgorithm.Digest digest = DigestAlgorithm.SHA_256.newDigest();
+                    try (InputStream fis = limits.throttle(new FileInputStream(source.file))) {
+                        int bytesRead;
+                        while ((bytesRead = fis.read(buffer)) != -1) {
+                            digest.update(buffer, 0, bytesRead);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Erro ao processar arquivo: " + source.file + " - " + e.getMessage());
+                        continue;
+                    }
+                    original = byContent.putIfAbsent(digest.toHex(), source);
+                }
+                
+                if (original != null) {
+                    originals.put(source, original);
+                }
+                if (inodeKey != null) {
+                    byInode.putIfAbsent(inodeKey, original != null ? original : source);
+                }
             }
-        });
+        }
+        
+        return originals;
     }
     
     /**
-     * Conta o número total de arquivos para calcular o progresso
+     * Compacta o conteúdo de um arquivo com Deflate puro (sem cabeçalho zlib), no
+     * formato esperado por uma entrada ZIP, calculando CRC32 e hashes na mesma leitura
      */
-    private int countFiles(File[] files) {
-        int count = 0;
-        for (File file : files) {
-            if (file.exists()) {
-                if (file.isDirectory()) {
-                    count += countFilesInDirectory(file);
+    private RawPayload deflate(SourceFile source, CompressionJob job) throws IOException {
+        List<DigestAlgorithm.Digest> digests = new ArrayList<>();
+        for (DigestAlgorithm algorithm : job.options.getDigests()) {
+            digests.add(algorithm.newDigest());
+        }
+        CRC32 crc = new CRC32();
+        long size = 0;
+        
+        // Os conteúdos em memória esperam pelas duplicatas e se acumulam: cada um é
+        // descontado do limite de memória e vai para o disco quando não cabe
+        MemoryBudget.Reservation reservation = source.size <= IN_MEMORY_PAYLOAD_LIMIT
+            ? MemoryBudget.getDefault().tryReserve(source.size) : null;
+        File spillFile = reservation == null
+            ? File.createTempFile("javawinzip", ".deflate", job.tempDir) : null;
+        ByteArrayOutputStream memory = spillFile == null ? new ByteArrayOutputStream() : null;
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        AdaptiveCompressionLevel.Sample sample = job.adaptiveLevel != null ? job.adaptiveLevel.begin(deflater) : null;
+        
+        try (OutputStream sink = spillFile != null
+                 ? new BufferedOutputStream(job.options.getResourceLimits().throttle(new FileOutputStream(spillFile)))
+                 : memory;
+             DeflaterOutputStream dos = new DeflaterOutputStream(sink, deflater, 64 * 1024);
+             InputStream fis = job.options.getResourceLimits().throttle(new FileInputStream(source.file))) {
+            
+            byte[] buffer = new byte[64 * 1024];
+            int bytesRead;
+            while ((bytesRead = fis.read(buffer)) != -1) {
+                if (sample != null) {
+                    long start = System.nanoTime();
+                    dos.write(buffer, 0, bytesRead);
+                    sample.written(System.nanoTime() - start);
                 } else {
-                    count++;
+                    dos.write(buffer, 0, bytesRead);
+                }
+                crc.update(buffer, 0, bytesRead);
+                for (DigestAlgorithm.Digest digest : digests) {
+                    digest.update(buffer, 0, bytesRead);
                 }
+                size += bytesRead;
             }
+        } catch (IOException | RuntimeException e) {
+            if (spillFile != null) {
+                spillFile.delete();
+            }
+            if (reservation != null) {
+                reservation.close();
+            }
+            throw e;
+        } finally {
+            deflater.end();
         }
-        return count;
+        
+        List<String> hexDigests = new ArrayList<>();
+        for (DigestAlgorithm.Digest digest : digests) {
+            hexDigests.add(digest.toHex());
+        }
+        
+        long compressedSize = spillFile != null ? spillFile.length() : memory.size();
+        if (sample != null) {
+            sample.finish(size, compressedSize, 0);
+        }
+        return new RawPayload(size, compressedSize, crc.getValue(), hexDigests,
+            memory != null ? memory.toByteArray() : null, spillFile, reservation);
     }
     
     /**
-     * Conta arquivos em uma pasta recursivamente
+     * Grava uma entrada ZIP com bytes já compactados
      */
-    private int countFilesInDirectory(File dir) {
-        int count = 0;
-        try {
-            count = (int) Files.walk(dir.toPath())
-                .filter(Files::isRegularFile)
-                .count();
-        } catch (IOException e) {
-            System.err.println("Erro ao contar arquivos em: " + dir + " - " + e.getMessage());
+    private void addRawToZip(SourceFile source, RawPayload payload, ZipArchiveOutputStream zos,
+                             CompressionJob job) throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(source.entryName);
+        entry.setMethod(ZipArchiveOutputStream.DEFLATED);
+        entry.setSize(payload.size);
+        entry.setCompressedSize(payload.compressedSize);
+        entry.setCrc(payload.crc);
+        entry.setTime(source.lastModified);
+        
+        try (InputStream in = payload.open()) {
+            zos.addRawArchiveEntry(entry, in);
+        }
+        job.processedFiles.incrementAndGet();
+        
+        int i = 0;
+        for (DigestAlgorithm algorithm : job.options.getDigests()) {
+            job.manifest.add(algorithm.getTag() + " (" + source.entryName + ") = " + payload.digests.get(i++));
         }
-        return count;
+    }
+    
+    /**
+     * Grava o manifesto de hashes como uma entrada do ZIP
+     */
+    private void addManifestToZip(ZipArchiveOutputStream zos, CompressionJob job) throws IOException {
+        byte[] content = manifestBytes(job);
+        
+        ZipArchiveEntry entry = new ZipArchiveEntry(CompressionOptions.MANIFEST_ENTRY_NAME);
+        entry.setSize(content.length);
+        entry.setTime(System.currentTimeMillis());
+        zos.putArchiveEntry(entry);
+        zos.write(content);
+        zos.closeArchiveEntry();
+    }
+    
+    /**
+     * Conteúdo do manifesto no formato "TAG (entrada) = hash", uma linha por hash
+     */
+    private byte[] manifestBytes(CompressionJob job) {
+        StringBuilder content = new StringBuilder();
+        for (String line : job.manifest) {
+            content.append(line).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Adiciona uma pasta ao ZIP recursivamente, consumindo a varredura na ordem
+     * em que as listagens ficam prontas
+     */
+    private void addDirectoryToZip(DirectoryScanner.Scan scan, String baseName, LevelAdjustableZipOutputStream zos,
+                                  CompressionJob job) throws IOException {
+        
+        scan.forEach(item -> {
+            String relativePath = baseName + "/" + item.getRelativePath();
+            
+            if (item.isDirectory()) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(relativePath + "/");
+                entry.setTime(item.getLastModified());
+                zos.putArchiveEntry(entry);
+                zos.closeArchiveEntry();
+            } else {
+                addFileToZip(item.getPath().toFile(), relativePath, item.getSize(), item.getLastModified(), zos, job);
+            }
+        });
     }
 }
\ No newline at end of file
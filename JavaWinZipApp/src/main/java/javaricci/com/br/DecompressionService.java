@@ -2,20 +2,38 @@ package javaricci.com.br;
 
 //package com.javawinzip.services;
 
+import org.apache.commons.compress.MemoryLimitException;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveStructSparse;
 import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
 import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.utils.BoundedInputStream;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * Serviço responsável pela descompactação de arquivos
@@ -29,6 +47,27 @@ public class DecompressionService {
         void onProgress(int progress, String message);
     }
     
+    /**
+     * Leitura do conteúdo da entrada atual de um arquivo compactado
+     */
+    private interface EntryContent {
+        int read(byte[] buffer) throws IOException;
+    }
+    
+    private final ResourceLimits limits;
+    
+    public DecompressionService() {
+        this(new ResourceLimits());
+    }
+    
+    /**
+     * @param limits Limites de disco e CPU aplicados às leituras e gravações das
+     *               extrações; a instância pode ser compartilhada com outros serviços
+     */
+    public DecompressionService(ResourceLimits limits) {
+        this.limits = limits;
+    }
+    
     /**
      * Descompacta um arquivo para uma pasta de destino
      * 
@@ -38,6 +77,34 @@ public class DecompressionService {
      * @throws IOException Se ocorrer erro durante a descompactação
      */
     public void decompressFile(File inputFile, File outputFolder, ProgressCallback callback) throws IOException {
+        extractEntries(inputFile, outputFolder, EntryFilter.all(), callback);
+    }
+    
+    /**
+     * Extrai apenas as entradas aceitas pelo filtro.
+     * 
+     * O formato é identificado pelos bytes iniciais do arquivo (veja {@link ArchiveFormats})
+     * e o caminho de leitura segue as suas capacidades: com índice próprio, entradas
+     * pedidas pelo nome são lidas diretamente nas posições do índice; com blocos
+     * independentes, as entradas são descompactadas em paralelo; nos demais, o arquivo
+     * é lido em sequência. Formatos externos fazem a própria extração.
+     * 
+     * Em todos os formatos, uma entrada pedida pelo nome exato que não existe no
+     * arquivo gera FileNotFoundException, e as exclusões do filtro valem também para
+     * os nomes exatos. Nos formatos sequenciais o erro só é detectado ao fim da
+     * leitura, depois de extraídas as entradas encontradas.
+     * 
+     * Um volume (.001, .002, ...) extrai o conjunto inteiro, lido diretamente dos
+     * volumes (veja {@link ArchiveVolumes}).
+     * 
+     * @param inputFile Arquivo compactado
+     * @param outputFolder Pasta de destino
+     * @param filter Filtro das entradas a extrair
+     * @param callback Callback para atualização do progresso
+     * @throws IOException Se ocorrer erro durante a descompactação
+     */
+    public void extractEntries(File inputFile, File outputFolder, EntryFilter filter,
+                               ProgressCallback callback) throws IOException {
         if (!inputFile.exists()) {
             throw new FileNotFoundException("Arquivo não encontrado: " + inputFile.getAbsolutePath());
         }
@@ -46,181 +113,409 @@ public class DecompressionService {
             outputFolder.mkdirs();
         }
         
-        String fileName = inputFile.getName().toLowerCase();
-        
         callback.onProgress(0, "Analisando arquivo...");
         
-        if (fileName.endsWith(".zip")) {
-            decompressZip(inputFile, outputFolder, callback);
-        } else if (fileName.endsWith(".7z")) {
-            decompress7z(inputFile, outputFolder, callback);
-        } else if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
-            decompressTarGz(inputFile, outputFolder, callback);
-        } else if (fileName.endsWith(".tar")) {
-            decompressTar(inputFile, outputFolder, callback);
-        } else if (fileName.endsWith(".gz")) {
-            decompressGz(inputFile, outputFolder, callback);
-        } else {
-            throw new UnsupportedOperationException("Formato de arquivo não suportado: " + fileName);
+        ArchiveFormat format = ArchiveFormats.detect(inputFile);
+        if (format == null) {
+            throw new UnsupportedOperationException("Formato de arquivo não suportado: " + inputFile.getName());
+        }
+        if (format.getType() == null) {
+            format.extract(inputFile, outputFolder, filter, callback);
+            return;
+        }
+        
+        if (format.has(ArchiveFormat.Capability.RANDOM_ACCESS)
+                && decompressFromIndex(inputFile, format.getType(), outputFolder, filter, callback)) {
+            return;
+        }
+        if (format.has(ArchiveFormat.Capability.PARALLEL_DECODE)) {
+            decompressParallel(inputFile, format.getType(), outputFolder, filter, callback);
+            return;
+        }
+        
+        switch (format.getType()) {
+            case ZIP:
+                decompressZip(inputFile, outputFolder, filter, callback);
+                break;
+            case SEVEN_Z:
+                decompress7z(inputFile, outputFolder, filter, callback);
+                break;
+            case TAR_GZ:
+                decompressTarGz(inputFile, outputFolder, filter, callback);
+                break;
+            case TAR:
+                decompressTar(inputFile, outputFolder, filter, callback);
+                break;
+            default:
+                decompressGz(inputFile, outputFolder, filter, callback);
+                break;
         }
     }
     
     /**
-     * Descompacta arquivo ZIP
+     * Extrai um fluxo TAR recebido por stream, por exemplo da entrada padrão.
+     * O stream é lido em sequência com um buffer fixo e não é fechado.
+     * 
+     * @param in Stream com o TAR, já descompactado
+     * @param outputFolder Pasta de destino
+     * @param filter Filtro das entradas a extrair
+     * @param callback Callback para atualização do progresso
+     * @throws IOException Se ocorrer erro durante a extração
      */
-    private void decompressZip(File inputFile, File outputFolder, ProgressCallback callback) throws IOException {
-        long totalSize = inputFile.length();
-        long processedSize = 0;
+    public void extractTarStream(InputStream in, File outputFolder, EntryFilter filter,
+                                 ProgressCallback callback) throws IOException {
+        if (!outputFolder.exists()) {
+            outputFolder.mkdirs();
+        }
         
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             ZipInputStream zis = new ZipInputStream(fis)) {
+        callback.onProgress(0, "Lendo fluxo TAR...");
+        decompressTarStream(new TarArchiveInputStream(in), outputFolder, filter, callback, "TAR");
+    }
+    
+    /**
+     * Lê o conteúdo de uma única entrada em memória. Entradas lidas com frequência são
+     * servidas pelo {@link ArchiveEntryCache} sem nova descompactação.
+     * 
+     * @param inputFile Arquivo compactado
+     * @param entryName Caminho da entrada dentro do arquivo
+     * @return Buffer somente leitura com o conteúdo descompactado
+     * @throws IOException Se a entrada não existir ou ocorrer erro na leitura
+     */
+    public ByteBuffer readEntry(File inputFile, String entryName) throws IOException {
+        return ArchiveEntryCache.getDefault().get(inputFile, entryName);
+    }
+    
+    /**
+     * Descompacta arquivo ZIP
+     */
+    private void decompressZip(File inputFile, File outputFolder, EntryFilter filter,
+                               ProgressCallback callback) throws IOException {
+        try (ZipFile zipFile = new ZipFile(limits.throttle(ArchiveVolumes.openChannel(inputFile)),
+                 inputFile.getAbsolutePath(), "UTF8", true, true)) {
+            List<ZipArchiveEntry> selected = selectZipEntries(zipFile, filter);
+            
+            long totalSize = 0;
+            for (ZipArchiveEntry entry : selected) {
+                totalSize += Math.max(0, entry.getCompressedSize());
+            }
             
-            ZipEntry entry;
+            long processedSize = 0;
             byte[] buffer = new byte[8192];
             
-            while ((entry = zis.getNextEntry()) != null) {
+            for (ZipArchiveEntry entry : selected) {
                 String entryName = entry.getName();
                 callback.onProgress(
-                    (int) ((processedSize * 100) / totalSize),
+                    totalSize > 0 ? (int) ((processedSize * 100) / totalSize) : 0,
                     "Extraindo: " + entryName
                 );
                 
-                File destFile = new File(outputFolder, entryName);
-                
-                // Verificar se o caminho é seguro (evitar zip slip)
-                if (!isValidDestination(destFile, outputFolder)) {
-                    throw new IOException("Entrada inválida: " + entryName);
+                if (entry.isDirectory()) {
+                    extractEntry(entryName, true, -1, -1, null, outputFolder, buffer);
+                } else {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        extractEntry(entryName, false, entry.getTime(), entry.getCrc(), in::read,
+                            outputFolder, buffer);
+                    }
                 }
                 
+                processedSize += Math.max(0, entry.getCompressedSize());
+            }
+            
+            callback.onProgress(100, "Descompactação ZIP concluída! " + selected.size() + " arquivos extraídos.");
+        }
+    }
+    
+    /**
+     * Extrai entradas escolhidas pelo nome usando as posições do índice em cache,
+     * sem percorrer o diretório central do ZIP ou os cabeçalhos do TAR: no ZIP são
+     * lidos apenas o cabeçalho local e os dados de cada entrada; no TAR, os dados
+     * são lidos diretamente na posição registrada.
+     * 
+     * @return false se o filtro não for uma lista de nomes ou alguma entrada não
+     *         puder ser lida por este caminho
+     */
+    private boolean decompressFromIndex(File inputFile, ArchiveType type, File outputFolder, EntryFilter filter,
+                                        ProgressCallback callback) throws IOException {
+        Set<String> explicit = filter.getExplicitEntries();
+        if (explicit == null) {
+            return false;
+        }
+        
+        ArchiveIndex index = ArchiveIndexCache.getDefault().get(inputFile);
+        List<ArchiveEntryInfo> selected = new ArrayList<>();
+        for (String name : remainingEntries(filter)) {
+            ArchiveEntryInfo entry = index.getEntry(name);
+            if (entry == null) {
+                throw new FileNotFoundException("Entrada não encontrada no arquivo: " + name);
+            }
+            if (entry.getOffset() < 0) {
+                return false;
+            }
+            if (type == ArchiveType.ZIP && !entry.isDirectory()
+                    && entry.getMethod() != ZipEntry.STORED && entry.getMethod() != ZipEntry.DEFLATED) {
+                return false;
+            }
+            selected.add(entry);
+        }
+        
+        byte[] buffer = new byte[8192];
+        int processed = 0;
+        
+        // As posições do índice valem para o conjunto de volumes visto como um só canal
+        try (SeekableByteChannel channel = ArchiveVolumes.openChannel(inputFile)) {
+            for (ArchiveEntryInfo entry : selected) {
+                callback.onProgress((processed * 100) / selected.size(), "Extraindo: " + entry.getName());
+                
                 if (entry.isDirectory()) {
-                    destFile.mkdirs();
+                    extractEntry(entry.getName(), true, -1, -1, null, outputFolder, buffer);
                 } else {
-                    // Criar diretórios pais se necessário
-                    destFile.getParentFile().mkdirs();
-                    
-                    try (FileOutputStream fos = new FileOutputStream(destFile)) {
-                        int bytesRead;
-                        while ((bytesRead = zis.read(buffer)) != -1) {
-                            fos.write(buffer, 0, bytesRead);
-                        }
-                    }
-                    
-                    // Preservar timestamp
-                    if (entry.getTime() != -1) {
-                        destFile.setLastModified(entry.getTime());
+                    try (InputStream in = type == ArchiveType.ZIP
+                             ? openZipEntryData(channel, entry) : openEntryData(channel, entry.getOffset(), entry.getSize())) {
+                        extractEntry(entry.getName(), false, entry.getLastModified(), entry.getCrc(), in::read,
+                            outputFolder, buffer);
                     }
                 }
-                
-                processedSize += entry.getCompressedSize();
-                zis.closeEntry();
+                processed++;
+            }
+        }
+        
+        callback.onProgress(100, "Descompactação " + type.getDisplayName() + " concluída! "
+            + selected.size() + " arquivos extraídos.");
+        return true;
+    }
+    
+    /**
+     * Descompacta em paralelo as entradas com dados (veja {@link ArchiveEntryReader});
+     * pastas e arquivos vazios, que não passam pelo leitor, são criados a partir do índice
+     */
+    private void decompressParallel(File inputFile, ArchiveType type, File outputFolder, EntryFilter filter,
+                                    ProgressCallback callback) throws IOException {
+        EntryTable table = ArchiveIndexCache.getDefault().get(inputFile).getTable();
+        Set<String> remaining = remainingEntries(filter);
+        long totalSize = 0;
+        for (int i = 0; i < table.size(); i++) {
+            if (remaining != null) {
+                remaining.remove(table.getPath(i));
+            }
+            if (!table.isImplicit(i) && filter.matches(table.getPath(i))) {
+                totalSize += Math.max(0, table.getSize(i));
+            }
+        }
+        checkAllFound(remaining);
+        
+        Set<String> extracted = ConcurrentHashMap.newKeySet();
+        AtomicLong processedSize = new AtomicLong();
+        long progressTotal = totalSize;
+        ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[8192]);
+        
+        new ArchiveEntryReader(Runtime.getRuntime().availableProcessors(), limits).readEntries(inputFile, filter,
+            (entry, content) -> {
+                synchronized (callback) {
+                    long processed = processedSize.get();
+                    callback.onProgress(progressTotal > 0 ? (int) ((processed * 100) / progressTotal) : 0,
+                        "Extraindo: " + entry.getName());
+                }
+                extractEntry(entry.getName(), false, entry.getLastModified(), entry.getCrc(), content::read,
+                    outputFolder, buffers.get());
+                extracted.add(entry.getName());
+                processedSize.addAndGet(Math.max(0, entry.getSize()));
+            });
+        
+        byte[] buffer = new byte[8192];
+        int entryCount = extracted.size();
+        for (int i = 0; i < table.size(); i++) {
+            String path = table.getPath(i);
+            if (table.isImplicit(i) || extracted.contains(path) || !filter.matches(path)) {
+                continue;
+            }
+            entryCount++;
+            if (table.isDirectory(i)) {
+                extractEntry(path, true, -1, -1, null, outputFolder, buffer);
+            } else if (table.getSize(i) == 0) {
+                extractEntry(path, false, table.getLastModified(i), -1, b -> -1, outputFolder, buffer);
+            }
+        }
+        
+        callback.onProgress(100, "Descompactação " + type.getDisplayName() + " concluída! "
+            + entryCount + " arquivos extraídos.");
+    }
+    
+    /**
+     * Posiciona no início dos dados da entrada a partir do cabeçalho local e retorna
+     * o conteúdo descompactado
+     */
+    private InputStream openZipEntryData(SeekableByteChannel channel, ArchiveEntryInfo entry) throws IOException {
+        byte[] header = new byte[30];
+        ByteBuffer target = ByteBuffer.wrap(header);
+        channel.position(entry.getOffset());
+        while (target.hasRemaining()) {
+            if (channel.read(target) < 0) {
+                throw new EOFException("Fim inesperado na entrada: " + entry.getName());
+            }
+        }
+        
+        if (readShort(header, 0) != 0x4B50 || readShort(header, 2) != 0x0403) {
+            throw new IOException("Cabeçalho local inválido na entrada: " + entry.getName());
+        }
+        
+        long dataStart = entry.getOffset() + header.length + readShort(header, 26) + readShort(header, 28);
+        InputStream raw = openEntryData(channel, dataStart, entry.getCompressedSize());
+        
+        if (entry.getMethod() == ZipEntry.STORED) {
+            return raw;
+        }
+        
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(raw, inflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                inflater.end();
+                super.close();
+            }
+        };
+    }
+    
+    /**
+     * Dados gravados sem compressão a partir da posição indicada
+     */
+    private InputStream openEntryData(SeekableByteChannel channel, long dataStart, long length) throws IOException {
+        return new BoundedInputStream(
+            limits.throttle(Channels.newInputStream(channel.position(dataStart))), length) {
+            @Override
+            public void close() {
+                // O canal é fechado por quem abriu
+            }
+        };
+    }
+    
+    private static int readShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8;
+    }
+    
+    /**
+     * Seleciona as entradas ZIP pelo diretório central; nomes exatos são buscados diretamente
+     */
+    private List<ZipArchiveEntry> selectZipEntries(ZipFile zipFile, EntryFilter filter) throws IOException {
+        List<ZipArchiveEntry> selected = new ArrayList<>();
+        Set<String> explicit = filter.getExplicitEntries();
+        
+        if (explicit != null) {
+            for (String name : remainingEntries(filter)) {
+                ZipArchiveEntry entry = zipFile.getEntry(name);
+                if (entry == null) {
+                    entry = zipFile.getEntry(name + "/");
+                }
+                if (entry == null) {
+                    throw new FileNotFoundException("Entrada não encontrada no arquivo: " + name);
+                }
+                selected.add(entry);
             }
+            return selected;
         }
         
-        callback.onProgress(100, "Descompactação ZIP concluída!");
+        Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+        while (entries.hasMoreElements()) {
+            ZipArchiveEntry entry = entries.nextElement();
+            if (filter.matches(entry.getName())) {
+                selected.add(entry);
+            }
+        }
+        return selected;
     }
     
     /**
      * Descompacta arquivo 7z
      */
-    private void decompress7z(File inputFile, File outputFolder, ProgressCallback callback) throws IOException {
-        try (SevenZFile sevenZFile = new SevenZFile(inputFile)) {
+    private void decompress7z(File inputFile, File outputFolder, EntryFilter filter,
+                              ProgressCallback callback) throws IOException {
+        Set<String> remaining = remainingEntries(filter);
+        
+        try (SevenZFile sevenZFile = new SevenZFile(limits.throttle(ArchiveVolumes.openChannel(inputFile)),
+                 inputFile.getAbsolutePath(), MemoryBudget.getDefault().sevenZOptions(1))) {
             SevenZArchiveEntry entry;
             byte[] buffer = new byte[8192];
             int entryCount = 0;
             
             while ((entry = sevenZFile.getNextEntry()) != null) {
+                if (!filter.matches(entry.getName())) {
+                    continue;
+                }
+                
                 entryCount++;
                 String entryName = entry.getName();
                 callback.onProgress(-1, "Extraindo: " + entryName);
                 
-                File destFile = new File(outputFolder, entryName);
+                long lastModified = entry.getHasLastModifiedDate() ? entry.getLastModifiedDate().getTime() : -1;
+                extractEntry(entryName, entry.isDirectory(), lastModified, -1, sevenZFile::read, outputFolder, buffer);
                 
-                if (!isValidDestination(destFile, outputFolder)) {
-                    throw new IOException("Entrada inválida: " + entryName);
-                }
-                
-                if (entry.isDirectory()) {
-                    destFile.mkdirs();
-                } else {
-                    destFile.getParentFile().mkdirs();
-                    
-                    try (FileOutputStream fos = new FileOutputStream(destFile)) {
-                        int bytesRead;
-                        while ((bytesRead = sevenZFile.read(buffer)) != -1) {
-                            fos.write(buffer, 0, bytesRead);
-                        }
-                    }
-                    
-                    if (entry.getLastModifiedDate() != null) {
-                        destFile.setLastModified(entry.getLastModifiedDate().getTime());
-                    }
+                if (remaining != null && remaining.remove(ArchiveIndex.normalizeName(entryName)) && remaining.isEmpty()) {
+                    break;
                 }
             }
+            checkAllFound(remaining);
             
             callback.onProgress(100, "Descompactação 7z concluída! " + entryCount + " arquivos extraídos.");
+        } catch (MemoryLimitException e) {
+            throw MemoryBudget.exceeded(e, inputFile.getName());
         }
     }
     
     /**
      * Descompacta arquivo TAR.GZ
      */
-    private void decompressTarGz(File inputFile, File outputFolder, ProgressCallback callback) throws IOException {
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             GzipCompressorInputStream gzis = new GzipCompressorInputStream(fis);
+    private void decompressTarGz(File inputFile, File outputFolder, EntryFilter filter,
+                                 ProgressCallback callback) throws IOException {
+        try (InputStream fis = limits.throttle(ArchiveVolumes.openStream(inputFile));
+             GzipCompressorInputStream gzis = new GzipCompressorInputStream(fis, true);
              TarArchiveInputStream tais = new TarArchiveInputStream(gzis)) {
             
-            decompressTarStream(tais, outputFolder, callback, "TAR.GZ");
+            decompressTarStream(tais, outputFolder, filter, callback, "TAR.GZ");
         }
     }
     
     /**
      * Descompacta arquivo TAR
      */
-    private void decompressTar(File inputFile, File outputFolder, ProgressCallback callback) throws IOException {
-        try (FileInputStream fis = new FileInputStream(inputFile);
+    private void decompressTar(File inputFile, File outputFolder, EntryFilter filter,
+                               ProgressCallback callback) throws IOException {
+        try (InputStream fis = limits.throttle(ArchiveVolumes.openStream(inputFile));
              TarArchiveInputStream tais = new TarArchiveInputStream(fis)) {
             
-            decompressTarStream(tais, outputFolder, callback, "TAR");
+            decompressTarStream(tais, outputFolder, filter, callback, "TAR");
         }
     }
     
     /**
-     * Descompacta stream TAR
+     * Descompacta stream TAR; as entradas não selecionadas são puladas pelo próprio stream
      */
-    private void decompressTarStream(TarArchiveInputStream tais, File outputFolder, 
+    private void decompressTarStream(TarArchiveInputStream tais, File outputFolder, EntryFilter filter,
                                    ProgressCallback callback, String format) throws IOException {
+        Set<String> remaining = remainingEntries(filter);
         ArchiveEntry entry;
         byte[] buffer = new byte[8192];
         int entryCount = 0;
         
         while ((entry = tais.getNextEntry()) != null) {
+            if (!filter.matches(entry.getName())) {
+                continue;
+            }
+            
             entryCount++;
             String entryName = entry.getName();
             callback.onProgress(-1, "Extraindo: " + entryName);
             
-            File destFile = new File(outputFolder, entryName);
-            
-            if (!isValidDestination(destFile, outputFolder)) {
-                throw new IOException("Entrada inválida: " + entryName);
+            long lastModified = entry.getLastModifiedDate() != null ? entry.getLastModifiedDate().getTime() : -1;
+            if (entry instanceof TarArchiveEntry && ((TarArchiveEntry) entry).isSparse()) {
+                extractSparseEntry((TarArchiveEntry) entry, lastModified, tais, outputFolder, buffer);
+            } else {
+                extractEntry(entryName, entry.isDirectory(), lastModified, -1, tais::read, outputFolder, buffer);
             }
             
-            if (entry.isDirectory()) {
-                destFile.mkdirs();
-            } else {
-                destFile.getParentFile().mkdirs();
-                
-                try (FileOutputStream fos = new FileOutputStream(destFile)) {
-                    int bytesRead;
-                    while ((bytesRead = tais.read(buffer)) != -1) {
-                        fos.write(buffer, 0, bytesRead);
-                    }
-                }
-                
-                if (entry.getLastModifiedDate() != null) {
-                    destFile.setLastModified(entry.getLastModifiedDate().getTime());
-                }
+            if (remaining != null && remaining.remove(ArchiveIndex.normalizeName(entryName)) && remaining.isEmpty()) {
+                break;
             }
         }
+        checkAllFound(remaining);
         
         callback.onProgress(100, "Descompactação " + format + " concluída! " + entryCount + " arquivos extraídos.");
     }
@@ -228,21 +523,32 @@ public class DecompressionService {
     /**
      * Descompacta arquivo GZ
      */
-    private void decompressGz(File inputFile, File outputFolder, ProgressCallback callback) throws IOException {
-        String fileName = inputFile.getName();
+    private void decompressGz(File inputFile, File outputFolder, EntryFilter filter,
+                              ProgressCallback callback) throws IOException {
+        String fileName = ArchiveVolumes.baseFile(inputFile).getName();
         String outputName = fileName.substring(0, fileName.lastIndexOf('.'));
         File outputFile = new File(outputFolder, outputName);
         
+        Set<String> remaining = remainingEntries(filter);
+        if (remaining != null) {
+            remaining.remove(outputName);
+            checkAllFound(remaining);
+        }
+        if (!filter.matches(outputName)) {
+            callback.onProgress(100, "Nenhuma entrada selecionada.");
+            return;
+        }
+        
         callback.onProgress(0, "Descompactando arquivo GZ...");
         
-        try (FileInputStream fis = new FileInputStream(inputFile);
-             GzipCompressorInputStream gzis = new GzipCompressorInputStream(fis);
-             FileOutputStream fos = new FileOutputStream(outputFile)) {
+        try (InputStream fis = limits.throttle(ArchiveVolumes.openStream(inputFile));
+             GzipCompressorInputStream gzis = new GzipCompressorInputStream(fis, true);
+             OutputStream fos = limits.throttle(new FileOutputStream(outputFile))) {
             
             byte[] buffer = new byte[8192];
             int bytesRead;
             long totalRead = 0;
-            long fileSize = inputFile.length();
+            long fileSize = ArchiveVolumes.totalSize(inputFile);
             
             while ((bytesRead = gzis.read(buffer)) != -1) {
                 fos.write(buffer, 0, bytesRead);
@@ -258,6 +564,145 @@ public class DecompressionService {
         callback.onProgress(100, "Descompactação GZ concluída!");
     }
     
+    /**
+     * Grava uma entrada na pasta de destino, validando o caminho e preservando a data.
+     * Se a leitura falhar ou o CRC não conferir, o arquivo parcial é removido.
+     */
+    private void extractEntry(String entryName, boolean directory, long lastModified, long expectedCrc,
+                              EntryContent content, File outputFolder, byte[] buffer) throws IOException {
+        File destFile = new File(outputFolder, entryName);
+        
+        // Verificar se o caminho é seguro (evitar zip slip)
+        if (!isValidDestination(destFile, outputFolder)) {
+            throw new IOException("Entrada inválida: " + entryName);
+        }
+        
+        if (directory) {
+            destFile.mkdirs();
+            return;
+        }
+        
+        // Criar diretórios pais se necessário
+        destFile.getParentFile().mkdirs();
+        
+        CRC32 crc = new CRC32();
+        
+        try (OutputStream fos = limits.throttle(new FileOutputStream(destFile))) {
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) != -1) {
+                fos.write(buffer, 0, bytesRead);
+                if (expectedCrc >= 0) {
+                    crc.update(buffer, 0, bytesRead);
+                }
+            }
+            
+            if (expectedCrc >= 0 && crc.getValue() != expectedCrc) {
+                throw new IOException("CRC inválido na entrada: " + entryName);
+            }
+        } catch (IOException | RuntimeException e) {
+            destFile.delete();
+            throw e;
+        }
+        
+        // Preservar timestamp
+        if (lastModified > 0) {
+            destFile.setLastModified(lastModified);
+        }
+    }
+    
+    /**
+     * Grava uma entrada TAR esparsa (GNU ou PAX) recriando os buracos: somente as
+     * regiões com dados são gravadas, nas suas posições, e o tamanho final é
+     * ajustado sem gravar os zeros restantes
+     */
+    private void extractSparseEntry(TarArchiveEntry entry, long lastModified, TarArchiveInputStream tais,
+                                    File outputFolder, byte[] buffer) throws IOException {
+        File destFile = new File(outputFolder, entry.getName());
+        
+        if (!isValidDestination(destFile, outputFolder)) {
+            throw new IOException("Entrada inválida: " + entry.getName());
+        }
+        destFile.getParentFile().mkdirs();
+        
+        // Os buracos chegam do stream como zeros; são pulados sem leitura de dados
+        long streamPosition = 0;
+        
+        try (RandomAccessFile raf = new RandomAccessFile(destFile, "rw")) {
+            raf.setLength(0);
+            SeekableByteChannel channel = limits.throttle(raf.getChannel());
+            
+            for (TarArchiveStructSparse region : entry.getOrderedSparseHeaders()) {
+                skipFully(tais, region.getOffset() - streamPosition);
+                channel.position(region.getOffset());
+                
+                long remaining = region.getNumbytes();
+                while (remaining > 0) {
+                    int read = tais.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new EOFException("Fim inesperado da entrada esparsa: " + entry.getName());
+                    }
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                    remaining -= read;
+                }
+                streamPosition = region.getOffset() + region.getNumbytes();
+            }
+            
+            raf.setLength(entry.getRealSize());
+        } catch (IOException | RuntimeException e) {
+            destFile.delete();
+            throw e;
+        }
+        
+        if (lastModified > 0) {
+            destFile.setLastModified(lastModified);
+        }
+    }
+    
+    private static void skipFully(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Fim inesperado do arquivo TAR");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+    
+    /**
+     * Cópia da lista de entradas exatas do filtro, sem as que as exclusões rejeitam,
+     * usada para encerrar a leitura quando todas já foram extraídas (null se o
+     * filtro não for uma lista)
+     */
+    private Set<String> remainingEntries(EntryFilter filter) {
+        Set<String> explicit = filter.getExplicitEntries();
+        if (explicit == null) {
+            return null;
+        }
+        Set<String> remaining = new LinkedHashSet<>();
+        for (String name : explicit) {
+            if (filter.matches(name)) {
+                remaining.add(name);
+            }
+        }
+        return remaining;
+    }
+    
+    /**
+     * Uma entrada pedida pelo nome que não existe no arquivo é um erro em todos os
+     * formatos, como no ZIP, em vez de ser ignorada
+     */
+    private static void checkAllFound(Set<String> remaining) throws FileNotFoundException {
+        if (remaining != null && !remaining.isEmpty()) {
+            throw new FileNotFoundException("Entrada não encontrada no arquivo: " + String.join(", ", remaining));
+        }
+    }
+    
     /**
      * Verifica se o destino é válido (proteção contra zip slip)
      */
@@ -279,39 +724,20 @@ public class DecompressionService {
             throw new FileNotFoundException("Arquivo não encontrado: " + file.getAbsolutePath());
         }
         
-        String fileName = file.getName().toLowerCase();
+        ArchiveFormat format = ArchiveFormats.detect(file);
         StringBuilder info = new StringBuilder();
         
         info.append("Arquivo: ").append(file.getName()).append("\n");
-        info.append("Tamanho: ").append(formatFileSize(file.length())).append("\n");
-        info.append("Tipo: ");
-        
-        if (fileName.endsWith(".zip")) {
-            info.append("ZIP");
-            try (ZipInputStream zis = new ZipInputStream(new FileInputStream(file))) {
-                int entryCount = 0;
-                while (zis.getNextEntry() != null) {
-                    entryCount++;
-                }
-                info.append("\nArquivos: ").append(entryCount);
-            }
-        } else if (fileName.endsWith(".7z")) {
-            info.append("7-Zip");
-            try (SevenZFile sevenZFile = new SevenZFile(file)) {
-                int entryCount = 0;
-                while (sevenZFile.getNextEntry() != null) {
-                    entryCount++;
-                }
-                info.append("\nArquivos: ").append(entryCount);
-            }
-        } else if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
-            info.append("TAR.GZ");
-        } else if (fileName.endsWith(".tar")) {
-            info.append("TAR");
-        } else if (fileName.endsWith(".gz")) {
-            info.append("GZIP");
-        } else {
-            info.append("Desconhecido");
+        info.append("Tamanho: ").append(formatFileSize(ArchiveVolumes.totalSize(file))).append("\n");
+        info.append("Tipo: ").append(format != null ? format.getName() : "Desconhecido");
+        
+        if (ArchiveVolumes.isVolume(file)) {
+            info.append("\nVolumes: ").append(ArchiveVolumes.list(file).size());
+        }
+        
+        // Só formatos com índice próprio informam a contagem sem ler o arquivo inteiro
+        if (format != null && format.getType() != null && format.has(ArchiveFormat.Capability.RANDOM_ACCESS)) {
+            info.append("\nArquivos: ").append(ArchiveIndexCache.getDefault().get(file).getEntryCount());
         }
         
         return info.toString();
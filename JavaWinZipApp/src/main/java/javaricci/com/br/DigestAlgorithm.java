@@ -0,0 +1,93 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.compressors.lz4.XXHash32;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * Algoritmos de hash disponíveis para o manifesto gerado durante a compactação
+ */
+public enum DigestAlgorithm {
+    
+    CRC32C("CRC32C"),
+    SHA_256("SHA256"),
+    XXHASH32("XXH32");
+    
+    /**
+     * Cálculo incremental de um hash sobre os bytes lidos
+     */
+    public interface Digest {
+        void update(byte[] buffer, int offset, int length);
+        
+        String toHex();
+    }
+    
+    private final String tag;
+    
+    DigestAlgorithm(String tag) {
+        this.tag = tag;
+    }
+    
+    /**
+     * Nome usado no manifesto, no formato "TAG (arquivo) = hash"
+     */
+    public String getTag() {
+        return tag;
+    }
+    
+    /**
+     * Cria um novo cálculo de hash para um arquivo
+     */
+    public Digest newDigest() {
+        switch (this) {
+            case CRC32C:
+                return checksumDigest(new CRC32C());
+            case XXHASH32:
+                return checksumDigest(new XXHash32());
+            default:
+                return sha256Digest();
+        }
+    }
+    
+    private static Digest checksumDigest(Checksum checksum) {
+        return new Digest() {
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                checksum.update(buffer, offset, length);
+            }
+            
+            @Override
+            public String toHex() {
+                return String.format("%08x", checksum.getValue());
+            }
+        };
+    }
+    
+    private static Digest sha256Digest() {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e);
+        }
+        
+        return new Digest() {
+            @Override
+            public void update(byte[] buffer, int offset, int length) {
+                messageDigest.update(buffer, offset, length);
+            }
+            
+            @Override
+            public String toHex() {
+                StringBuilder hex = new StringBuilder();
+                for (byte b : messageDigest.digest()) {
+                    hex.append(String.format("%02x", b));
+                }
+                return hex.toString();
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,350 @@
+package javaricci.com.br;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Varredura paralela de pastas.
+ *
+ * Cada pasta é listada por uma tarefa própria, e as subpastas são enfileiradas
+ * assim que aparecem, de modo que várias chamadas de readdir/stat ficam em
+ * andamento ao mesmo tempo (útil em NFS e compartilhamentos de rede). O consumidor
+ * recebe os itens em pré-ordem, com nomes ordenados, à medida que as listagens
+ * ficam prontas; a ordem de saída não depende da ordem de conclusão das tarefas.
+ *
+ * O número de listagens enfileiradas ou prontas e ainda não consumidas é limitado.
+ * Subpastas encontradas além desse limite são listadas quando o consumidor chega
+ * até elas, e a memória usada não cresce com o tamanho da árvore.
+ */
+public class DirectoryScanner implements AutoCloseable {
+    
+    /**
+     * Paralelismo padrão: as listagens passam a maior parte do tempo esperando I/O
+     */
+    public static final int DEFAULT_PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    
+    /**
+     * Listagens antecipadas por thread, entre enfileiradas e prontas para o consumidor
+     */
+    private static final int BUFFERED_LISTINGS_PER_THREAD = 16;
+    
+    /**
+     * Atributos lidos em uma única chamada stat quando o sistema oferece a visão "unix",
+     * que inclui dispositivo e inode
+     */
+    private static final String UNIX_ATTRIBUTES =
+        "unix:size,lastModifiedTime,isDirectory,isRegularFile,isSymbolicLink,dev,ino";
+    private static final boolean UNIX_VIEW =
+        FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+    
+    /**
+     * Arquivo ou pasta encontrado na varredura
+     */
+    public static class ScannedFile {
+        private final Path path;
+        private final String relativePath;
+        private final boolean directory;
+        private final boolean regularFile;
+        private final boolean symbolicLink;
+        private final long size;
+        private final long lastModified;
+        private final long device;
+        private final long inode;
+        
+        ScannedFile(Path path, String relativePath, boolean directory, boolean regularFile, boolean symbolicLink,
+                    long size, long lastModified, long device, long inode) {
+            this.path = path;
+            this.relativePath = relativePath;
+            this.directory = directory;
+            this.regularFile = regularFile;
+            this.symbolicLink = symbolicLink;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.device = device;
+            this.inode = inode;
+        }
+        
+        public Path getPath() {
+            return path;
+        }
+        
+        /**
+         * Caminho relativo à raiz da varredura, com separador '/'
+         */
+        public String getRelativePath() {
+            return relativePath;
+        }
+        
+        public boolean isDirectory() {
+            return directory;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+        
+        public long getLastModified() {
+            return lastModified;
+        }
+        
+        /**
+         * Dispositivo que contém o arquivo (-1 se o sistema não informa)
+         */
+        public long getDevice() {
+            return device;
+        }
+        
+        /**
+         * Número do inode (-1 se o sistema não informa). Arquivos da mesma pasta
+         * lidos em ordem de inode tendem a seguir a ordem física no disco.
+         */
+        public long getInode() {
+            return inode;
+        }
+    }
+    
+    /**
+     * Recebe os itens encontrados, na ordem da varredura
+     */
+    public interface FileConsumer {
+        void accept(ScannedFile file) throws IOException;
+    }
+    
+    /**
+     * Varredura em andamento de uma pasta raiz
+     */
+    public class Scan {
+        private final Future<Listing> root;
+        
+        private Scan(Future<Listing> root) {
+            this.root = root;
+        }
+        
+        /**
+         * Entrega todos os itens ao consumidor, aguardando cada listagem somente
+         * quando ela é necessária
+         */
+        public void forEach(FileConsumer consumer) throws IOException {
+            emit(await(root), consumer);
+        }
+    }
+    
+    /**
+     * Conteúdo de uma pasta e as listagens das suas subpastas; null para as subpastas
+     * que não couberam no limite e serão listadas pelo consumidor
+     */
+    private static class Listing {
+        final List<ScannedFile> children = new ArrayList<>();
+        final List<Future<Listing>> subdirectories = new ArrayList<>();
+    }
+    
+    private final ExecutorService executor;
+    private final Semaphore bufferedListings;
+    private final AtomicInteger pendingListings = new AtomicInteger();
+    private final AtomicLong discoveredFiles = new AtomicLong();
+    private final AtomicLong discoveredBytes = new AtomicLong();
+    
+    public DirectoryScanner() {
+        this(DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Usa o paralelismo padrão reduzido ao limite de threads informado
+     */
+    public DirectoryScanner(ResourceLimits limits) {
+        this(limits.limitThreads(DEFAULT_PARALLELISM));
+    }
+    
+    /**
+     * @param parallelism Número máximo de pastas listadas ao mesmo tempo
+     */
+    public DirectoryScanner(int parallelism) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.bufferedListings = new Semaphore(Math.max(1, parallelism) * BUFFERED_LISTINGS_PER_THREAD);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "directory-scanner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Inicia a varredura da pasta em segundo plano
+     *
+     * @param root Pasta raiz
+     * @return Varredura cujos itens podem ser consumidos enquanto a listagem continua
+     */
+    public Scan start(Path root) {
+        pendingListings.incrementAndGet();
+        return new Scan(submit(root, ""));
+    }
+    
+    /**
+     * Percorre a pasta e entrega os itens ao consumidor
+     */
+    public void scan(Path root, FileConsumer consumer) throws IOException {
+        start(root).forEach(consumer);
+    }
+    
+    /**
+     * Conta os arquivos e soma os seus tamanhos
+     *
+     * @return Array com {quantidade de arquivos, tamanho total}
+     */
+    public long[] summarize(Path root) throws IOException {
+        long[] totals = new long[2];
+        scan(root, file -> {
+            if (!file.isDirectory()) {
+                totals[0]++;
+                totals[1] += file.getSize();
+            }
+        });
+        return totals;
+    }
+    
+    /**
+     * Arquivos encontrados até agora em todas as varreduras deste scanner
+     */
+    public long getDiscoveredFiles() {
+        return discoveredFiles.get();
+    }
+    
+    public long getDiscoveredBytes() {
+        return discoveredBytes.get();
+    }
+    
+    /**
+     * Indica se não há pastas a listar, ou seja, se os totais descobertos são finais
+     */
+    public boolean isComplete() {
+        return pendingListings.get() == 0;
+    }
+    
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Enfileira a listagem de uma pasta. Para subpastas, a vaga no limite de listagens
+     * já foi reservada e é devolvida quando o consumidor recebe a listagem.
+     */
+    private Future<Listing> submit(Path dir, String relativePrefix) {
+        return executor.submit(() -> list(dir, relativePrefix));
+    }
+    
+    private Listing list(Path dir, String relativePrefix) {
+        try {
+            return listEntries(dir, relativePrefix);
+        } finally {
+            pendingListings.decrementAndGet();
+        }
+    }
+    
+    private Listing listEntries(Path dir, String relativePrefix) {
+        Listing listing = new Listing();
+        List<Path> entries = new ArrayList<>();
+        
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            System.err.println("Erro ao listar pasta: " + dir + " - " + e.getMessage());
+            return listing;
+        }
+        
+        entries.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        
+        for (Path entry : entries) {
+            String relativePath = relativePrefix + entry.getFileName().toString();
+            ScannedFile file;
+            try {
+                file = stat(entry, relativePath, LinkOption.NOFOLLOW_LINKS);
+                if (file.symbolicLink) {
+                    file = stat(entry, relativePath);
+                    if (file.isDirectory()) {
+                        // Links para pastas não são seguidos, evitando ciclos
+                        continue;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao processar arquivo: " + entry + " - " + e.getMessage());
+                continue;
+            }
+            
+            listing.children.add(file);
+            
+            if (file.isDirectory()) {
+                pendingListings.incrementAndGet();
+                listing.subdirectories.add(bufferedListings.tryAcquire() ? submit(entry, relativePath + "/") : null);
+            } else if (file.regularFile) {
+                discoveredFiles.incrementAndGet();
+                discoveredBytes.addAndGet(file.getSize());
+            }
+        }
+        
+        return listing;
+    }
+    
+    /**
+     * Lê os atributos de um item com uma única chamada ao sistema de arquivos
+     */
+    private static ScannedFile stat(Path entry, String relativePath, LinkOption... options) throws IOException {
+        if (UNIX_VIEW) {
+            Map<String, Object> attrs = Files.readAttributes(entry, UNIX_ATTRIBUTES, options);
+            boolean directory = (Boolean) attrs.get("isDirectory");
+            return new ScannedFile(entry, relativePath, directory,
+                (Boolean) attrs.get("isRegularFile"), (Boolean) attrs.get("isSymbolicLink"),
+                directory ? 0 : (Long) attrs.get("size"), ((FileTime) attrs.get("lastModifiedTime")).toMillis(),
+                (Long) attrs.get("dev"), (Long) attrs.get("ino"));
+        }
+        
+        BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, options);
+        return new ScannedFile(entry, relativePath, attrs.isDirectory(), attrs.isRegularFile(),
+            attrs.isSymbolicLink(), attrs.isDirectory() ? 0 : attrs.size(),
+            attrs.lastModifiedTime().toMillis(), -1, -1);
+    }
+    
+    private void emit(Listing listing, FileConsumer consumer) throws IOException {
+        int subdirectory = 0;
+        for (ScannedFile child : listing.children) {
+            consumer.accept(child);
+            if (child.isDirectory()) {
+                Future<Listing> future = listing.subdirectories.get(subdirectory++);
+                Listing subListing;
+                if (future == null) {
+                    subListing = list(child.getPath(), child.getRelativePath() + "/");
+                } else {
+                    try {
+                        subListing = await(future);
+                    } finally {
+                        bufferedListings.release();
+                    }
+                }
+                emit(subListing, consumer);
+            }
+        }
+    }
+    
+    private static Listing await(Future<Listing> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Varredura interrompida");
+        } catch (ExecutionException e) {
+            throw new IOException("Erro na varredura de pastas", e.getCause());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+package javaricci.com.br;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Filtro de entradas para extração seletiva.
+ *
+ * Aceita padrões glob ("*.conf", "config/**"), expressões regulares com o prefixo
+ * "regex:", nomes exatos de entradas e pastas inteiras. Padrões glob sem barra são
+ * comparados apenas com o nome do arquivo; os demais, com o caminho completo.
+ * Exclusões têm prioridade sobre inclusões e, sem nenhuma inclusão, todas as
+ * entradas são aceitas.
+ */
+public class EntryFilter {
+    
+    private final List<Pattern> includes = new ArrayList<>();
+    private final List<Pattern> nameIncludes = new ArrayList<>();
+    private final List<Pattern> excludes = new ArrayList<>();
+    private final List<Pattern> nameExcludes = new ArrayList<>();
+    private final Set<String> entries = new LinkedHashSet<>();
+    private final List<String> directories = new ArrayList<>();
+    
+    /**
+     * Filtro que aceita todas as entradas
+     */
+    public static EntryFilter all() {
+        return new EntryFilter();
+    }
+    
+    /**
+     * Inclui as entradas que correspondem ao padrão glob ou "regex:"
+     */
+    public EntryFilter include(String pattern) {
+        addPattern(pattern, includes, nameIncludes);
+        return this;
+    }
+    
+    /**
+     * Exclui as entradas que correspondem ao padrão glob ou "regex:"
+     */
+    public EntryFilter exclude(String pattern) {
+        addPattern(pattern, excludes, nameExcludes);
+        return this;
+    }
+    
+    /**
+     * Inclui uma entrada pelo caminho exato
+     */
+    public EntryFilter includeEntry(String name) {
+        entries.add(ArchiveIndex.normalizeName(name));
+        return this;
+    }
+    
+    /**
+     * Inclui uma pasta e todo o seu conteúdo
+     */
+    public EntryFilter includeDirectory(String path) {
+        String normalized = ArchiveIndex.normalizeName(path);
+        entries.add(normalized);
+        directories.add(normalized + "/");
+        return this;
+    }
+    
+    /**
+     * Verifica se a entrada deve ser processada
+     *
+     * @param entryName Caminho da entrada dentro do arquivo
+     */
+    public boolean matches(String entryName) {
+        String name = ArchiveIndex.normalizeName(entryName);
+        String baseName = name.substring(name.lastIndexOf('/') + 1);
+        
+        if (anyMatch(excludes, name) || anyMatch(nameExcludes, baseName)) {
+            return false;
+        }
+        if (acceptsAll()) {
+            return true;
+        }
+        if (entries.contains(name)) {
+            return true;
+        }
+        for (String directory : directories) {
+            if (name.startsWith(directory)) {
+                return true;
+            }
+        }
+        return anyMatch(includes, name) || anyMatch(nameIncludes, baseName);
+    }
+    
+    /**
+     * Indica se nenhum critério de inclusão foi definido
+     */
+    public boolean acceptsAll() {
+        return includes.isEmpty() && nameIncludes.isEmpty() && entries.isEmpty() && directories.isEmpty();
+    }
+    
+    /**
+     * Retorna os caminhos exatos quando o filtro é apenas uma lista de entradas,
+     * permitindo localizar cada uma diretamente e encerrar a leitura cedo;
+     * caso contrário retorna null
+     */
+    public Set<String> getExplicitEntries() {
+        if (entries.isEmpty() || !directories.isEmpty() || !includes.isEmpty() || !nameIncludes.isEmpty()) {
+            return null;
+        }
+        return Collections.unmodifiableSet(entries);
+    }
+    
+    private static boolean anyMatch(List<Pattern> patterns, String value) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(value).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static void addPattern(String pattern, List<Pattern> pathPatterns, List<Pattern> namePatterns) {
+        if (pattern == null || pattern.trim().isEmpty()) {
+            throw new IllegalArgumentException("Padrão vazio");
+        }
+        
+        if (pattern.startsWith("regex:")) {
+            pathPatterns.add(Pattern.compile(pattern.substring("regex:".length())));
+        } else {
+            String glob = pattern.startsWith("glob:") ? pattern.substring("glob:".length()) : pattern;
+            glob = glob.replace('\\', '/');
+            if (glob.indexOf('/') < 0) {
+                namePatterns.add(Pattern.compile(globToRegex(glob)));
+            } else {
+                pathPatterns.add(Pattern.compile(globToRegex(ArchiveIndex.normalizeName(glob))));
+            }
+        }
+    }
+    
+    /**
+     * Converte um padrão glob em expressão regular.
+     * "*" não atravessa pastas, "**" atravessa e "**&#47;" também aceita zero pastas.
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '{':
+                    inGroup = true;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    inGroup = false;
+                    regex.append(')');
+                    break;
+                case ',':
+                    regex.append(inGroup ? "|" : ",");
+                    break;
+                case '[':
+                    int end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, end);
+                        if (set.startsWith("!")) {
+                            set = "^" + set.substring(1);
+                        }
+                        regex.append('[').append(set.replace("\\", "\\\\")).append(']');
+                        i = end;
+                    }
+                    break;
+                default:
+                    if ("\\.^$|+()".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                    break;
+            }
+        }
+        
+        return regex.toString();
+    }
+}
\ No newline at end of file
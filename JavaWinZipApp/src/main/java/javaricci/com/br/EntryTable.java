@@ -0,0 +1,512 @@
+package javaricci.com.br;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tabela compacta das entradas de um arquivo compactado.
+ *
+ * Cada entrada guarda apenas o próprio nome em UTF-8, numa área de bytes compartilhada,
+ * e o índice da pasta pai; o caminho completo é remontado subindo pelos pais, de modo
+ * que os prefixos comuns ficam armazenados uma única vez. Tamanhos, CRCs, datas e
+ * posições ficam em arrays primitivos, sem um objeto por entrada. A busca por caminho
+ * usa uma tabela de espalhamento de inteiros e a iteração é feita por índice, sem
+ * alocação.
+ *
+ * Pastas que não existem explicitamente no arquivo são criadas como entradas
+ * implícitas para manter a hierarquia.
+ */
+public class EntryTable {
+    
+    /**
+     * Pai das entradas que estão na raiz do arquivo
+     */
+    public static final int ROOT = -1;
+    
+    private static final byte FLAG_DIRECTORY = 1;
+    private static final byte FLAG_IMPLICIT = 2;
+    private static final byte FLAG_HAS_CRC = 4;
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private int count;
+    private int explicitCount;
+    private int rootFirstChild = ROOT;
+    
+    private byte[] names;
+    private int namesLength;
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] hashes;
+    private byte[] flags;
+    private short[] methods;
+    private int[] crcs;
+    private long[] sizes;
+    private long[] compressedSizes;
+    private long[] lastModified;
+    private long[] offsets;
+    
+    /**
+     * Tabela de espalhamento: índice da entrada + 1, ou 0 para posição livre
+     */
+    private int[] slots;
+    
+    public EntryTable() {
+        this(INITIAL_CAPACITY);
+    }
+    
+    /**
+     * @param expectedEntries Quantidade prevista de entradas, para evitar realocações
+     */
+    public EntryTable(int expectedEntries) {
+        int capacity = Math.max(INITIAL_CAPACITY, expectedEntries);
+        names = new byte[capacity * 16];
+        allocate(capacity);
+        slots = new int[slotCapacity(capacity * 2)];
+    }
+    
+    /**
+     * Adiciona uma entrada, criando as pastas implícitas do caminho. Uma pasta que já
+     * existia como implícita passa a ter os dados da entrada.
+     *
+     * @param path Caminho da entrada dentro do arquivo
+     * @param offset Posição da entrada no arquivo (-1 se desconhecida)
+     * @param method Método de compressão ZIP (-1 se não se aplica)
+     * @return Índice da entrada ou {@link #ROOT} se o caminho for vazio
+     */
+    public int add(String path, boolean directory, long size, long compressedSize, long crc,
+                   long lastModified, long offset, int method) {
+        String name = ArchiveIndex.normalizeName(path);
+        if (name.isEmpty()) {
+            return ROOT;
+        }
+        
+        int index;
+        int existing = directory ? find(name) : ROOT;
+        
+        if (existing >= 0 && isDirectory(existing)) {
+            if (!isImplicit(existing)) {
+                return existing;
+            }
+            index = existing;
+            flags[index] = FLAG_DIRECTORY;
+        } else {
+            int slash = name.lastIndexOf('/');
+            int parent = slash < 0 ? ROOT : directoryFor(name.substring(0, slash));
+            index = append(parent, name.substring(slash + 1), name.hashCode(),
+                directory ? FLAG_DIRECTORY : 0);
+        }
+        
+        explicitCount++;
+        sizes[index] = size;
+        compressedSizes[index] = compressedSize;
+        this.lastModified[index] = lastModified;
+        offsets[index] = offset;
+        methods[index] = (short) method;
+        if (crc >= 0) {
+            crcs[index] = (int) crc;
+            flags[index] |= FLAG_HAS_CRC;
+        }
+        return index;
+    }
+    
+    /**
+     * Adiciona uma entrada a partir dos seus metadados
+     *
+     * @see #add(String, boolean, long, long, long, long, long, int)
+     */
+    public int add(ArchiveEntryInfo entry) {
+        return add(entry.getName(), entry.isDirectory(), entry.getSize(), entry.getCompressedSize(),
+            entry.getCrc(), entry.getLastModified(), entry.getOffset(), entry.getMethod());
+    }
+    
+    /**
+     * Libera a capacidade não usada dos arrays depois que a tabela foi preenchida
+     */
+    public void trimToSize() {
+        names = Arrays.copyOf(names, namesLength);
+        nameOffsets = Arrays.copyOf(nameOffsets, count);
+        nameLengths = Arrays.copyOf(nameLengths, count);
+        parents = Arrays.copyOf(parents, count);
+        firstChildren = Arrays.copyOf(firstChildren, count);
+        nextSiblings = Arrays.copyOf(nextSiblings, count);
+        hashes = Arrays.copyOf(hashes, count);
+        flags = Arrays.copyOf(flags, count);
+        methods = Arrays.copyOf(methods, count);
+        crcs = Arrays.copyOf(crcs, count);
+        sizes = Arrays.copyOf(sizes, count);
+        compressedSizes = Arrays.copyOf(compressedSizes, count);
+        lastModified = Arrays.copyOf(lastModified, count);
+        offsets = Arrays.copyOf(offsets, count);
+    }
+    
+    /**
+     * Localiza a entrada pelo caminho já padronizado
+     *
+     * @return Índice da entrada ou -1 se não existir
+     */
+    public int find(String path) {
+        int hash = path.hashCode();
+        int mask = slots.length - 1;
+        byte[] encoded = null;
+        
+        for (int slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (hashes[index] == hash) {
+                if (encoded == null) {
+                    encoded = path.getBytes(StandardCharsets.UTF_8);
+                }
+                if (pathEquals(index, encoded)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Quantidade total de entradas, incluindo as pastas implícitas
+     */
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * Quantidade de entradas registradas no arquivo, sem as pastas implícitas
+     */
+    public int getExplicitCount() {
+        return explicitCount;
+    }
+    
+    public int getParent(int index) {
+        return parents[index];
+    }
+    
+    /**
+     * Primeiro filho da pasta ({@link #ROOT} para a raiz), ou -1 se não houver
+     */
+    public int getFirstChild(int index) {
+        return index == ROOT ? rootFirstChild : firstChildren[index];
+    }
+    
+    /**
+     * Próximo filho da mesma pasta, ou -1 se for o último
+     */
+    public int getNextSibling(int index) {
+        return nextSiblings[index];
+    }
+    
+    public boolean isDirectory(int index) {
+        return (flags[index] & FLAG_DIRECTORY) != 0;
+    }
+    
+    /**
+     * Indica uma pasta criada apenas para manter a hierarquia, sem registro no arquivo
+     */
+    public boolean isImplicit(int index) {
+        return (flags[index] & FLAG_IMPLICIT) != 0;
+    }
+    
+    public long getSize(int index) {
+        return sizes[index];
+    }
+    
+    public long getCompressedSize(int index) {
+        return compressedSizes[index];
+    }
+    
+    /**
+     * CRC32 da entrada ou -1 se desconhecido
+     */
+    public long getCrc(int index) {
+        return (flags[index] & FLAG_HAS_CRC) != 0 ? crcs[index] & 0xFFFFFFFFL : -1;
+    }
+    
+    public long getLastModified(int index) {
+        return lastModified[index];
+    }
+    
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+    
+    public int getMethod(int index) {
+        return methods[index];
+    }
+    
+    /**
+     * Nome da entrada, sem o caminho da pasta
+     */
+    public String getName(int index) {
+        return new String(names, nameOffsets[index], nameLengths[index], StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Caminho completo da entrada, remontado a partir das pastas pai
+     */
+    public String getPath(int index) {
+        int length = -1;
+        for (int i = index; i != ROOT; i = parents[i]) {
+            length += nameLengths[i] + 1;
+        }
+        
+        byte[] path = new byte[length];
+        int end = length;
+        for (int i = index; i != ROOT; i = parents[i]) {
+            end -= nameLengths[i];
+            System.arraycopy(names, nameOffsets[i], path, end, nameLengths[i]);
+            if (end > 0) {
+                path[--end] = '/';
+            }
+        }
+        return new String(path, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Metadados da entrada como objeto, para uso pontual
+     */
+    public ArchiveEntryInfo toEntryInfo(int index) {
+        return new ArchiveEntryInfo(getPath(index), isDirectory(index), sizes[index], compressedSizes[index],
+            getCrc(index), lastModified[index], offsets[index], methods[index]);
+    }
+    
+    /**
+     * Estimativa dos bytes ocupados pela tabela
+     */
+    public long memoryBytes() {
+        long perEntry = 4L * 7 + 1 + 2 + 8L * 4;
+        return names.length + perEntry * nameOffsets.length + 4L * slots.length;
+    }
+    
+    /**
+     * Grava a tabela em formato binário
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(explicitCount);
+        out.writeInt(namesLength);
+        out.write(names, 0, namesLength);
+        
+        for (int i = 0; i < count; i++) {
+            out.writeInt(parents[i]);
+            out.writeInt(nameOffsets[i]);
+            out.writeInt(nameLengths[i]);
+            out.writeInt(hashes[i]);
+            out.writeByte(flags[i]);
+            out.writeShort(methods[i]);
+            out.writeInt(crcs[i]);
+            out.writeLong(sizes[i]);
+            out.writeLong(compressedSizes[i]);
+            out.writeLong(lastModified[i]);
+            out.writeLong(offsets[i]);
+        }
+    }
+    
+    /**
+     * Lê uma tabela gravada por {@link #writeTo(DataOutputStream)}
+     */
+    public static EntryTable readFrom(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        int explicitCount = in.readInt();
+        int namesLength = in.readInt();
+        if (count < 0 || explicitCount < 0 || explicitCount > count || namesLength < 0) {
+            throw new IOException("Tabela de entradas inválida");
+        }
+        
+        EntryTable table = new EntryTable(count);
+        table.names = new byte[namesLength];
+        in.readFully(table.names);
+        table.namesLength = namesLength;
+        table.explicitCount = explicitCount;
+        
+        for (int i = 0; i < count; i++) {
+            int parent = in.readInt();
+            int nameOffset = in.readInt();
+            int nameLength = in.readInt();
+            if (parent < ROOT || parent >= i || nameOffset < 0 || nameLength < 0
+                    || nameOffset + nameLength > namesLength) {
+                throw new IOException("Tabela de entradas inválida");
+            }
+            
+            table.parents[i] = parent;
+            table.nameOffsets[i] = nameOffset;
+            table.nameLengths[i] = nameLength;
+            table.hashes[i] = in.readInt();
+            table.flags[i] = in.readByte();
+            table.methods[i] = in.readShort();
+            table.crcs[i] = in.readInt();
+            table.sizes[i] = in.readLong();
+            table.compressedSizes[i] = in.readLong();
+            table.lastModified[i] = in.readLong();
+            table.offsets[i] = in.readLong();
+            table.link(i);
+        }
+        
+        table.trimToSize();
+        return table;
+    }
+    
+    /**
+     * Retorna a pasta do caminho, criando-a (e às pastas acima) como implícita se necessário
+     */
+    private int directoryFor(String path) {
+        int existing = find(path);
+        if (existing >= 0) {
+            return existing;
+        }
+        
+        int slash = path.lastIndexOf('/');
+        int parent = slash < 0 ? ROOT : directoryFor(path.substring(0, slash));
+        int index = append(parent, path.substring(slash + 1), path.hashCode(),
+            (byte) (FLAG_DIRECTORY | FLAG_IMPLICIT));
+        sizes[index] = -1;
+        compressedSizes[index] = -1;
+        lastModified[index] = -1;
+        offsets[index] = -1;
+        methods[index] = -1;
+        return index;
+    }
+    
+    private int append(int parent, String name, int hash, int entryFlags) {
+        if (count == parents.length) {
+            grow();
+        }
+        
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (namesLength + encoded.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + encoded.length));
+        }
+        System.arraycopy(encoded, 0, names, namesLength, encoded.length);
+        
+        int index = count++;
+        nameOffsets[index] = namesLength;
+        nameLengths[index] = encoded.length;
+        namesLength += encoded.length;
+        parents[index] = parent;
+        hashes[index] = hash;
+        flags[index] = (byte) entryFlags;
+        link(index);
+        return index;
+    }
+    
+    /**
+     * Liga a entrada à lista de filhos do pai e à tabela de espalhamento
+     */
+    private void link(int index) {
+        int parent = parents[index];
+        firstChildren[index] = -1;
+        if (parent == ROOT) {
+            nextSiblings[index] = rootFirstChild;
+            rootFirstChild = index;
+        } else {
+            nextSiblings[index] = firstChildren[parent];
+            firstChildren[parent] = index;
+        }
+        
+        if (index >= count) {
+            count = index + 1;
+        }
+        if ((long) count * 2 > slots.length) {
+            rehash(slotCapacity(count * 2));
+        } else {
+            insertSlot(index);
+        }
+    }
+    
+    private void insertSlot(int index) {
+        int mask = slots.length - 1;
+        int slot = mix(hashes[index]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = index + 1;
+    }
+    
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int i = 0; i < count; i++) {
+            insertSlot(i);
+        }
+    }
+    
+    /**
+     * Compara o caminho da entrada com o caminho informado, do fim para o início
+     */
+    private boolean pathEquals(int index, byte[] path) {
+        int end = path.length;
+        for (int i = index; i != ROOT; i = parents[i]) {
+            int length = nameLengths[i];
+            end -= length;
+            if (end < 0) {
+                return false;
+            }
+            
+            int offset = nameOffsets[i];
+            for (int j = 0; j < length; j++) {
+                if (names[offset + j] != path[end + j]) {
+                    return false;
+                }
+            }
+            
+            if (parents[i] != ROOT && (--end < 0 || path[end] != '/')) {
+                return false;
+            }
+        }
+        return end == 0;
+    }
+
+    private void allocate(int capacity) {
+        nameOffsets = new int[capacity];
+        nameLengths = new int[capacity];
+        parents = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        hashes = new int[capacity];
+        flags = new byte[capacity];
+        methods = new short[capacity];
+        crcs = new int[capacity];
+        sizes = new long[capacity];
+        compressedSizes = new long[capacity];
+        lastModified = new long[capacity];
+        offsets = new long[capacity];
+    }
+    
+    private void grow() {
+        int capacity = parents.length + (parents.length >> 1);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        methods = Arrays.copyOf(methods, capacity);
+        crcs = Arrays.copyOf(crcs, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        compressedSizes = Arrays.copyOf(compressedSizes, capacity);
+        lastModified = Arrays.copyOf(lastModified, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+    }
+    
+    private static int slotCapacity(int minimum) {
+        int capacity = 16;
+        while (capacity < minimum) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+    
+    /**
+     * Espalha os bits do hash, já que hashes de caminhos parecidos diferem pouco nos bits baixos
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
\ No newline at end of file
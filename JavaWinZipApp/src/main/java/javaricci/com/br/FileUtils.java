@@ -17,6 +17,12 @@ public class FileUtils {
     
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
     
+    /**
+     * Scanner compartilhado pelos totais de pastas; as threads são daemon e ficam
+     * disponíveis para as próximas chamadas
+     */
+    private static final DirectoryScanner SCANNER = new DirectoryScanner();
+    
     /**
      * Abre a localização de um arquivo no explorador do sistema
      */
@@ -185,40 +191,28 @@ public class FileUtils {
      * Conta o número total de arquivos em um diretório recursivamente
      */
     public static long countFilesInDirectory(File directory) {
-        if (!directory.isDirectory()) {
-            return 0;
-        }
-        
-        try {
-            return Files.walk(directory.toPath())
-                    .filter(Files::isRegularFile)
-                    .count();
-        } catch (IOException e) {
-            return 0;
-        }
+        return summarizeDirectory(directory)[0];
     }
     
     /**
      * Obtém o tamanho total de um diretório
      */
     public static long getDirectorySize(File directory) {
+        return summarizeDirectory(directory)[1];
+    }
+    
+    /**
+     * Conta arquivos e soma tamanhos com listagem paralela das subpastas
+     */
+    private static long[] summarizeDirectory(File directory) {
         if (!directory.isDirectory()) {
-            return 0;
+            return new long[2];
         }
         
         try {
-            return Files.walk(directory.toPath())
-                    .filter(Files::isRegularFile)
-                    .mapToLong(path -> {
-                        try {
-                            return Files.size(path);
-                        } catch (IOException e) {
-                            return 0;
-                        }
-                    })
-                    .sum();
+            return SCANNER.summarize(directory.toPath());
         } catch (IOException e) {
-            return 0;
+            return new long[2];
         }
     }
     
@@ -0,0 +1,65 @@
+package javaricci.com.br;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ícones de emoji pré-renderizados, compartilhados pelas janelas da aplicação.
+ *
+ * Cada emoji é desenhado uma única vez; botões e renderers de listas recebem a
+ * mesma instância em todas as chamadas, de modo que repintar uma lista não cria
+ * imagens novas.
+ */
+final class IconCache {
+    
+    private static final int ICON_SIZE = 16;
+    
+    private static final Map<String, Icon> ICONS = new ConcurrentHashMap<>();
+    
+    private static Font emojiFont;
+    
+    private IconCache() {
+    }
+    
+    /**
+     * Ícone do emoji, renderizado na primeira chamada
+     */
+    static Icon get(String emoji) {
+        return ICONS.computeIfAbsent(emoji, key -> new ImageIcon(render(key)));
+    }
+    
+    /**
+     * Renderiza os emojis antecipadamente, fora da EDT
+     */
+    static void preload(String... emojis) {
+        for (String emoji : emojis) {
+            get(emoji);
+        }
+    }
+    
+    private static Image render(String emoji) {
+        BufferedImage img = new BufferedImage(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = img.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(emojiFont());
+        FontMetrics fm = g2d.getFontMetrics();
+        int x = (ICON_SIZE - fm.stringWidth(emoji)) / 2;
+        int y = (ICON_SIZE - fm.getHeight()) / 2 + fm.getAscent();
+        g2d.drawString(emoji, x, y);
+        g2d.dispose();
+        return img;
+    }
+    
+    /**
+     * A busca da fonte pelo nome percorre as fontes do sistema; é feita uma vez
+     */
+    private static synchronized Font emojiFont() {
+        if (emojiFont == null) {
+            emojiFont = new Font("Segoe UI Emoji", Font.PLAIN, 12);
+        }
+        return emojiFont;
+    }
+}
\ No newline at end of file
@@ -4,10 +4,48 @@ import com.formdev.flatlaf.FlatLightLaf;
 import javaricci.com.br.MainFrame;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileSystemView;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.Duration;
+import java.time.Instant;
 
 public class JavaWinZipApp {
     
+    /**
+     * Classes das bibliotecas de compressão carregadas em segundo plano após a
+     * abertura da janela, para que a primeira operação não pague o carregamento
+     */
+    private static final String[] WARM_UP_CLASSES = {
+        "javaricci.com.br.CompressionService",
+        "javaricci.com.br.DecompressionService",
+        "javaricci.com.br.ArchiveIndex",
+        "org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream",
+        "org.apache.commons.compress.archivers.zip.ZipFile",
+        "org.apache.commons.compress.archivers.sevenz.SevenZFile",
+        "org.apache.commons.compress.archivers.tar.TarArchiveInputStream",
+        "org.apache.commons.compress.archivers.tar.TarArchiveOutputStream",
+        "org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream",
+        "org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream",
+        "org.tukaani.xz.LZMA2Options",
+        "org.tukaani.xz.LZMA2InputStream"
+    };
+    
     public static void main(String[] args) {
+        // Com argumentos, executar o modo de linha de comando sem abrir a interface
+        if (args.length > 0) {
+            System.exit(CommandLineTool.run(args));
+        }
+        
+        // Os ícones dos botões são renderizados enquanto o Look and Feel é carregado
+        Thread iconLoader = new Thread(MainFrame::preloadIcons, "javawinzip-icons");
+        iconLoader.setDaemon(true);
+        iconLoader.start();
+        
+        // Configurações do sistema, lidas ao inicializar o Look and Feel
+        System.setProperty("awt.useSystemAAFontSettings", "on");
+        System.setProperty("swing.aatext", "true");
+        
         // Configurar o Look and Feel
         try {
             UIManager.setLookAndFeel(new FlatLightLaf());
@@ -19,20 +57,60 @@ public class JavaWinZipApp {
             }
         }
         
-        // Configurações do sistema
-        System.setProperty("awt.useSystemAAFontSettings", "on");
-        System.setProperty("swing.aatext", "true");
-        
         // Executar na EDT
         SwingUtilities.invokeLater(() -> {
             try {
-                new MainFrame().setVisible(true);
+                MainFrame frame = new MainFrame();
+                frame.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowOpened(WindowEvent e) {
+                        long millis = millisSinceProcessStart();
+                        if (millis >= 0) {
+                            frame.showStartupTime(millis);
+                        }
+                        startWarmUp();
+                    }
+                });
+                frame.setVisible(true);
             } catch (Exception e) {
                 e.printStackTrace();
-                JOptionPane.showMessageDialog(null, 
+                JOptionPane.showMessageDialog(null,
                     "Erro ao iniciar a aplicação: " + e.getMessage(),
                     "Erro", JOptionPane.ERROR_MESSAGE);
             }
         });
     }
+    
+    /**
+     * Tempo desde o início do processo, ou -1 se o sistema não informar o início
+     */
+    private static long millisSinceProcessStart() {
+        return ProcessHandle.current().info().startInstant()
+            .map(start -> Duration.between(start, Instant.now()).toMillis())
+            .orElse(-1L);
+    }
+    
+    /**
+     * Carrega as bibliotecas de compressão e o sistema de arquivos usado pelos
+     * seletores de arquivo em uma thread de baixa prioridade
+     */
+    private static void startWarmUp() {
+        Thread thread = new Thread(() -> {
+            ClassLoader loader = JavaWinZipApp.class.getClassLoader();
+            for (String name : WARM_UP_CLASSES) {
+                try {
+                    Class.forName(name, true, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // Biblioteca ausente: o erro aparece na operação que a usar
+                }
+            }
+            
+            FileSystemView view = FileSystemView.getFileSystemView();
+            view.getRoots();
+            view.getDefaultDirectory();
+        }, "javawinzip-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
 }
\ No newline at end of file
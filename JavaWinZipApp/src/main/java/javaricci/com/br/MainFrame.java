@@ -12,6 +12,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Janela principal da aplicação JavaWinZip
@@ -19,15 +21,21 @@ import java.io.File;
 public class MainFrame extends JFrame {
     
     private JList<String> fileList;
+    private FileListCellRenderer fileListRenderer;
     private DefaultListModel<String> listModel;
     private JProgressBar progressBar;
     private JLabel statusLabel;
     private JButton compressButton;
     private JButton decompressButton;
+    private JButton browseButton;
+    private JButton searchButton;
+    private JButton testButton;
+    private JButton convertButton;
     private JButton addFilesButton;
     private JButton addFoldersButton;
     private JButton clearButton;
     
+    // Criados no primeiro uso, para não carregar as bibliotecas de compressão na abertura
     private CompressionService compressionService;
     private DecompressionService decompressionService;
     
@@ -35,15 +43,35 @@ public class MainFrame extends JFrame {
         initComponents();
         setupLayout();
         setupEventHandlers();
-        
-        compressionService = new CompressionService();
-        decompressionService = new DecompressionService();
+    }
+    
+    private synchronized CompressionService getCompressionService() {
+        if (compressionService == null) {
+            compressionService = new CompressionService();
+        }
+        return compressionService;
+    }
+    
+    private synchronized DecompressionService getDecompressionService() {
+        if (decompressionService == null) {
+            decompressionService = new DecompressionService();
+        }
+        return decompressionService;
+    }
+    
+    /**
+     * Mostra na barra de status o tempo até a janela ser exibida
+     *
+     * @param millis Tempo desde o início do processo
+     */
+    void showStartupTime(long millis) {
+        updateStatus(String.format("Pronto para usar (aberto em %d ms)", millis));
     }
     
     private void initComponents() {
         setTitle("JavaWinZip - Compactador de Arquivos");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(800, 600);
+        setSize(900, 600);
         setLocationRelativeTo(null);
         
         // Ícone da aplicação
@@ -57,7 +85,8 @@ public class MainFrame extends JFrame {
         listModel = new DefaultListModel<>();
         fileList = new JList<>(listModel);
         fileList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
-        fileList.setCellRenderer(new FileListCellRenderer());
+        fileListRenderer = new FileListCellRenderer();
+        fileList.setCellRenderer(fileListRenderer);
         
         // Botões
         addFilesButton = new JButton("Adicionar Arquivos");
@@ -73,6 +102,18 @@ public class MainFrame extends JFrame {
         decompressButton = new JButton("Descompactar");
         decompressButton.setIcon(createButtonIcon("📂"));
         
+        browseButton = new JButton("Navegar");
+        browseButton.setIcon(createButtonIcon("🔍"));
+        
+        searchButton = new JButton("Pesquisar");
+        searchButton.setIcon(createButtonIcon("🔎"));
+        
+        testButton = new JButton("Testar");
+        testButton.setIcon(createButtonIcon("✅"));
+        
+        convertButton = new JButton("Converter");
+        convertButton.setIcon(createButtonIcon("🔄"));
+        
         clearButton = new JButton("Limpar Lista");
         clearButton.setIcon(createButtonIcon("🗑️"));
         
@@ -96,6 +137,10 @@ public class MainFrame extends JFrame {
         topPanel.add(new JSeparator(SwingConstants.VERTICAL));
         topPanel.add(compressButton);
         topPanel.add(decompressButton);
+        topPanel.add(browseButton);
+        topPanel.add(searchButton);
+        topPanel.add(testButton);
+        topPanel.add(convertButton);
         topPanel.add(new JSeparator(SwingConstants.VERTICAL));
         topPanel.add(clearButton);
         
@@ -118,6 +163,10 @@ public class MainFrame extends JFrame {
         addFoldersButton.addActionListener(e -> addFolders());
         compressButton.addActionListener(e -> compressFiles());
         decompressButton.addActionListener(e -> decompressFile());
+        browseButton.addActionListener(e -> browseArchive());
+        searchButton.addActionListener(e -> searchArchive());
+        testButton.addActionListener(e -> testArchive());
+        convertButton.addActionListener(e -> convertArchive());
         clearButton.addActionListener(e -> clearList());
         
         // Atualizar botões quando a lista mudar
@@ -180,17 +229,63 @@ public class MainFrame extends JFrame {
         
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Salvar Arquivo Compactado");
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
-            "Arquivo ZIP (*.zip)", "zip"));
+        javax.swing.filechooser.FileNameExtensionFilter zipFilter =
+            new javax.swing.filechooser.FileNameExtensionFilter("Arquivo ZIP (*.zip)", "zip");
+        javax.swing.filechooser.FileNameExtensionFilter sevenZipFilter =
+            new javax.swing.filechooser.FileNameExtensionFilter("Arquivo 7-Zip sólido (*.7z)", "7z");
+        fileChooser.addChoosableFileFilter(zipFilter);
+        fileChooser.addChoosableFileFilter(sevenZipFilter);
+        fileChooser.setFileFilter(zipFilter);
+        
+        // Opção de manifesto de hashes
+        JComboBox<String> manifestComboBox = new JComboBox<>(new String[] {
+            "Sem manifesto",
+            "SHA-256 dentro do arquivo (CHECKSUMS)",
+            "SHA-256 em arquivo separado (.checksums)"
+        });
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 1, 2, 2));
+        optionsPanel.setBorder(new EmptyBorder(0, 10, 0, 0));
+        optionsPanel.add(new JLabel("Manifesto:"));
+        optionsPanel.add(manifestComboBox);
+        JCheckBox deduplicateCheckBox = new JCheckBox("Compactar arquivos idênticos uma vez");
+        optionsPanel.add(deduplicateCheckBox);
+        JComboBox<String> volumeComboBox = new JComboBox<>(new String[] {
+            "Sem divisão", "100M", "700M", "4G"
+        });
+        volumeComboBox.setEditable(true);
+        optionsPanel.add(new JLabel("Dividir em volumes de:"));
+        optionsPanel.add(volumeComboBox);
+        JPanel accessory = new JPanel(new BorderLayout());
+        accessory.add(optionsPanel, BorderLayout.NORTH);
+        fileChooser.setAccessory(accessory);
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
             File outputFile = fileChooser.getSelectedFile();
-            if (!outputFile.getName().toLowerCase().endsWith(".zip")) {
-                outputFile = new File(outputFile.getAbsolutePath() + ".zip");
+            String outputName = outputFile.getName().toLowerCase();
+            if (!outputName.endsWith(".zip") && !outputName.endsWith(".7z")) {
+                String extension = fileChooser.getFileFilter() == sevenZipFilter ? ".7z" : ".zip";
+                outputFile = new File(outputFile.getAbsolutePath() + extension);
+            }
+            
+            CompressionOptions options = new CompressionOptions();
+            if (volumeComboBox.getSelectedIndex() != 0) {
+                try {
+                    long volumeSize = MemoryBudget.parseSize(String.valueOf(volumeComboBox.getSelectedItem()).trim());
+                    if (volumeSize < VolumeWriter.MIN_VOLUME_SIZE) {
+                        throw new IllegalArgumentException();
+                    }
+                    options.setVolumeSize(volumeSize);
+                } catch (IllegalArgumentException e) {
+                    JOptionPane.showMessageDialog(this,
+                        "Tamanho de volume inválido (mínimo 64K): " + volumeComboBox.getSelectedItem(),
+                        "Aviso", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
             }
             
             // Verificar se o arquivo já existe
-            if (outputFile.exists()) {
+            File firstFile = options.getVolumeSize() > 0 ? ArchiveVolumes.volumeFile(outputFile, 1) : outputFile;
+            if (firstFile.exists()) {
                 int result = JOptionPane.showConfirmDialog(this,
                     "O arquivo já existe. Deseja substituí-lo?",
                     "Confirmar", JOptionPane.YES_NO_OPTION);
@@ -199,11 +294,19 @@ public class MainFrame extends JFrame {
                 }
             }
             
-            compressFilesAsync(outputFile);
+            options.setDeduplicate(deduplicateCheckBox.isSelected());
+            if (manifestComboBox.getSelectedIndex() > 0) {
+                options.setDigests(java.util.EnumSet.of(DigestAlgorithm.SHA_256));
+                options.setManifestTarget(manifestComboBox.getSelectedIndex() == 1
+                    ? CompressionOptions.ManifestTarget.ENTRY
+                    : CompressionOptions.ManifestTarget.SIDECAR);
+            }
+            
+            compressFilesAsync(outputFile, options);
         }
     }
     
-    private void compressFilesAsync(File outputFile) {
+    private void compressFilesAsync(File outputFile, CompressionOptions options) {
         SwingWorker<Void, String> worker = new SwingWorker<Void, String>() {
             @Override
             protected Void doInBackground() throws Exception {
@@ -218,7 +321,7 @@ public class MainFrame extends JFrame {
                     files[i] = new File(listModel.get(i));
                 }
                 
-                compressionService.compressFiles(files, outputFile, 
+                getCompressionService().compressFiles(files, outputFile, options,
                     (progress, message) -> {
                         if (progress >= 0) {
                             progressBar.setIndeterminate(false);
@@ -250,7 +353,8 @@ public class MainFrame extends JFrame {
                         "Sucesso", JOptionPane.YES_NO_OPTION);
                     
                     if (result == JOptionPane.YES_OPTION) {
-                        FileUtils.openFileLocation(outputFile);
+                        FileUtils.openFileLocation(options.getVolumeSize() > 0
+                            ? ArchiveVolumes.volumeFile(outputFile, 1) : outputFile);
                     }
                     
                 } catch (Exception e) {
@@ -274,8 +378,8 @@ public class MainFrame extends JFrame {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Selecionar Arquivo para Descompactar");
         fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
-            "Arquivos Compactados (*.zip, *.7z, *.tar, *.gz)", 
-            "zip", "7z", "tar", "gz", "rar"));
+            "Arquivos Compactados (*.zip, *.7z, *.tar, *.gz, *.001)", 
+            "zip", "7z", "tar", "gz", "rar", "001"));
         
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             File inputFile = fileChooser.getSelectedFile();
@@ -301,7 +405,7 @@ public class MainFrame extends JFrame {
                 
                 publish("Iniciando descompactação...");
                 
-                decompressionService.decompressFile(inputFile, outputFolder,
+                getDecompressionService().decompressFile(inputFile, outputFolder,
                     (progress, message) -> {
                         if (progress >= 0) {
                             progressBar.setIndeterminate(false);
@@ -353,8 +457,298 @@ public class MainFrame extends JFrame {
         worker.execute();
     }
     
+    private void browseArchive() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Selecionar Arquivo para Navegar");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Arquivos Compactados (*.zip, *.7z, *.tar, *.gz)", 
+            "zip", "7z", "tar", "gz", "tgz"));
+        
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            new ArchiveBrowserDialog(this, fileChooser.getSelectedFile()).setVisible(true);
+        }
+    }
+    
+    private void searchArchive() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Selecionar Arquivo para Pesquisar");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Arquivos Compactados (*.zip, *.7z, *.tar, *.gz)", 
+            "zip", "7z", "tar", "gz", "tgz"));
+        
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        JTextField queryField = new JTextField(30);
+        JTextField patternField = new JTextField(30);
+        JCheckBox regexCheckBox = new JCheckBox("Expressão regular");
+        JCheckBox ignoreCaseCheckBox = new JCheckBox("Ignorar maiúsculas/minúsculas");
+        
+        JPanel panel = new JPanel(new GridLayout(0, 1, 2, 2));
+        panel.add(new JLabel("Texto a pesquisar:"));
+        panel.add(queryField);
+        panel.add(new JLabel("Entradas (ex.: *.log; opcional):"));
+        panel.add(patternField);
+        panel.add(regexCheckBox);
+        panel.add(ignoreCaseCheckBox);
+        
+        int result = JOptionPane.showConfirmDialog(this, panel, "Pesquisar no Arquivo",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (result != JOptionPane.OK_OPTION || queryField.getText().isEmpty()) {
+            return;
+        }
+        
+        EntryFilter filter = new EntryFilter();
+        for (String pattern : patternField.getText().split(";")) {
+            if (!pattern.trim().isEmpty()) {
+                filter.include(pattern.trim());
+            }
+        }
+        
+        searchArchiveAsync(fileChooser.getSelectedFile(), queryField.getText(),
+            regexCheckBox.isSelected(), ignoreCaseCheckBox.isSelected(), filter);
+    }
+    
+    private void searchArchiveAsync(File archive, String query, boolean regex, boolean ignoreCase,
+                                    EntryFilter filter) {
+        SwingWorker<java.util.List<ArchiveSearchService.SearchMatch>, String> worker =
+            new SwingWorker<java.util.List<ArchiveSearchService.SearchMatch>, String>() {
+            @Override
+            protected java.util.List<ArchiveSearchService.SearchMatch> doInBackground() throws Exception {
+                setButtonsEnabled(false);
+                progressBar.setIndeterminate(true);
+                
+                return new ArchiveSearchService().search(archive, query, regex, ignoreCase, filter,
+                    (progress, message) -> publish(message));
+            }
+            
+            @Override
+            protected void process(java.util.List<String> chunks) {
+                updateStatus(chunks.get(chunks.size() - 1));
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    java.util.List<ArchiveSearchService.SearchMatch> matches = get();
+                    progressBar.setIndeterminate(false);
+                    updateStatus("Pesquisa concluída: " + matches.size() + " linha(s) encontrada(s)");
+                    showSearchResults(archive, matches);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                        "Erro durante a pesquisa: " + e.getMessage(),
+                        "Erro", JOptionPane.ERROR_MESSAGE);
+                    updateStatus("Erro na pesquisa");
+                } finally {
+                    progressBar.setIndeterminate(false);
+                    setButtonsEnabled(true);
+                    progressBar.setValue(0);
+                    progressBar.setString("Pronto");
+                }
+            }
+        };
+        
+        worker.execute();
+    }
+    
+    private void showSearchResults(File archive, java.util.List<ArchiveSearchService.SearchMatch> matches) {
+        StringBuilder text = new StringBuilder();
+        for (ArchiveSearchService.SearchMatch match : matches) {
+            text.append(match.getEntryName()).append(':').append(match.getLineNumber())
+                .append(" (byte ").append(match.getOffset()).append("): ")
+                .append(match.getLine()).append('\n');
+        }
+        if (matches.isEmpty()) {
+            text.append("Nenhuma ocorrência encontrada.");
+        }
+        
+        JTextArea textArea = new JTextArea(text.toString(), 25, 80);
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        textArea.setCaretPosition(0);
+        
+        JDialog dialog = new JDialog(this, "Resultados: " + archive.getName(), false);
+        dialog.add(new JScrollPane(textArea));
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+    
+    private void testArchive() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Selecionar Arquivo para Testar");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Arquivos Compactados (*.zip, *.7z, *.tar, *.gz)", 
+            "zip", "7z", "tar", "gz", "tgz"));
+        
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            testArchiveAsync(fileChooser.getSelectedFile());
+        }
+    }
+    
+    private void testArchiveAsync(File archive) {
+        SwingWorker<java.util.List<ArchiveTestService.EntryTestResult>, String> worker =
+            new SwingWorker<java.util.List<ArchiveTestService.EntryTestResult>, String>() {
+            @Override
+            protected java.util.List<ArchiveTestService.EntryTestResult> doInBackground() throws Exception {
+                setButtonsEnabled(false);
+                progressBar.setIndeterminate(true);
+                
+                return new ArchiveTestService().testArchive(archive, (progress, message) -> publish(message));
+            }
+            
+            @Override
+            protected void process(java.util.List<String> chunks) {
+                updateStatus(chunks.get(chunks.size() - 1));
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    java.util.List<ArchiveTestService.EntryTestResult> report = get();
+                    
+                    StringBuilder text = new StringBuilder();
+                    int failures = 0;
+                    for (ArchiveTestService.EntryTestResult result : report) {
+                        if (!result.isOk()) {
+                            failures++;
+                        }
+                        text.append(result).append('\n');
+                    }
+                    
+                    String summary = failures == 0
+                        ? "Nenhum erro encontrado em " + report.size() + " entradas."
+                        : failures + " erro(s) encontrado(s) em " + report.size() + " entradas.";
+                    updateStatus("Teste concluído: " + summary);
+                    
+                    JTextArea textArea = new JTextArea(summary + "\n\n" + text, 25, 80);
+                    textArea.setEditable(false);
+                    textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+                    textArea.setCaretPosition(0);
+                    
+                    JOptionPane.showMessageDialog(MainFrame.this, new JScrollPane(textArea),
+                        "Teste: " + archive.getName(),
+                        failures == 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                        "Erro durante o teste: " + e.getMessage(),
+                        "Erro", JOptionPane.ERROR_MESSAGE);
+                    updateStatus("Erro no teste");
+                } finally {
+                    progressBar.setIndeterminate(false);
+                    setButtonsEnabled(true);
+                    progressBar.setValue(0);
+                    progressBar.setString("Pronto");
+                }
+            }
+        };
+        
+        worker.execute();
+    }
+    
+    private void convertArchive() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Selecionar Arquivo para Converter");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Arquivos Compactados (*.zip, *.7z, *.tar, *.gz)", 
+            "zip", "7z", "tar", "gz", "tgz"));
+        
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File source = fileChooser.getSelectedFile();
+        
+        JFileChooser saveChooser = new JFileChooser(source.getParentFile());
+        saveChooser.setDialogTitle("Salvar Arquivo Convertido");
+        String[][] formats = {
+            {"Arquivo ZIP (*.zip)", "zip", ".zip"},
+            {"Arquivo 7-Zip sólido (*.7z)", "7z", ".7z"},
+            {"Arquivo TAR (*.tar)", "tar", ".tar"},
+            {"Arquivo TAR.GZ (*.tar.gz)", "gz", ".tar.gz"}
+        };
+        java.util.Map<javax.swing.filechooser.FileFilter, String> extensions = new java.util.HashMap<>();
+        for (String[] format : formats) {
+            javax.swing.filechooser.FileNameExtensionFilter filter =
+                new javax.swing.filechooser.FileNameExtensionFilter(format[0], format[1]);
+            saveChooser.addChoosableFileFilter(filter);
+            extensions.put(filter, format[2]);
+        }
+        saveChooser.setFileFilter(saveChooser.getChoosableFileFilters()[1]);
+        
+        if (saveChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        File target = saveChooser.getSelectedFile();
+        if (ArchiveType.fromFile(target) == null) {
+            target = new File(target.getAbsolutePath()
+                + extensions.getOrDefault(saveChooser.getFileFilter(), ".zip"));
+        }
+        
+        if (target.exists()) {
+            int result = JOptionPane.showConfirmDialog(this,
+                "O arquivo já existe. Deseja substituí-lo?",
+                "Confirmar", JOptionPane.YES_NO_OPTION);
+            if (result != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        
+        convertArchiveAsync(source, target);
+    }
+    
+    private void convertArchiveAsync(File source, File target) {
+        SwingWorker<Integer, String> worker = new SwingWorker<Integer, String>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                setButtonsEnabled(false);
+                progressBar.setIndeterminate(true);
+                
+                return new ArchiveTranscoder().transcode(source, target, (progress, message) -> publish(message));
+            }
+            
+            @Override
+            protected void process(java.util.List<String> chunks) {
+                updateStatus(chunks.get(chunks.size() - 1));
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    int entryCount = get();
+                    updateStatus("Conversão concluída: " + entryCount + " entradas.");
+                    
+                    int result = JOptionPane.showConfirmDialog(MainFrame.this,
+                        "Conversão concluída! Deseja abrir a pasta de destino?",
+                        "Sucesso", JOptionPane.YES_NO_OPTION);
+                    
+                    if (result == JOptionPane.YES_OPTION) {
+                        FileUtils.openFileLocation(target);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                        "Erro durante a conversão: " + e.getMessage(),
+                        "Erro", JOptionPane.ERROR_MESSAGE);
+                    updateStatus("Erro na conversão");
+                } finally {
+                    progressBar.setIndeterminate(false);
+                    setButtonsEnabled(true);
+                    progressBar.setValue(0);
+                    progressBar.setString("Pronto");
+                }
+            }
+        };
+        
+        worker.execute();
+    }
+    
     private void clearList() {
         listModel.clear();
+        fileListRenderer.directories.clear();
         updateStatus("Lista limpa");
     }
     
@@ -368,6 +762,10 @@ public class MainFrame extends JFrame {
         addFoldersButton.setEnabled(enabled);
         compressButton.setEnabled(enabled && !listModel.isEmpty());
         decompressButton.setEnabled(enabled);
+        browseButton.setEnabled(enabled);
+        searchButton.setEnabled(enabled);
+        testButton.setEnabled(enabled);
+        convertButton.setEnabled(enabled);
         clearButton.setEnabled(enabled);
     }
     
@@ -390,27 +788,24 @@ public class MainFrame extends JFrame {
         return img;
     }
     
-    private Icon createButtonIcon(String emoji) {
-        return new ImageIcon(createEmojiIcon(emoji));
+    /**
+     * Renderiza os ícones da janela antes da sua construção
+     */
+    static void preloadIcons() {
+        IconCache.preload("📄", "📁", "📦", "📂", "🔍", "🔎", "✅", "🔄", "🗑️");
     }
     
-    private Image createEmojiIcon(String emoji) {
-        BufferedImage img = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = img.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 12));
-        FontMetrics fm = g2d.getFontMetrics();
-        int x = (16 - fm.stringWidth(emoji)) / 2;
-        int y = (16 - fm.getHeight()) / 2 + fm.getAscent();
-        g2d.drawString(emoji, x, y);
-        g2d.dispose();
-        return img;
+    private Icon createButtonIcon(String emoji) {
+        return IconCache.get(emoji);
     }
     
     /**
      * Renderer customizado para a lista de arquivos
      */
     private class FileListCellRenderer extends DefaultListCellRenderer {
+        // Evita consultar o sistema de arquivos a cada repintura da lista
+        private final Map<String, Boolean> directories = new HashMap<>();
+        
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value, 
                 int index, boolean isSelected, boolean cellHasFocus) {
@@ -421,7 +816,7 @@ public class MainFrame extends JFrame {
                 File file = new File(value.toString());
                 setText(file.getName() + " (" + file.getAbsolutePath() + ")");
                 
-                if (file.isDirectory()) {
+                if (directories.computeIfAbsent(value.toString(), path -> file.isDirectory())) {
                     setIcon(createButtonIcon("📁"));
                 } else {
                     setIcon(createButtonIcon("📄"));
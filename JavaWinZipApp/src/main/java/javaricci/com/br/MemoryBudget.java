@@ -0,0 +1,236 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.MemoryLimitException;
+import org.apache.commons.compress.archivers.sevenz.SevenZFileOptions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limite global de memória para as operações de compactação e extração, para
+ * execução em contêineres com pouca memória.
+ *
+ * O limite é aplicado aos decodificadores 7z e XZ (dicionários LZMA e banco de
+ * cabeçalhos do 7z), ao número de threads dos caminhos paralelos e às reservas de
+ * buffers grandes, como o conteúdo de uma entrada lida inteira em memória. Um
+ * arquivo que exigiria mais que o limite falha logo no início, com uma mensagem
+ * que informa a memória necessária, em vez de esgotar o heap.
+ *
+ * O limite padrão é três quartos do heap máximo da JVM, ou o valor da propriedade
+ * de sistema {@value #LIMIT_PROPERTY} (em bytes, com sufixos K, M ou G).
+ */
+public class MemoryBudget {
+    
+    /**
+     * Propriedade de sistema com o limite padrão
+     */
+    public static final String LIMIT_PROPERTY = "javawinzip.memory";
+    
+    private static MemoryBudget defaultBudget;
+    
+    private final long limit;
+    private long reserved;
+    private final Map<Thread, Long> held = new HashMap<>();
+    
+    /**
+     * Memória reservada por uma operação, devolvida ao fechar
+     */
+    public class Reservation implements AutoCloseable {
+        private final Thread owner;
+        private long bytes;
+        
+        private Reservation(Thread owner, long bytes) {
+            this.owner = owner;
+            this.bytes = bytes;
+        }
+        
+        @Override
+        public void close() {
+            synchronized (MemoryBudget.this) {
+                reserved -= bytes;
+                held.computeIfPresent(owner, (thread, total) -> total == bytes ? null : total - bytes);
+                bytes = 0;
+                MemoryBudget.this.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * @param limit Limite em bytes
+     */
+    public MemoryBudget(long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limite de memória inválido: " + limit);
+        }
+        this.limit = limit;
+    }
+    
+    /**
+     * Limite usado pela aplicação, definido pela propriedade de sistema ou pelo heap
+     * máximo
+     */
+    public static synchronized MemoryBudget getDefault() {
+        if (defaultBudget == null) {
+            String property = System.getProperty(LIMIT_PROPERTY);
+            defaultBudget = new MemoryBudget(property != null
+                ? parseSize(property)
+                : Runtime.getRuntime().maxMemory() / 4 * 3);
+        }
+        return defaultBudget;
+    }
+    
+    /**
+     * Substitui o limite usado pela aplicação; vale para as operações iniciadas depois
+     */
+    public static synchronized void setDefault(MemoryBudget budget) {
+        defaultBudget = budget;
+    }
+    
+    /**
+     * Converte um tamanho como 512M ou 2G em bytes
+     */
+    public static long parseSize(String value) {
+        String number = value.trim().toUpperCase();
+        long multiplier = 1;
+        if (number.endsWith("K")) {
+            multiplier = 1024;
+        } else if (number.endsWith("M")) {
+            multiplier = 1024 * 1024;
+        } else if (number.endsWith("G")) {
+            multiplier = 1024 * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            number = number.substring(0, number.length() - 1);
+        }
+        
+        try {
+            long size = Long.parseLong(number) * multiplier;
+            if (size <= 0) {
+                throw new NumberFormatException();
+            }
+            return size;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Tamanho inválido: " + value);
+        }
+    }
+    
+    public long getLimit() {
+        return limit;
+    }
+    
+    /**
+     * Limite em KiB, no formato esperado pelos decodificadores
+     */
+    public int getLimitInKb() {
+        return (int) Math.min(Integer.MAX_VALUE, limit / 1024);
+    }
+    
+    /**
+     * Bytes reservados no momento
+     */
+    public synchronized long getReserved() {
+        return reserved;
+    }
+    
+    /**
+     * Opções de leitura de 7z com o limite aplicado ao banco de cabeçalhos e aos
+     * dicionários dos decodificadores
+     *
+     * @param readers Quantidade de leitores abertos ao mesmo tempo, que dividem o limite
+     */
+    public SevenZFileOptions sevenZOptions(int readers) {
+        return SevenZFileOptions.builder()
+            .withMaxMemoryLimitInKb(Math.max(1, getLimitInKb() / Math.max(1, readers)))
+            .build();
+    }
+    
+    /**
+     * Número de threads que cabem no limite
+     *
+     * @param requested Threads desejadas
+     * @param bytesPerWorker Memória usada por thread
+     * @param purpose Descrição da operação, usada na mensagem de erro
+     * @throws IOException Se nem uma thread couber no limite
+     */
+    public int workers(int requested, long bytesPerWorker, String purpose) throws IOException {
+        check(bytesPerWorker, purpose);
+        return (int) Math.max(1, Math.min(requested, limit / Math.max(1, bytesPerWorker)));
+    }
+    
+    /**
+     * Falha se a quantidade nunca puder caber no limite
+     *
+     * @throws IOException Com a memória necessária e o limite na mensagem
+     */
+    public void check(long bytes, String purpose) throws IOException {
+        if (bytes > limit) {
+            throw exceeded(new MemoryLimitException(bytes / 1024, getLimitInKb()), purpose);
+        }
+    }
+    
+    /**
+     * Reserva memória para uma operação, aguardando enquanto outras reservas ocupam
+     * o limite
+     *
+     * @throws IOException Se a quantidade for maior que o próprio limite ou, somada às
+     *                     reservas já feitas pela mesma thread, não couber nele
+     */
+    public Reservation reserve(long bytes, String purpose) throws IOException {
+        check(bytes, purpose);
+        Thread current = Thread.currentThread();
+        synchronized (this) {
+            // Aguardar a memória que a própria thread reservou nunca terminaria
+            long own = held.getOrDefault(current, 0L);
+            if (own + bytes > limit) {
+                throw exceeded(new MemoryLimitException((own + bytes) / 1024, getLimitInKb()), purpose);
+            }
+            while (reserved + bytes > limit) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Aguardando memória: " + purpose);
+                }
+            }
+            reserved += bytes;
+            if (bytes > 0) {
+                held.merge(current, bytes, Long::sum);
+            }
+        }
+        return new Reservation(current, bytes);
+    }
+    
+    /**
+     * Reserva memória somente se ela couber agora, sem aguardar
+     *
+     * @return A reserva, ou null se o limite estiver ocupado
+     */
+    public synchronized Reservation tryReserve(long bytes) {
+        if (reserved + bytes > limit) {
+            return null;
+        }
+        Thread current = Thread.currentThread();
+        reserved += bytes;
+        if (bytes > 0) {
+            held.merge(current, bytes, Long::sum);
+        }
+        return new Reservation(current, bytes);
+    }
+    
+    /**
+     * Converte o erro de limite de memória de um decodificador em uma mensagem clara
+     *
+     * @param purpose Arquivo ou operação que excedeu o limite
+     */
+    public static IOException exceeded(MemoryLimitException e, String purpose) {
+        return new IOException(String.format(
+            "Memória insuficiente para %s: são necessários %s, acima do limite de %s "
+                + "(ajuste com -D%s=tamanho)",
+            purpose,
+            FileUtils.formatFileSize(e.getMemoryNeededInKb() * 1024),
+            FileUtils.formatFileSize(e.getMemoryLimitInKb() * 1024L),
+            LIMIT_PROPERTY), e);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,341 @@
+package javaricci.com.br;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Limites de uso de disco e CPU para compactações e extrações em segundo plano,
+ * para não prejudicar outros serviços da mesma máquina.
+ *
+ * <ul>
+ * <li>Banda de leitura e de gravação limitada por token bucket, com rajadas de até
+ *     100 ms da taxa configurada;</li>
+ * <li>Número máximo de threads de trabalho;</li>
+ * <li>Fração de CPU de cada thread: após cada trecho de processamento a thread
+ *     dorme o tempo proporcional para manter o ciclo de trabalho configurado;</li>
+ * <li>Baixa prioridade: a latência das próprias operações de disco é comparada com
+ *     a menor latência observada; quando ela sobe (outros processos disputando o
+ *     disco), o trabalho recua e passa a ocupar uma fração menor do tempo,
+ *     retomando aos poucos quando a latência normaliza.</li>
+ * </ul>
+ *
+ * Uma mesma instância pode ser usada por vários serviços ao mesmo tempo; a banda
+ * é então dividida entre todos eles. Os valores podem ser alterados durante a
+ * execução. Uma instância nova não tem limites, e os streams abertos enquanto não
+ * há limites configurados são usados diretamente.
+ */
+public class ResourceLimits {
+    
+    /** Menor fração do tempo que o modo de baixa prioridade mantém em uso */
+    private static final double MIN_BACKOFF_FACTOR = 1.0 / 16;
+    
+    /** Aumento de latência em relação à referência que caracteriza disputa pelo disco */
+    private static final double CONTENTION_THRESHOLD = 2.0;
+    
+    /** Trecho de CPU acumulado antes de cada pausa do ciclo de trabalho */
+    private static final long CPU_SLICE_NANOS = 20_000_000L;
+    
+    /** Operações menores que isto não entram na medição de latência */
+    private static final int MIN_LATENCY_SAMPLE = 4096;
+    
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean THREAD_CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+    
+    /**
+     * Token bucket de uma direção de E/S
+     */
+    private static class TokenBucket {
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        
+        /**
+         * Consome os bytes e retorna quanto tempo a thread deve esperar para
+         * respeitar a taxa
+         */
+        synchronized long consume(long bytes, long bytesPerSecond) {
+            long now = System.nanoTime();
+            double burst = Math.max(64 * 1024, bytesPerSecond / 10.0);
+            tokens = Math.min(burst, tokens + (now - lastRefill) * bytesPerSecond / 1e9);
+            lastRefill = now;
+            tokens -= bytes;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / bytesPerSecond);
+        }
+    }
+    
+    /**
+     * Tempo de CPU da thread desde a última pausa do ciclo de trabalho
+     */
+    private static final ThreadLocal<long[]> CPU_MARK = ThreadLocal.withInitial(() -> new long[] {threadTime()});
+    
+    private volatile long readBytesPerSecond;
+    private volatile long writeBytesPerSecond;
+    private volatile int maxThreads;
+    private volatile double cpuShare = 1.0;
+    private volatile boolean lowPriority;
+    
+    private final TokenBucket readBucket = new TokenBucket();
+    private final TokenBucket writeBucket = new TokenBucket();
+    
+    private double baselineLatency;
+    private double recentLatency;
+    private double backoffFactor = 1.0;
+    
+    /**
+     * Banda máxima de leitura em bytes por segundo (0 sem limite)
+     */
+    public long getReadBytesPerSecond() {
+        return readBytesPerSecond;
+    }
+    
+    public void setReadBytesPerSecond(long readBytesPerSecond) {
+        this.readBytesPerSecond = Math.max(0, readBytesPerSecond);
+    }
+    
+    /**
+     * Banda máxima de gravação em bytes por segundo (0 sem limite)
+     */
+    public long getWriteBytesPerSecond() {
+        return writeBytesPerSecond;
+    }
+    
+    public void setWriteBytesPerSecond(long writeBytesPerSecond) {
+        this.writeBytesPerSecond = Math.max(0, writeBytesPerSecond);
+    }
+    
+    /**
+     * Número máximo de threads de trabalho (0 sem limite)
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+    
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = Math.max(0, maxThreads);
+    }
+    
+    /**
+     * Fração do tempo em que cada thread de trabalho pode ocupar a CPU, de 0,01 a 1
+     */
+    public double getCpuShare() {
+        return cpuShare;
+    }
+    
+    public void setCpuShare(double cpuShare) {
+        this.cpuShare = Math.max(0.01, Math.min(1.0, cpuShare));
+    }
+    
+    /**
+     * Recua quando a latência do disco sobe, cedendo espaço a outros processos
+     */
+    public boolean isLowPriority() {
+        return lowPriority;
+    }
+    
+    public void setLowPriority(boolean lowPriority) {
+        this.lowPriority = lowPriority;
+    }
+    
+    /**
+     * Indica se algum limite está configurado
+     */
+    public boolean isLimited() {
+        return readBytesPerSecond > 0 || writeBytesPerSecond > 0 || cpuShare < 1.0 || lowPriority;
+    }
+    
+    /**
+     * Quantidade de threads a usar para o número pedido
+     */
+    public int limitThreads(int requested) {
+        int limit = maxThreads;
+        return limit > 0 ? Math.max(1, Math.min(requested, limit)) : requested;
+    }
+    
+    /**
+     * Aplica os limites de leitura ao stream. Sem limites o próprio stream é retornado.
+     */
+    public InputStream throttle(InputStream in) {
+        if (!isLimited()) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                long start = System.nanoTime();
+                int value = super.read();
+                afterRead(value < 0 ? 0 : 1, System.nanoTime() - start);
+                return value;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                int read = super.read(b, off, len);
+                afterRead(Math.max(0, read), System.nanoTime() - start);
+                return read;
+            }
+        };
+    }
+    
+    /**
+     * Aplica os limites de gravação ao stream. Sem limites o próprio stream é retornado.
+     */
+    public OutputStream throttle(OutputStream out) {
+        if (!isLimited()) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                long start = System.nanoTime();
+                out.write(b);
+                afterWrite(1, System.nanoTime() - start);
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                out.write(b, off, len);
+                afterWrite(len, System.nanoTime() - start);
+            }
+        };
+    }
+    
+    /**
+     * Aplica os limites de leitura e gravação ao canal. Sem limites o próprio canal
+     * é retornado.
+     */
+    public SeekableByteChannel throttle(SeekableByteChannel channel) {
+        if (!isLimited()) {
+            return channel;
+        }
+        return new SeekableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                long start = System.nanoTime();
+                int read = channel.read(dst);
+                afterRead(Math.max(0, read), System.nanoTime() - start);
+                return read;
+            }
+            
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                long start = System.nanoTime();
+                int written = channel.write(src);
+                afterWrite(written, System.nanoTime() - start);
+                return written;
+            }
+            
+            @Override
+            public long position() throws IOException {
+                return channel.position();
+            }
+            
+            @Override
+            public SeekableByteChannel position(long newPosition) throws IOException {
+                channel.position(newPosition);
+                return this;
+            }
+            
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+            
+            @Override
+            public SeekableByteChannel truncate(long size) throws IOException {
+                channel.truncate(size);
+                return this;
+            }
+            
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+            
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+    
+    private void afterRead(long bytes, long nanos) throws InterruptedIOException {
+        long rate = readBytesPerSecond;
+        long wait = rate > 0 && bytes > 0 ? readBucket.consume(bytes, rate) : 0;
+        pause(wait, bytes, nanos);
+    }
+    
+    private void afterWrite(long bytes, long nanos) throws InterruptedIOException {
+        long rate = writeBytesPerSecond;
+        long wait = rate > 0 && bytes > 0 ? writeBucket.consume(bytes, rate) : 0;
+        pause(wait, bytes, nanos);
+    }
+    
+    /**
+     * Soma as esperas de banda, de baixa prioridade e do ciclo de CPU e dorme uma
+     * única vez
+     */
+    private void pause(long bandwidthWait, long bytes, long ioNanos) throws InterruptedIOException {
+        long wait = bandwidthWait;
+        
+        if (lowPriority && bytes >= MIN_LATENCY_SAMPLE) {
+            wait = Math.max(wait, backoffDelay(bytes, ioNanos));
+        }
+        
+        double share = cpuShare;
+        long[] mark = CPU_MARK.get();
+        boolean sliceEnded = share >= 1.0;
+        if (!sliceEnded) {
+            long used = threadTime() - mark[0];
+            if (used >= CPU_SLICE_NANOS) {
+                wait = Math.max(wait, (long) (used * (1 - share) / share));
+                sliceEnded = true;
+            }
+        }
+        
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Operação interrompida");
+            }
+        }
+        
+        // Sem limite de CPU a marca acompanha a thread, para que um limite aplicado
+        // depois não cobre o tempo já decorrido
+        if (sliceEnded) {
+            mark[0] = threadTime();
+        }
+    }
+    
+    /**
+     * Atualiza a latência observada e retorna a pausa que mantém o uso do disco na
+     * fração atual
+     */
+    private synchronized long backoffDelay(long bytes, long ioNanos) {
+        double latency = (double) ioNanos / bytes;
+        
+        if (baselineLatency == 0 || latency < baselineLatency) {
+            baselineLatency = latency;
+        } else {
+            // A referência sobe devagar para acompanhar mudanças permanentes do disco
+            baselineLatency += (latency - baselineLatency) * 0.001;
+        }
+        recentLatency = recentLatency == 0 ? latency : recentLatency + (latency - recentLatency) * 0.2;
+        
+        if (recentLatency > baselineLatency * CONTENTION_THRESHOLD) {
+            backoffFactor = Math.max(MIN_BACKOFF_FACTOR, backoffFactor * 0.7);
+        } else {
+            backoffFactor = Math.min(1.0, backoffFactor * 1.05);
+        }
+        return (long) (ioNanos * (1 / backoffFactor - 1));
+    }
+    
+    private static long threadTime() {
+        return THREAD_CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
\ No newline at end of file
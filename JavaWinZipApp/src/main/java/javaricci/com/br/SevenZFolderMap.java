@@ -0,0 +1,476 @@
+package javaricci.com.br;
+
+import org.tukaani.xz.LZMA2InputStream;
+import org.tukaani.xz.LZMAInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Leitura do bloco (folder) de cada entrada de um arquivo 7z e da memória dos
+ * decodificadores, que o SevenZFile não expõe.
+ *
+ * Só o cabeçalho é lido: o cabeçalho comum, gravado pelo {@link SolidSevenZWriter}, e o
+ * cabeçalho compactado com LZMA ou LZMA2, usado pelo 7-Zip. Cabeçalhos cifrados ou com
+ * outros métodos não são interpretados.
+ */
+final class SevenZFolderMap {
+    
+    private static final byte[] SIGNATURE = {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C};
+    
+    private static final int K_END = 0x00;
+    private static final int K_HEADER = 0x01;
+    private static final int K_ARCHIVE_PROPERTIES = 0x02;
+    private static final int K_MAIN_STREAMS_INFO = 0x04;
+    private static final int K_FILES_INFO = 0x05;
+    private static final int K_PACK_INFO = 0x06;
+    private static final int K_UNPACK_INFO = 0x07;
+    private static final int K_SUBSTREAMS_INFO = 0x08;
+    private static final int K_SIZE = 0x09;
+    private static final int K_CRC = 0x0A;
+    private static final int K_FOLDER = 0x0B;
+    private static final int K_CODERS_UNPACK_SIZE = 0x0C;
+    private static final int K_NUM_UNPACK_STREAM = 0x0D;
+    private static final int K_EMPTY_STREAM = 0x0E;
+    private static final int K_ENCODED_HEADER = 0x17;
+    
+    /**
+     * Maior cabeçalho interpretado; acima disso a leitura usa uma única passada
+     */
+    private static final int MAX_HEADER_SIZE = 64 * 1024 * 1024;
+    
+    private static final byte[] METHOD_LZMA = {3, 1, 1};
+    private static final byte[] METHOD_LZMA2 = {0x21};
+    
+    /**
+     * Bloco descrito no cabeçalho; só os dados usados para decodificar o cabeçalho
+     * compactado e a memória dos decodificadores
+     */
+    private static class Folder {
+        private int coders;
+        private byte[] method;
+        private byte[] properties;
+        private long unpackSize;
+        private long decoderMemory;
+    }
+    
+    private static class StreamsInfo {
+        private long packPosition;
+        private long[] packSizes = new long[0];
+        private Folder[] folders = new Folder[0];
+        private boolean[] folderCrcs = new boolean[0];
+        private int[] unpackStreams = new int[0];
+    }
+    
+    private final int[] entryFolders;
+    private final long decoderMemory;
+    
+    private SevenZFolderMap(int[] entryFolders, long decoderMemory) {
+        this.entryFolders = entryFolders;
+        this.decoderMemory = decoderMemory;
+    }
+    
+    /**
+     * Bloco de cada entrada, na ordem de {@code SevenZFile.getEntries()}; entradas sem
+     * conteúdo recebem -1
+     */
+    int[] getEntryFolders() {
+        return entryFolders;
+    }
+    
+    /**
+     * Memória em bytes dos decodificadores do maior bloco, usada por cada leitor aberto.
+     * Só os dicionários LZMA e LZMA2 são contados; os demais métodos usam buffers pequenos.
+     */
+    long getDecoderMemory() {
+        return decoderMemory;
+    }
+    
+    /**
+     * Lê o cabeçalho do arquivo
+     *
+     * @return null se o cabeçalho não puder ser interpretado
+     */
+    static SevenZFolderMap read(SeekableByteChannel channel) throws IOException {
+        ByteBuffer start = readFully(channel, 0, 32);
+        byte[] signature = new byte[SIGNATURE.length];
+        start.get(signature);
+        if (!Arrays.equals(signature, SIGNATURE)) {
+            return null;
+        }
+        
+        start.position(12);
+        long headerOffset = start.getLong();
+        long headerSize = start.getLong();
+        if (headerOffset < 0 || headerSize <= 0 || headerSize > MAX_HEADER_SIZE
+            || 32 + headerOffset + headerSize > channel.size()) {
+            return null;
+        }
+        
+        try {
+            ByteBuffer header = readFully(channel, 32 + headerOffset, (int) headerSize);
+            int id = header.get() & 0xFF;
+            if (id == K_ENCODED_HEADER) {
+                header = decodeHeader(channel, readStreamsInfo(header));
+                if (header == null) {
+                    return null;
+                }
+                id = header.get() & 0xFF;
+            }
+            return id == K_HEADER ? readHeader(header) : null;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Decodifica o cabeçalho compactado, gravado como um bloco LZMA ou LZMA2 de um só codificador
+     */
+    private static ByteBuffer decodeHeader(SeekableByteChannel channel, StreamsInfo info) throws IOException {
+        if (info.folders.length != 1 || info.packSizes.length != 1 || info.folders[0].coders != 1) {
+            return null;
+        }
+        Folder folder = info.folders[0];
+        if (folder.unpackSize > MAX_HEADER_SIZE || info.packSizes[0] > MAX_HEADER_SIZE) {
+            return null;
+        }
+        
+        ByteBuffer packed = readFully(channel, 32 + info.packPosition, (int) info.packSizes[0]);
+        InputStream in = new ByteArrayInputStream(packed.array());
+        
+        if (Arrays.equals(folder.method, METHOD_LZMA) && folder.properties != null
+            && folder.properties.length == 5) {
+            int dictionarySize = ByteBuffer.wrap(folder.properties, 1, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            in = new LZMAInputStream(in, folder.unpackSize, folder.properties[0], dictionarySize);
+        } else if (Arrays.equals(folder.method, METHOD_LZMA2) && folder.properties != null
+            && folder.properties.length == 1) {
+            int property = folder.properties[0] & 0xFF;
+            if (property > 40) {
+                return null;
+            }
+            // As distâncias do LZMA2 não passam do tamanho do cabeçalho
+            long dictionarySize = lzma2DictionarySize(property);
+            in = new LZMA2InputStream(in, (int) Math.max(4096, Math.min(dictionarySize, folder.unpackSize)));
+        } else {
+            return null;
+        }
+        
+        byte[] header = new byte[(int) folder.unpackSize];
+        new DataInputStream(in).readFully(header);
+        return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    private static SevenZFolderMap readHeader(ByteBuffer header) {
+        int id = header.get() & 0xFF;
+        if (id == K_ARCHIVE_PROPERTIES) {
+            for (long type = readNumber(header); type != K_END; type = readNumber(header)) {
+                skip(header, readNumber(header));
+            }
+            id = header.get() & 0xFF;
+        }
+        
+        // Fluxos adicionais não são usados pelos compactadores atuais
+        if (id != K_MAIN_STREAMS_INFO && id != K_FILES_INFO) {
+            return id == K_END ? new SevenZFolderMap(new int[0], 0) : null;
+        }
+        
+        StreamsInfo info = new StreamsInfo();
+        if (id == K_MAIN_STREAMS_INFO) {
+            info = readStreamsInfo(header);
+            id = header.get() & 0xFF;
+        }
+        long decoderMemory = 0;
+        for (Folder folder : info.folders) {
+            decoderMemory = Math.max(decoderMemory, folder.decoderMemory);
+        }
+        if (id != K_FILES_INFO) {
+            return new SevenZFolderMap(new int[0], decoderMemory);
+        }
+        
+        int files = toInt(readNumber(header));
+        boolean[] emptyStream = new boolean[files];
+        for (int type = header.get() & 0xFF; type != K_END; type = header.get() & 0xFF) {
+            long size = readNumber(header);
+            int next = toInt(header.position() + size);
+            if (type == K_EMPTY_STREAM) {
+                emptyStream = readBits(header, files);
+            }
+            header.position(next);
+        }
+        
+        int[] folders = new int[files];
+        int folder = 0;
+        int inFolder = 0;
+        for (int i = 0; i < files; i++) {
+            if (emptyStream[i]) {
+                folders[i] = -1;
+                continue;
+            }
+            while (folder < info.unpackStreams.length && info.unpackStreams[folder] == 0) {
+                folder++;
+            }
+            if (folder >= info.unpackStreams.length) {
+                return null;
+            }
+            folders[i] = folder;
+            if (++inFolder == info.unpackStreams[folder]) {
+                folder++;
+                inFolder = 0;
+            }
+        }
+        return new SevenZFolderMap(folders, decoderMemory);
+    }
+    
+    private static StreamsInfo readStreamsInfo(ByteBuffer header) {
+        StreamsInfo info = new StreamsInfo();
+        int id = header.get() & 0xFF;
+        
+        if (id == K_PACK_INFO) {
+            info.packPosition = readNumber(header);
+            info.packSizes = new long[toInt(readNumber(header))];
+            id = header.get() & 0xFF;
+            if (id == K_SIZE) {
+                for (int i = 0; i < info.packSizes.length; i++) {
+                    info.packSizes[i] = readNumber(header);
+                }
+                id = header.get() & 0xFF;
+            }
+            if (id == K_CRC) {
+                skipDigests(header, readDigestBits(header, info.packSizes.length));
+                id = header.get() & 0xFF;
+            }
+            expect(id, K_END);
+            id = header.get() & 0xFF;
+        }
+        
+        if (id == K_UNPACK_INFO) {
+            expect(header.get() & 0xFF, K_FOLDER);
+            info.folders = new Folder[toInt(readNumber(header))];
+            expect(header.get() & 0xFF, 0);
+            int[] outputs = new int[info.folders.length];
+            for (int i = 0; i < info.folders.length; i++) {
+                info.folders[i] = new Folder();
+                outputs[i] = readFolder(header, info.folders[i]);
+            }
+            
+            expect(header.get() & 0xFF, K_CODERS_UNPACK_SIZE);
+            for (int i = 0; i < info.folders.length; i++) {
+                for (int j = 0; j < outputs[i]; j++) {
+                    long size = readNumber(header);
+                    // Com um só codificador, a única saída é o conteúdo do bloco
+                    if (j == 0) {
+                        info.folders[i].unpackSize = size;
+                    }
+                }
+            }
+            
+            info.folderCrcs = new boolean[info.folders.length];
+            id = header.get() & 0xFF;
+            if (id == K_CRC) {
+                info.folderCrcs = readDigestBits(header, info.folders.length);
+                skipDigests(header, info.folderCrcs);
+                id = header.get() & 0xFF;
+            }
+            expect(id, K_END);
+            id = header.get() & 0xFF;
+        }
+        
+        info.unpackStreams = new int[info.folders.length];
+        Arrays.fill(info.unpackStreams, 1);
+        
+        if (id == K_SUBSTREAMS_INFO) {
+            id = header.get() & 0xFF;
+            if (id == K_NUM_UNPACK_STREAM) {
+                for (int i = 0; i < info.unpackStreams.length; i++) {
+                    info.unpackStreams[i] = toInt(readNumber(header));
+                }
+                id = header.get() & 0xFF;
+            }
+            if (id == K_SIZE) {
+                for (int streams : info.unpackStreams) {
+                    for (int j = 1; j < streams; j++) {
+                        readNumber(header);
+                    }
+                }
+                id = header.get() & 0xFF;
+            }
+            if (id == K_CRC) {
+                // O CRC do bloco já cobre a entrada única; as demais têm CRC próprio
+                int digests = 0;
+                for (int i = 0; i < info.unpackStreams.length; i++) {
+                    if (info.unpackStreams[i] != 1 || !info.folderCrcs[i]) {
+                        digests += info.unpackStreams[i];
+                    }
+                }
+                skipDigests(header, readDigestBits(header, digests));
+                id = header.get() & 0xFF;
+            }
+            expect(id, K_END);
+            id = header.get() & 0xFF;
+        }
+        
+        expect(id, K_END);
+        return info;
+    }
+    
+    /**
+     * Lê a descrição de um bloco
+     *
+     * @return Quantidade de saídas dos codificadores, cada uma com o seu tamanho
+     */
+    private static int readFolder(ByteBuffer header, Folder folder) {
+        folder.coders = toInt(readNumber(header));
+        int inputs = 0;
+        int outputs = 0;
+        
+        for (int i = 0; i < folder.coders; i++) {
+            int flags = header.get() & 0xFF;
+            if ((flags & 0x80) != 0) {
+                throw new IllegalArgumentException("Métodos alternativos não suportados");
+            }
+            byte[] method = new byte[flags & 0x0F];
+            header.get(method);
+            int coderInputs = 1;
+            int coderOutputs = 1;
+            if ((flags & 0x10) != 0) {
+                coderInputs = toInt(readNumber(header));
+                coderOutputs = toInt(readNumber(header));
+            }
+            byte[] properties = null;
+            if ((flags & 0x20) != 0) {
+                properties = new byte[toInt(readNumber(header))];
+                header.get(properties);
+            }
+            if (i == 0) {
+                folder.method = method;
+                folder.properties = properties;
+            }
+            folder.decoderMemory += decoderMemory(method, properties);
+            inputs += coderInputs;
+            outputs += coderOutputs;
+        }
+        
+        int bindPairs = outputs - 1;
+        for (int i = 0; i < bindPairs; i++) {
+            readNumber(header);
+            readNumber(header);
+        }
+        int packedStreams = inputs - bindPairs;
+        if (packedStreams > 1) {
+            for (int i = 0; i < packedStreams; i++) {
+                readNumber(header);
+            }
+        }
+        return outputs;
+    }
+    
+    /**
+     * Memória de um decodificador em bytes, pelo dicionário informado nas propriedades
+     */
+    private static long decoderMemory(byte[] method, byte[] properties) {
+        try {
+            if (Arrays.equals(method, METHOD_LZMA2) && properties != null && properties.length == 1
+                && (properties[0] & 0xFF) <= 40) {
+                int dictionarySize = (int) Math.min(Integer.MAX_VALUE, lzma2DictionarySize(properties[0] & 0xFF));
+                return LZMA2InputStream.getMemoryUsage(dictionarySize) * 1024L;
+            }
+            if (Arrays.equals(method, METHOD_LZMA) && properties != null && properties.length == 5) {
+                int dictionarySize = ByteBuffer.wrap(properties, 1, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+                return LZMAInputStream.getMemoryUsage(dictionarySize, properties[0]) * 1024L;
+            }
+        } catch (IOException e) {
+            // Propriedades inválidas são informadas pelo SevenZFile ao abrir o bloco
+        }
+        return 0;
+    }
+    
+    private static long lzma2DictionarySize(int property) {
+        return property == 40 ? 0xFFFFFFFFL : (2L | (property & 1)) << (property / 2 + 11);
+    }
+    
+    private static boolean[] readDigestBits(ByteBuffer header, int count) {
+        if (header.get() != 0) {
+            boolean[] defined = new boolean[count];
+            Arrays.fill(defined, true);
+            return defined;
+        }
+        return readBits(header, count);
+    }
+    
+    private static void skipDigests(ByteBuffer header, boolean[] defined) {
+        for (boolean digest : defined) {
+            if (digest) {
+                skip(header, 4);
+            }
+        }
+    }
+    
+    private static boolean[] readBits(ByteBuffer header, int count) {
+        boolean[] bits = new boolean[count];
+        int mask = 0;
+        int current = 0;
+        for (int i = 0; i < count; i++) {
+            if (mask == 0) {
+                mask = 0x80;
+                current = header.get() & 0xFF;
+            }
+            bits[i] = (current & mask) != 0;
+            mask >>>= 1;
+        }
+        return bits;
+    }
+    
+    /**
+     * Número no formato de tamanho variável do 7z: os bits altos do primeiro byte
+     * indicam quantos bytes seguem
+     */
+    private static long readNumber(ByteBuffer header) {
+        int first = header.get() & 0xFF;
+        int mask = 0x80;
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            if ((first & mask) == 0) {
+                return value | ((long) (first & (mask - 1)) << (8 * i));
+            }
+            value |= (header.get() & 0xFFL) << (8 * i);
+            mask >>>= 1;
+        }
+        return value;
+    }
+    
+    private static void skip(ByteBuffer header, long count) {
+        header.position(toInt(header.position() + count));
+    }
+    
+    private static void expect(int id, int expected) {
+        if (id != expected) {
+            throw new IllegalArgumentException("Propriedade inesperada no cabeçalho 7z: " + id);
+        }
+    }
+    
+    private static int toInt(long value) {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Valor inválido no cabeçalho 7z: " + value);
+        }
+        return (int) value;
+    }
+    
+    private static ByteBuffer readFully(SeekableByteChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Fim inesperado do arquivo 7z");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,439 @@
+package javaricci.com.br;
+
+import org.tukaani.xz.FinishableOutputStream;
+import org.tukaani.xz.FinishableWrapperOutputStream;
+import org.tukaani.xz.LZMA2Options;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Gravação de arquivos 7z sólidos com LZMA2.
+ *
+ * O SevenZOutputFile do commons-compress grava cada arquivo em um bloco
+ * (folder) próprio. Aqui cada bloco já chega compactado, como um fluxo LZMA2
+ * bruto contendo vários arquivos em sequência, e esta classe apenas concatena
+ * os fluxos e escreve o cabeçalho 7z que descreve os blocos e as entradas.
+ * Isso permite compactar blocos independentes em paralelo.
+ */
+public class SolidSevenZWriter implements Closeable {
+    
+    private static final byte[] SIGNATURE = {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C};
+    private static final int START_HEADER_SIZE = 32;
+    private static final int LZMA2_METHOD_ID = 0x21;
+    
+    // Identificadores de propriedades do cabeçalho 7z
+    private static final int K_END = 0x00;
+    private static final int K_HEADER = 0x01;
+    private static final int K_MAIN_STREAMS_INFO = 0x04;
+    private static final int K_FILES_INFO = 0x05;
+    private static final int K_PACK_INFO = 0x06;
+    private static final int K_UNPACK_INFO = 0x07;
+    private static final int K_SUBSTREAMS_INFO = 0x08;
+    private static final int K_SIZE = 0x09;
+    private static final int K_CRC = 0x0A;
+    private static final int K_FOLDER = 0x0B;
+    private static final int K_CODERS_UNPACK_SIZE = 0x0C;
+    private static final int K_NUM_UNPACK_STREAM = 0x0D;
+    private static final int K_EMPTY_STREAM = 0x0E;
+    private static final int K_EMPTY_FILE = 0x0F;
+    private static final int K_NAME = 0x11;
+    private static final int K_MTIME = 0x14;
+    
+    /**
+     * Diferença entre 1601-01-01 (FILETIME) e 1970-01-01, em milissegundos
+     */
+    private static final long FILETIME_EPOCH_OFFSET = 11644473600000L;
+    
+    /**
+     * Entrada do arquivo 7z. Entradas com conteúdo pertencem a um bloco, na ordem
+     * em que os dados aparecem no fluxo do bloco.
+     */
+    public static class Entry {
+        private final String name;
+        private final boolean directory;
+        private final long size;
+        private final long crc;
+        private final long lastModified;
+        
+        public Entry(String name, boolean directory, long size, long crc, long lastModified) {
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.crc = crc;
+            this.lastModified = lastModified;
+        }
+        
+        public String getName() {
+            return name;
+        }
+    }
+    
+    /**
+     * Bloco sólido já compactado, armazenado em um arquivo temporário
+     */
+    public static class Block {
+        private final File packedFile;
+        private final int dictionaryProperty;
+        private final List<Entry> entries;
+        
+        /**
+         * @param packedFile Arquivo com o fluxo LZMA2 bruto do bloco (null para
+         *        blocos gravados diretamente na saída)
+         * @param dictionarySize Tamanho do dicionário usado pelo codificador LZMA2
+         * @param entries Entradas do bloco, na ordem dos dados
+         */
+        public Block(File packedFile, int dictionarySize, List<Entry> entries) {
+            this.packedFile = packedFile;
+            this.dictionaryProperty = dictionaryProperty(dictionarySize);
+            this.entries = entries;
+        }
+        
+        long unpackSize() {
+            long total = 0;
+            for (Entry entry : entries) {
+                total += entry.size;
+            }
+            return total;
+        }
+    }
+    
+    /**
+     * Bloco sólido compactado diretamente na saída, sem arquivo temporário.
+     * Enquanto estiver aberto, nenhum outro bloco pode ser adicionado.
+     */
+    public class BlockOutput implements Closeable {
+        private final int dictionarySize;
+        private final long startPosition;
+        private final BufferedOutputStream buffered;
+        private final FinishableOutputStream lzma2;
+        private final List<Entry> entries = new ArrayList<>();
+        private long unpackSize;
+        
+        private BlockOutput(LZMA2Options options) throws IOException {
+            this.dictionarySize = options.getDictSize();
+            this.startPosition = channel.position();
+            // O fluxo do canal não é fechado: fechá-lo fecharia o arquivo de saída. A
+            // gravação passa pelo canal limitado; a posição continua vindo do canal
+            this.buffered = new BufferedOutputStream(Channels.newOutputStream(blockTarget), 64 * 1024);
+            this.lzma2 = options.getOutputStream(new FinishableWrapperOutputStream(buffered));
+        }
+        
+        /**
+         * Compacta o conteúdo como a próxima entrada do bloco
+         */
+        public void addEntry(String name, long lastModified, InputStream content) throws IOException {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[64 * 1024];
+            long size = 0;
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) != -1) {
+                lzma2.write(buffer, 0, bytesRead);
+                crc.update(buffer, 0, bytesRead);
+                size += bytesRead;
+            }
+            entries.add(new Entry(name, false, size, crc.getValue(), lastModified));
+            unpackSize += size;
+        }
+        
+        /**
+         * Bytes descompactados já gravados no bloco
+         */
+        public long getUnpackSize() {
+            return unpackSize;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            lzma2.finish();
+            buffered.flush();
+            
+            long size = channel.position() - startPosition;
+            packSizes.add(size);
+            packedBytes += size;
+            blocks.add(new Block(null, dictionarySize, entries));
+        }
+    }
+    
+    private final SeekableByteChannel channel;
+    private final WritableByteChannel blockTarget;
+    private final List<Entry> emptyEntries = new ArrayList<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<Long> packSizes = new ArrayList<>();
+    private long packedBytes;
+    private boolean finished;
+    
+    public SolidSevenZWriter(File outputFile) throws IOException {
+        this(outputFile, new ResourceLimits());
+    }
+    
+    /**
+     * @param outputFile Arquivo 7z de saída
+     * @param limits Limites aplicados à cópia dos blocos para o arquivo
+     */
+    public SolidSevenZWriter(File outputFile, ResourceLimits limits) throws IOException {
+        this(FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), limits);
+    }
+    
+    /**
+     * Grava em um canal já aberto, fechado junto com o gravador. O canal só é
+     * reposicionado para trás uma vez, para o cabeçalho inicial no começo do
+     * arquivo, o que permite gravar em volumes (veja {@link VolumeWriter}).
+     * 
+     * @param channel Canal vazio que recebe o arquivo 7z
+     * @param limits Limites aplicados à cópia dos blocos para o arquivo
+     */
+    public SolidSevenZWriter(SeekableByteChannel channel, ResourceLimits limits) throws IOException {
+        this.channel = channel;
+        channel.position(START_HEADER_SIZE);
+        this.blockTarget = limits.throttle(channel);
+    }
+    
+    /**
+     * Adiciona uma pasta ou um arquivo vazio, que não ocupam espaço nos blocos
+     */
+    public void addEmptyEntry(Entry entry) {
+        emptyEntries.add(entry);
+    }
+    
+    /**
+     * Acrescenta um bloco compactado ao arquivo. Os blocos devem ser adicionados
+     * na ordem final; o arquivo temporário é copiado e pode ser apagado em seguida.
+     */
+    public void addBlock(Block block) throws IOException {
+        try (FileChannel in = FileChannel.open(block.packedFile.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, blockTarget);
+            }
+            packSizes.add(size);
+            packedBytes += size;
+        }
+        blocks.add(block);
+    }
+    
+    /**
+     * Abre um bloco que recebe as entradas em sequência e é compactado diretamente
+     * no arquivo de saída
+     */
+    public BlockOutput openBlock(LZMA2Options options) throws IOException {
+        return new BlockOutput(options);
+    }
+    
+    /**
+     * Grava o cabeçalho e o cabeçalho inicial, concluindo o arquivo
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        
+        byte[] header = buildHeader();
+        CRC32 headerCrc = new CRC32();
+        headerCrc.update(header);
+        
+        channel.position(START_HEADER_SIZE + packedBytes);
+        channel.write(ByteBuffer.wrap(header));
+        
+        ByteBuffer startHeader = ByteBuffer.allocate(START_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        startHeader.put(SIGNATURE).put((byte) 0).put((byte) 4);
+        startHeader.putInt(0);
+        startHeader.putLong(packedBytes);
+        startHeader.putLong(header.length);
+        startHeader.putInt((int) headerCrc.getValue());
+        
+        CRC32 startHeaderCrc = new CRC32();
+        startHeaderCrc.update(startHeader.array(), 12, 20);
+        startHeader.putInt(8, (int) startHeaderCrc.getValue());
+        startHeader.rewind();
+        channel.position(0);
+        channel.write(startHeader);
+        
+        finished = true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    private byte[] buildHeader() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutput header = new DataOutputStream(bytes);
+        
+        header.write(K_HEADER);
+        if (!blocks.isEmpty()) {
+            header.write(K_MAIN_STREAMS_INFO);
+            writePackInfo(header);
+            writeUnpackInfo(header);
+            writeSubStreamsInfo(header);
+            header.write(K_END);
+        }
+        
+        List<Entry> entries = new ArrayList<>(emptyEntries);
+        for (Block block : blocks) {
+            entries.addAll(block.entries);
+        }
+        if (!entries.isEmpty()) {
+            writeFilesInfo(header, entries);
+        }
+        header.write(K_END);
+        
+        return bytes.toByteArray();
+    }
+    
+    private void writePackInfo(DataOutput header) throws IOException {
+        header.write(K_PACK_INFO);
+        writeNumber(header, 0);
+        writeNumber(header, packSizes.size());
+        header.write(K_SIZE);
+        for (long size : packSizes) {
+            writeNumber(header, size);
+        }
+        header.write(K_END);
+    }
+    
+    private void writeUnpackInfo(DataOutput header) throws IOException {
+        header.write(K_UNPACK_INFO);
+        header.write(K_FOLDER);
+        writeNumber(header, blocks.size());
+        header.write(0);
+        for (Block block : blocks) {
+            // Um único codificador LZMA2 com uma propriedade (tamanho do dicionário)
+            writeNumber(header, 1);
+            header.write(0x20 | 1);
+            header.write(LZMA2_METHOD_ID);
+            writeNumber(header, 1);
+            header.write(block.dictionaryProperty);
+        }
+        header.write(K_CODERS_UNPACK_SIZE);
+        for (Block block : blocks) {
+            writeNumber(header, block.unpackSize());
+        }
+        header.write(K_END);
+    }
+    
+    private void writeSubStreamsInfo(DataOutput header) throws IOException {
+        header.write(K_SUBSTREAMS_INFO);
+        header.write(K_NUM_UNPACK_STREAM);
+        for (Block block : blocks) {
+            writeNumber(header, block.entries.size());
+        }
+        header.write(K_SIZE);
+        for (Block block : blocks) {
+            for (int i = 0; i < block.entries.size() - 1; i++) {
+                writeNumber(header, block.entries.get(i).size);
+            }
+        }
+        header.write(K_CRC);
+        header.write(1);
+        for (Block block : blocks) {
+            for (Entry entry : block.entries) {
+                header.writeInt(Integer.reverseBytes((int) entry.crc));
+            }
+        }
+        header.write(K_END);
+    }
+    
+    private void writeFilesInfo(DataOutput header, List<Entry> entries) throws IOException {
+        header.write(K_FILES_INFO);
+        writeNumber(header, entries.size());
+        
+        if (!emptyEntries.isEmpty()) {
+            boolean[] emptyStream = new boolean[entries.size()];
+            boolean[] emptyFile = new boolean[emptyEntries.size()];
+            boolean hasEmptyFile = false;
+            for (int i = 0; i < emptyEntries.size(); i++) {
+                emptyStream[i] = true;
+                emptyFile[i] = !emptyEntries.get(i).directory;
+                hasEmptyFile |= emptyFile[i];
+            }
+            writeBitProperty(header, K_EMPTY_STREAM, emptyStream);
+            if (hasEmptyFile) {
+                writeBitProperty(header, K_EMPTY_FILE, emptyFile);
+            }
+        }
+        
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        names.write(0);
+        for (Entry entry : entries) {
+            names.write(entry.name.getBytes(StandardCharsets.UTF_16LE));
+            names.write(0);
+            names.write(0);
+        }
+        header.write(K_NAME);
+        writeNumber(header, names.size());
+        header.write(names.toByteArray());
+        
+        header.write(K_MTIME);
+        writeNumber(header, 2 + 8L * entries.size());
+        header.write(1);
+        header.write(0);
+        for (Entry entry : entries) {
+            long lastModified = Math.max(0, entry.lastModified);
+            header.writeLong(Long.reverseBytes((lastModified + FILETIME_EPOCH_OFFSET) * 10000));
+        }
+        
+        header.write(K_END);
+    }
+    
+    private static void writeBitProperty(DataOutput header, int property, boolean[] bits) throws IOException {
+        byte[] packed = new byte[(bits.length + 7) / 8];
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i]) {
+                packed[i / 8] |= 0x80 >>> (i % 8);
+            }
+        }
+        header.write(property);
+        writeNumber(header, packed.length);
+        header.write(packed);
+    }
+    
+    /**
+     * Número de tamanho variável do 7z: os bits mais altos do primeiro byte
+     * indicam quantos bytes adicionais seguem
+     */
+    private static void writeNumber(DataOutput header, long value) throws IOException {
+        int first = 0;
+        int mask = 0x80;
+        int extraBytes;
+        for (extraBytes = 0; extraBytes < 8; extraBytes++) {
+            if (value < (1L << (7 * (extraBytes + 1)))) {
+                first |= (int) (value >>> (8 * extraBytes));
+                break;
+            }
+            first |= mask;
+            mask >>>= 1;
+        }
+        header.write(first);
+        for (; extraBytes > 0; extraBytes--) {
+            header.write((int) (value & 0xFF));
+            value >>>= 8;
+        }
+    }
+    
+    /**
+     * Propriedade LZMA2 que codifica o tamanho do dicionário
+     */
+    private static int dictionaryProperty(int dictionarySize) {
+        int lead = Integer.numberOfLeadingZeros(dictionarySize);
+        int secondBit = (dictionarySize >>> (30 - lead)) - 2;
+        return (19 - lead) * 2 + secondBit;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+package javaricci.com.br;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Canal de gravação que divide o arquivo em volumes de tamanho fixo
+ * (backup.zip.001, backup.zip.002, ...), lidos de volta pelo {@link ArchiveVolumes}.
+ *
+ * Quando um volume fica cheio, a sincronização com o disco e o fechamento são
+ * feitos em uma thread separada enquanto o próximo volume é gravado. Só uma
+ * sincronização fica pendente por vez: se o disco não acompanhar, a gravação espera
+ * por ela em vez de acumular volumes abertos.
+ *
+ * A gravação é sequencial. A única exceção é o primeiro volume, que fica aberto até
+ * o fim e pode ser regravado, como o cabeçalho inicial do 7z, gravado por último.
+ */
+public class VolumeWriter implements SeekableByteChannel {
+    
+    /**
+     * Menor tamanho de volume aceito; o cabeçalho inicial do 7z precisa caber no primeiro
+     */
+    public static final long MIN_VOLUME_SIZE = 64 * 1024;
+    
+    private final File baseFile;
+    private final long volumeSize;
+    private final FileChannel first;
+    private final ExecutorService syncExecutor;
+    private FileChannel current;
+    private int currentNumber = 1;
+    private long currentStart;
+    private long size;
+    private long position;
+    private Future<?> pendingSync;
+    private boolean open = true;
+    
+    /**
+     * @param baseFile Arquivo sem o número do volume (backup.zip)
+     * @param volumeSize Tamanho máximo de cada volume em bytes
+     * @throws IOException Se o primeiro volume não puder ser criado
+     */
+    public VolumeWriter(File baseFile, long volumeSize) throws IOException {
+        if (volumeSize < MIN_VOLUME_SIZE) {
+            throw new IllegalArgumentException("Tamanho de volume muito pequeno: " + volumeSize + " bytes");
+        }
+        this.baseFile = baseFile;
+        this.volumeSize = volumeSize;
+        this.first = openVolume(1);
+        this.current = first;
+        this.syncExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "volume-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Quantidade de volumes criados até agora
+     */
+    public int getVolumeCount() {
+        return currentNumber;
+    }
+    
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        int length = src.remaining();
+        
+        if (position < size) {
+            if (position + length > Math.min(size, volumeSize)) {
+                throw new IOException("Volumes só aceitam regravação dentro do primeiro volume");
+            }
+            while (src.hasRemaining()) {
+                position += first.write(src, position);
+            }
+            return length;
+        }
+        
+        // Posições além do fim são preenchidas com zeros
+        if (position > size) {
+            append(ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, position - size)));
+        }
+        append(src);
+        return length;
+    }
+    
+    private void append(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            long free = currentStart + volumeSize - size;
+            if (free == 0) {
+                nextVolume();
+                free = volumeSize;
+            }
+            
+            ByteBuffer part = src.slice();
+            part.limit((int) Math.min(part.remaining(), free));
+            int written = 0;
+            while (part.hasRemaining()) {
+                written += current.write(part);
+            }
+            src.position(src.position() + written);
+            size += written;
+        }
+        position = size;
+    }
+    
+    /**
+     * Entrega o volume cheio à thread de sincronização e abre o próximo
+     */
+    private void nextVolume() throws IOException {
+        awaitSync();
+        FileChannel completed = current;
+        pendingSync = syncExecutor.submit(() -> {
+            completed.force(true);
+            if (completed != first) {
+                completed.close();
+            }
+            return null;
+        });
+        
+        currentNumber++;
+        current = openVolume(currentNumber);
+        currentStart = size;
+    }
+    
+    private void awaitSync() throws IOException {
+        if (pendingSync == null) {
+            return;
+        }
+        try {
+            pendingSync.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Sincronização do volume interrompida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Erro ao sincronizar o volume", e.getCause());
+        } finally {
+            pendingSync = null;
+        }
+    }
+    
+    private FileChannel openVolume(int number) throws IOException {
+        return FileChannel.open(ArchiveVolumes.volumeFile(baseFile, number).toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    @Override
+    public int read(ByteBuffer dst) {
+        throw new NonReadableChannelException();
+    }
+    
+    @Override
+    public long position() {
+        return position;
+    }
+    
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Posição negativa: " + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+    
+    @Override
+    public long size() {
+        return size;
+    }
+    
+    @Override
+    public SeekableByteChannel truncate(long newSize) throws IOException {
+        if (newSize < size) {
+            throw new IOException("Volumes não podem ser truncados");
+        }
+        return this;
+    }
+    
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+    
+    /**
+     * Aguarda a sincronização pendente, sincroniza o último e o primeiro volume e
+     * remove volumes de uma gravação anterior que ficariam após o último
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            awaitSync();
+            current.force(true);
+            if (current != first) {
+                first.force(true);
+            }
+        } finally {
+            syncExecutor.shutdown();
+            current.close();
+            first.close();
+        }
+        
+        for (int number = currentNumber + 1; ArchiveVolumes.volumeFile(baseFile, number).isFile(); number++) {
+            Files.delete(ArchiveVolumes.volumeFile(baseFile, number).toPath());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,782 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.utils.BoundedInputStream;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Arquivamento contínuo de pastas monitoradas.
+ *
+ * As pastas são observadas pelo {@link WatchService}, sem varreduras periódicas.
+ * Cada arquivo criado ou modificado entra no próximo lote depois de ficar um
+ * período sem novos eventos, para que rajadas de gravações gerem uma única cópia.
+ * Os lotes são acrescentados ao segmento aberto quando acumulam o tamanho
+ * configurado ou quando o arquivo mais antigo do lote espera o tempo máximo; cada
+ * lote gravado é sincronizado com o disco.
+ *
+ * Os segmentos são arquivos ZIP ou TAR.GZ gravados com a extensão .part enquanto
+ * abertos e renomeados ao atingir o tamanho ou a idade máxima. No TAR.GZ cada lote
+ * é um membro gzip completo, de modo que os dados já gravados de um segmento
+ * interrompido continuam legíveis. Um arquivo modificado é gravado de novo; a
+ * versão mais recente é a última entrada com o mesmo nome.
+ *
+ * Apenas alterações posteriores ao início são arquivadas. Uma varredura só ocorre
+ * quando o sistema descarta eventos (OVERFLOW) ou quando uma pasta nova aparece,
+ * e limita-se à pasta afetada.
+ */
+public class WatchFolderArchiver implements Closeable {
+    
+    /**
+     * Extensão dos segmentos ainda abertos
+     */
+    public static final String PART_SUFFIX = ".part";
+    
+    /**
+     * Início do nome dos segmentos
+     */
+    public static final String SEGMENT_PREFIX = "segmento-";
+    
+    private static final long POLL_MILLIS = 250;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * Tentativas de leitura de um arquivo com erro antes de ignorá-lo até o próximo evento
+     */
+    private static final int MAX_READ_ATTEMPTS = 3;
+    
+    /**
+     * Arquivo aguardando o fim da rajada de eventos
+     */
+    private static class PendingFile {
+        final Path root;
+        long lastEvent;
+        int failedReads;
+        
+        PendingFile(Path root, long lastEvent) {
+            this.root = root;
+            this.lastEvent = lastEvent;
+        }
+    }
+    
+    /**
+     * Erro na leitura do arquivo de origem, que não compromete o segmento
+     */
+    private static class SourceReadException extends IOException {
+        final long copied;
+        
+        SourceReadException(IOException cause, long copied) {
+            super(cause.getMessage(), cause);
+            this.copied = copied;
+        }
+    }
+    
+    /**
+     * Tamanho e data de modificação da última versão arquivada
+     */
+    private static class FileState {
+        final long size;
+        final long lastModified;
+        
+        FileState(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FileState && ((FileState) o).size == size
+                && ((FileState) o).lastModified == lastModified;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+        }
+    }
+    
+    /**
+     * Segmento aberto, gravado em um arquivo .part
+     */
+    private abstract class Segment {
+        final File partFile;
+        final File finalFile;
+        final FileChannel channel;
+        final long created = System.currentTimeMillis();
+        
+        Segment(String extension) throws IOException {
+            String name = SEGMENT_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + extension;
+            finalFile = new File(outputFolder, name);
+            partFile = new File(outputFolder, name + PART_SUFFIX);
+            channel = FileChannel.open(partFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        }
+        
+        long size() throws IOException {
+            return channel.size();
+        }
+        
+        /**
+         * Grava o arquivo como uma entrada
+         *
+         * @return false se o arquivo encolheu durante a cópia e precisa ser gravado de novo
+         * @throws SourceReadException Se o arquivo não puder ser lido; a entrada, se já
+         *                             iniciada, fica completa no segmento
+         */
+        abstract boolean add(String entryName, Path file, BasicFileAttributes attributes) throws IOException;
+        
+        /**
+         * Torna o lote gravado durável
+         */
+        abstract void commit() throws IOException;
+        
+        /**
+         * Conclui o arquivo e troca a extensão .part pela definitiva
+         */
+        void finish() throws IOException {
+            complete();
+            channel.force(true);
+            channel.close();
+            Files.move(partFile.toPath(), finalFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        
+        abstract void complete() throws IOException;
+        
+        /**
+         * Fecha sem concluir, mantendo o .part com os lotes já gravados
+         */
+        void abort() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // o erro original já foi informado
+            }
+        }
+    }
+    
+    /**
+     * Segmento ZIP: as entradas são gravadas com os tamanhos no cabeçalho local, e o
+     * diretório central é gravado ao concluir o segmento
+     */
+    private class ZipSegment extends Segment {
+        private final ZipArchiveOutputStream zos;
+        
+        ZipSegment() throws IOException {
+            super(".zip");
+            zos = new ZipArchiveOutputStream(limits.throttle(channel));
+        }
+        
+        @Override
+        boolean add(String entryName, Path file, BasicFileAttributes attributes) throws IOException {
+            ZipArchiveEntry entry = new ZipArchiveEntry(entryName);
+            entry.setTime(attributes.lastModifiedTime().toMillis());
+            try (InputStream in = openSource(file, attributes.size())) {
+                zos.putArchiveEntry(entry);
+                long copied;
+                try {
+                    copied = copy(in, zos);
+                } finally {
+                    zos.closeArchiveEntry();
+                }
+                return copied == attributes.size();
+            }
+        }
+        
+        @Override
+        void commit() throws IOException {
+            zos.flush();
+            channel.force(false);
+        }
+        
+        @Override
+        void complete() throws IOException {
+            zos.finish();
+        }
+    }
+    
+    /**
+     * Segmento TAR.GZ: um único fluxo TAR distribuído em membros gzip, um por lote
+     */
+    private class TarGzSegment extends Segment {
+        private final OutputStream file;
+        private final TarArchiveOutputStream tos;
+        private GZIPOutputStream member;
+        
+        TarGzSegment() throws IOException {
+            super(".tar.gz");
+            file = new BufferedOutputStream(limits.throttle(Channels.newOutputStream(channel)), BUFFER_SIZE);
+            
+            // Registros de 512 bytes: nada fica retido no TAR entre um lote e o próximo
+            tos = new TarArchiveOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    member().write(b);
+                }
+                
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    member().write(b, off, len);
+                }
+            }, 512);
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tos.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        }
+        
+        private GZIPOutputStream member() throws IOException {
+            if (member == null) {
+                member = new GZIPOutputStream(new FilterOutputStream(file) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+                    
+                    @Override
+                    public void close() {
+                        // o arquivo continua aberto para os próximos membros
+                    }
+                }, BUFFER_SIZE);
+            }
+            return member;
+        }
+        
+        @Override
+        boolean add(String entryName, Path path, BasicFileAttributes attributes) throws IOException {
+            TarArchiveEntry entry = new TarArchiveEntry(entryName);
+            entry.setSize(attributes.size());
+            entry.setModTime(attributes.lastModifiedTime().toMillis());
+            try (InputStream in = openSource(path, attributes.size())) {
+                tos.putArchiveEntry(entry);
+                long copied;
+                SourceReadException readError = null;
+                try {
+                    copied = copy(in, tos);
+                } catch (SourceReadException e) {
+                    copied = e.copied;
+                    readError = e;
+                }
+                
+                // O cabeçalho já informou o tamanho: um arquivo que encolheu é completado com zeros
+                byte[] zeros = new byte[BUFFER_SIZE];
+                for (long missing = attributes.size() - copied; missing > 0; missing -= zeros.length) {
+                    tos.write(zeros, 0, (int) Math.min(zeros.length, missing));
+                }
+                tos.closeArchiveEntry();
+                if (readError != null) {
+                    throw readError;
+                }
+                return copied == attributes.size();
+            }
+        }
+        
+        @Override
+        void commit() throws IOException {
+            if (member != null) {
+                member.finish();
+                member = null;
+            }
+            file.flush();
+            channel.force(false);
+        }
+        
+        @Override
+        void complete() throws IOException {
+            tos.finish();
+            commit();
+        }
+    }
+    
+    private final File outputFolder;
+    private final Path outputPath;
+    private final ArchiveType type;
+    private final Map<Path, Path> folders = new LinkedHashMap<>();
+    
+    private long quietMillis = 2000;
+    private long commitBytes = 16L * 1024 * 1024;
+    private long commitMillis = 3000;
+    private long segmentMaxBytes = 256L * 1024 * 1024;
+    private long segmentMaxMillis = 60L * 60 * 1000;
+    private ResourceLimits limits = new ResourceLimits();
+    private CompressionService.ProgressCallback callback = (progress, message) -> { };
+    
+    private final Map<WatchKey, Path[]> keys = new HashMap<>();
+    private final Map<Path, PendingFile> pending = new LinkedHashMap<>();
+    private final Map<Path, PendingFile> ready = new LinkedHashMap<>();
+    private final Map<Path, FileState> archived = new HashMap<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private WatchService watchService;
+    private Segment segment;
+    private long readyBytes;
+    private long readySince;
+    private volatile boolean running;
+    private Thread thread;
+    
+    /**
+     * @param outputFolder Pasta onde os segmentos são gravados
+     * @param type {@link ArchiveType#ZIP} ou {@link ArchiveType#TAR_GZ}
+     */
+    public WatchFolderArchiver(File outputFolder, ArchiveType type) {
+        if (type != ArchiveType.ZIP && type != ArchiveType.TAR_GZ) {
+            throw new IllegalArgumentException("Formato de segmento não suportado: " + type.getDisplayName());
+        }
+        this.outputFolder = outputFolder;
+        this.outputPath = outputFolder.toPath().toAbsolutePath().normalize();
+        this.type = type;
+    }
+    
+    /**
+     * Inclui uma pasta, com as subpastas, no monitoramento; deve ser chamado antes de {@link #start}
+     */
+    public void addFolder(File folder) throws IOException {
+        if (!folder.isDirectory()) {
+            throw new FileNotFoundException("Pasta não encontrada: " + folder.getAbsolutePath());
+        }
+        Path root = folder.toPath().toAbsolutePath().normalize();
+        folders.put(root, root);
+    }
+    
+    /**
+     * Tempo sem eventos para que um arquivo entre no lote (padrão 2 s)
+     */
+    public void setQuietMillis(long quietMillis) {
+        this.quietMillis = Math.max(0, quietMillis);
+    }
+    
+    /**
+     * Bytes acumulados que disparam a gravação do lote (padrão 16 MB)
+     */
+    public void setCommitBytes(long commitBytes) {
+        this.commitBytes = Math.max(1, commitBytes);
+    }
+    
+    /**
+     * Espera máxima de um arquivo pronto antes da gravação do lote (padrão 3 s)
+     */
+    public void setCommitMillis(long commitMillis) {
+        this.commitMillis = Math.max(0, commitMillis);
+    }
+    
+    /**
+     * Tamanho a partir do qual o segmento é concluído e um novo é aberto (padrão 256 MB)
+     */
+    public void setSegmentMaxBytes(long segmentMaxBytes) {
+        this.segmentMaxBytes = Math.max(1, segmentMaxBytes);
+    }
+    
+    /**
+     * Idade máxima de um segmento aberto (padrão 1 hora)
+     */
+    public void setSegmentMaxMillis(long segmentMaxMillis) {
+        this.segmentMaxMillis = Math.max(1, segmentMaxMillis);
+    }
+    
+    public void setResourceLimits(ResourceLimits limits) {
+        this.limits = limits;
+    }
+    
+    /**
+     * Recebe as mensagens de lotes gravados, segmentos concluídos e erros
+     */
+    public void setCallback(CompressionService.ProgressCallback callback) {
+        this.callback = callback;
+    }
+    
+    /**
+     * Registra as pastas e inicia o monitoramento em uma thread própria
+     *
+     * @throws IOException Se as pastas não puderem ser registradas
+     */
+    public synchronized void start() throws IOException {
+        open();
+        thread = new Thread(this::loop, "javawinzip-watch");
+        thread.start();
+    }
+    
+    /**
+     * Registra as pastas e monitora na thread chamadora até {@link #close}
+     *
+     * @throws IOException Se as pastas não puderem ser registradas
+     */
+    public void run() throws IOException {
+        open();
+        loop();
+    }
+    
+    private void open() throws IOException {
+        if (folders.isEmpty()) {
+            throw new IllegalStateException("Nenhuma pasta para monitorar");
+        }
+        Files.createDirectories(outputFolder.toPath());
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Path root : folders.keySet()) {
+            registerTree(root, root, false);
+        }
+        running = true;
+        callback.onProgress(-1, "Monitorando " + folders.size() + " pasta(s)");
+    }
+    
+    /**
+     * Encerra o monitoramento, grava os arquivos pendentes sem aguardar o período de
+     * silêncio e conclui o segmento aberto
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void loop() {
+        try {
+            while (running) {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handle(key);
+                    key = watchService.poll();
+                }
+                
+                long now = System.currentTimeMillis();
+                collectReady(now, false);
+                if (!ready.isEmpty() && (readyBytes >= commitBytes || now - readySince >= commitMillis)) {
+                    commitBatch();
+                }
+                if (segment != null && now - segment.created >= segmentMaxMillis) {
+                    finishSegment();
+                }
+            }
+            
+            collectReady(System.currentTimeMillis(), true);
+            commitBatch();
+            finishSegment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (segment != null) {
+                segment.abort();
+            }
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // encerrando
+            }
+            running = false;
+            stopped.countDown();
+        }
+    }
+    
+    private void handle(WatchKey key) {
+        Path[] registration = keys.get(key);
+        if (registration == null) {
+            key.cancel();
+            return;
+        }
+        Path dir = registration[0];
+        Path root = registration[1];
+        long now = System.currentTimeMillis();
+        
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Eventos perdidos: apenas a pasta afetada é comparada com o que já foi arquivado
+                callback.onProgress(-1, "Eventos descartados pelo sistema; verificando " + dir);
+                scan(dir, root);
+                continue;
+            }
+            
+            Path path = dir.resolve((Path) event.context());
+            if (isOutput(path, root)) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                pending.remove(path);
+                ready.remove(path);
+            } else if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    // Arquivos criados antes do registro da pasta não geram eventos
+                    registerTree(path, root, true);
+                }
+            } else if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                markPending(path, root, now);
+            }
+        }
+        
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+    
+    private void markPending(Path path, Path root, long now) {
+        PendingFile file = ready.remove(path);
+        if (file == null) {
+            file = pending.get(path);
+        }
+        if (file == null) {
+            file = new PendingFile(root, now);
+        }
+        file.lastEvent = now;
+        pending.put(path, file);
+    }
+    
+    private void registerTree(Path start, Path root, boolean scanFiles) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (isOutputFolder(dir, root)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    keys.put(key, new Path[] {dir, root});
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (scanFiles && attrs.isRegularFile() && !isOutput(file, root)) {
+                        markPending(file, root, System.currentTimeMillis());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    callback.onProgress(-1, "Erro ao monitorar " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            callback.onProgress(-1, "Erro ao monitorar " + start + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Marca os arquivos da pasta que mudaram desde a última versão arquivada
+     */
+    private void scan(Path dir, Path root) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            long now = System.currentTimeMillis();
+            for (Path path : stream) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isRegularFile() && !isOutput(path, root)
+                        && !stateOf(attributes).equals(archived.get(path))) {
+                    markPending(path, root, now);
+                }
+            }
+        } catch (IOException e) {
+            callback.onProgress(-1, "Erro ao verificar " + dir + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Move para o lote os arquivos sem eventos há pelo menos o período de silêncio
+     */
+    private void collectReady(long now, boolean all) {
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            if (!all && now - entry.getValue().lastEvent < quietMillis) {
+                continue;
+            }
+            iterator.remove();
+            if (ready.isEmpty()) {
+                readySince = now;
+                readyBytes = 0;
+            }
+            ready.put(entry.getKey(), entry.getValue());
+            try {
+                readyBytes += Files.size(entry.getKey());
+            } catch (IOException e) {
+                // removido antes da gravação; ignorado no lote
+            }
+        }
+    }
+    
+    /**
+     * Grava o lote no segmento aberto, abrindo ou trocando de segmento quando necessário
+     */
+    private void commitBatch() {
+        if (ready.isEmpty()) {
+            return;
+        }
+        
+        List<Map.Entry<Path, PendingFile>> batch = new ArrayList<>(ready.entrySet());
+        ready.clear();
+        readyBytes = 0;
+        int written = 0;
+        long bytes = 0;
+        
+        try {
+            for (Map.Entry<Path, PendingFile> item : batch) {
+                Path path = item.getKey();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                FileState state = stateOf(attributes);
+                if (!attributes.isRegularFile() || state.equals(archived.get(path))) {
+                    continue;
+                }
+                
+                if (segment != null && segment.size() >= segmentMaxBytes) {
+                    finishSegment();
+                }
+                if (segment == null) {
+                    segment = type == ArchiveType.ZIP ? new ZipSegment() : new TarGzSegment();
+                }
+                
+                String entryName = entryName(item.getValue().root, path);
+                boolean complete;
+                try {
+                    complete = segment.add(entryName, path, attributes);
+                } catch (SourceReadException e) {
+                    // Só este arquivo fica de fora; o restante do lote continua
+                    retryRead(path, item.getValue(), e);
+                    continue;
+                }
+                if (complete) {
+                    archived.put(path, state);
+                } else {
+                    markPending(path, item.getValue().root, System.currentTimeMillis());
+                }
+                written++;
+                bytes += attributes.size();
+            }
+            
+            if (segment != null && written > 0) {
+                segment.commit();
+                callback.onProgress(-1, String.format("Lote gravado em %s: %d arquivo(s), %s",
+                    segment.partFile.getName(), written, FileUtils.formatFileSize(bytes)));
+            }
+            if (segment != null && segment.size() >= segmentMaxBytes) {
+                finishSegment();
+            }
+        } catch (IOException e) {
+            callback.onProgress(-1, "Erro ao gravar o lote: " + e.getMessage());
+            if (segment != null) {
+                segment.abort();
+                segment = null;
+            }
+            // O lote volta para a fila e vai para um segmento novo
+            for (Map.Entry<Path, PendingFile> item : batch) {
+                archived.remove(item.getKey());
+                markPending(item.getKey(), item.getValue().root, System.currentTimeMillis());
+            }
+        }
+    }
+    
+    /**
+     * Devolve o arquivo com erro de leitura à fila, até o limite de tentativas; depois
+     * disso ele só volta com um novo evento
+     */
+    private void retryRead(Path path, PendingFile file, IOException e) {
+        file.failedReads++;
+        if (file.failedReads < MAX_READ_ATTEMPTS) {
+            callback.onProgress(-1, "Erro ao ler " + path + ": " + e.getMessage() + " (nova tentativa)");
+            file.lastEvent = System.currentTimeMillis();
+            pending.put(path, file);
+        } else {
+            callback.onProgress(-1, "Arquivo ignorado após " + MAX_READ_ATTEMPTS + " erros de leitura: "
+                + path + ": " + e.getMessage());
+        }
+    }
+    
+    private void finishSegment() {
+        if (segment == null) {
+            return;
+        }
+        Segment finished = segment;
+        segment = null;
+        try {
+            finished.finish();
+            callback.onProgress(-1, "Segmento concluído: " + finished.finalFile.getName());
+        } catch (IOException e) {
+            finished.abort();
+            callback.onProgress(-1, "Erro ao concluir o segmento " + finished.partFile.getName() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Verifica se o arquivo é um segmento ou está na pasta de saída
+     */
+    private boolean isOutput(Path path, Path root) {
+        String name = path.getFileName().toString();
+        return isOutputFolder(path, root) || name.endsWith(PART_SUFFIX) || name.startsWith(SEGMENT_PREFIX);
+    }
+    
+    /**
+     * Verifica se o caminho está na pasta de saída; quando a própria pasta monitorada
+     * está dentro da saída (watch .), só os nomes dos segmentos os distinguem
+     */
+    private boolean isOutputFolder(Path path, Path root) {
+        return path.startsWith(outputPath) && !root.startsWith(outputPath);
+    }
+    
+    private static FileState stateOf(BasicFileAttributes attributes) {
+        FileTime modified = attributes.lastModifiedTime();
+        return new FileState(attributes.size(), modified.toMillis());
+    }
+    
+    /**
+     * Caminho da entrada: nome da pasta monitorada seguido do caminho relativo
+     */
+    private static String entryName(Path root, Path file) {
+        String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+        return root.getFileName() + "/" + relative;
+    }
+    
+    /**
+     * Abre o arquivo até o tamanho lido nos atributos, ignorando o que for acrescentado
+     * durante a cópia
+     *
+     * @throws SourceReadException Se o arquivo não puder ser aberto
+     */
+    private InputStream openSource(Path file, long size) throws SourceReadException {
+        try {
+            return new BoundedInputStream(limits.throttle(Files.newInputStream(file)), size);
+        } catch (IOException e) {
+            throw new SourceReadException(e, 0);
+        }
+    }
+    
+    /**
+     * Copia o arquivo para a entrada; erros de leitura são separados dos de gravação
+     */
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long copied = 0;
+        while (true) {
+            int read;
+            try {
+                read = in.read(buffer);
+            } catch (IOException e) {
+                throw new SourceReadException(e, copied);
+            }
+            if (read == -1) {
+                return copied;
+            }
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,222 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.archivers.zip.ZipUtil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitura sequencial do diretório central de um ZIP diretamente para uma
+ * {@link EntryTable}, sem criar um objeto por entrada.
+ *
+ * Localiza o registro final do arquivo (e o do ZIP64, se houver) e percorre os
+ * registros do diretório central num único stream com buffer. Tamanhos e posições
+ * do campo extra ZIP64 e a data do campo extra de data estendida são considerados.
+ * Os nomes são lidos como UTF-8, como no restante da aplicação.
+ */
+class ZipCentralDirectoryReader {
+    
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014B50;
+    private static final int END_OF_DIRECTORY_SIGNATURE = 0x06054B50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064B50;
+    private static final int ZIP64_END_OF_DIRECTORY_SIGNATURE = 0x06064B50;
+    
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_OF_DIRECTORY_SIZE = 56;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int EXTENDED_TIMESTAMP_EXTRA_ID = 0x5455;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    
+    private ZipCentralDirectoryReader() {
+    }
+    
+    /**
+     * Lê todas as entradas do diretório central para a tabela.
+     * A posição registrada é a do cabeçalho local; entradas criptografadas ficam com -1.
+     *
+     * @param archive Arquivo ZIP ou um volume do conjunto (veja {@link ArchiveVolumes})
+     * @return Tabela preenchida com as entradas do arquivo
+     * @throws IOException Se o arquivo não for um ZIP válido ou ocorrer erro na leitura
+     */
+    static EntryTable read(File archive) throws IOException {
+        try (SeekableByteChannel channel = ArchiveVolumes.openChannel(archive)) {
+            long[] directory = locateCentralDirectory(channel, archive);
+            long directoryOffset = directory[0];
+            long entryCount = directory[1];
+            
+            EntryTable table = new EntryTable((int) Math.min(entryCount, Integer.MAX_VALUE / 2));
+            InputStream in = new BufferedInputStream(
+                Channels.newInputStream(channel.position(directoryOffset)), 64 * 1024);
+            
+            byte[] header = new byte[CENTRAL_HEADER_SIZE];
+            byte[] buffer = new byte[1024];
+            
+            for (long i = 0; i < entryCount; i++) {
+                readFully(in, header, CENTRAL_HEADER_SIZE);
+                if (getInt(header, 0) != CENTRAL_HEADER_SIGNATURE) {
+                    throw new IOException("Diretório central inválido: " + archive.getName());
+                }
+                
+                int flags = getShort(header, 8);
+                int method = getShort(header, 10);
+                long dosTime = getUnsignedInt(header, 12);
+                long crc = getUnsignedInt(header, 16);
+                long compressedSize = getUnsignedInt(header, 20);
+                long size = getUnsignedInt(header, 24);
+                int nameLength = getShort(header, 28);
+                int extraLength = getShort(header, 30);
+                int commentLength = getShort(header, 32);
+                long offset = getUnsignedInt(header, 42);
+                
+                if (buffer.length < nameLength + extraLength) {
+                    buffer = new byte[nameLength + extraLength];
+                }
+                readFully(in, buffer, nameLength + extraLength);
+                skipFully(in, commentLength);
+                
+                String name = new String(buffer, 0, nameLength, StandardCharsets.UTF_8);
+                long lastModified = ZipUtil.dosToJavaTime(dosTime);
+                
+                int position = nameLength;
+                int extraEnd = nameLength + extraLength;
+                while (position + 4 <= extraEnd) {
+                    int id = getShort(buffer, position);
+                    int dataStart = position + 4;
+                    int dataEnd = dataStart + getShort(buffer, position + 2);
+                    if (dataEnd > extraEnd) {
+                        break;
+                    }
+                    
+                    if (id == ZIP64_EXTRA_ID) {
+                        // Apenas os campos que não couberam em 32 bits estão presentes, nesta ordem
+                        int field = dataStart;
+                        if (size == ZIP64_MAGIC && field + 8 <= dataEnd) {
+                            size = getLong(buffer, field);
+                            field += 8;
+                        }
+                        if (compressedSize == ZIP64_MAGIC && field + 8 <= dataEnd) {
+                            compressedSize = getLong(buffer, field);
+                            field += 8;
+                        }
+                        if (offset == ZIP64_MAGIC && field + 8 <= dataEnd) {
+                            offset = getLong(buffer, field);
+                        }
+                    } else if (id == EXTENDED_TIMESTAMP_EXTRA_ID && dataEnd - dataStart >= 5
+                            && (buffer[dataStart] & 1) != 0) {
+                        lastModified = getInt(buffer, dataStart + 1) * 1000L;
+                    }
+                    position = dataEnd;
+                }
+                
+                boolean encrypted = (flags & 1) != 0;
+                table.add(name, name.endsWith("/"), size, compressedSize, crc, lastModified,
+                    encrypted ? -1 : offset, method);
+            }
+            
+            return table;
+        }
+    }
+    
+    /**
+     * Procura o registro final a partir do fim do arquivo
+     *
+     * @return Array com {posição do diretório central, quantidade de entradas}
+     */
+    private static long[] locateCentralDirectory(SeekableByteChannel channel, File archive) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_OF_DIRECTORY_SIZE) {
+            throw new IOException("Arquivo ZIP inválido: " + archive.getName());
+        }
+        
+        int tailSize = (int) Math.min(fileSize, END_OF_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        long tailStart = fileSize - tailSize;
+        byte[] tail = new byte[tailSize];
+        readAt(channel, tail, tailStart);
+        
+        for (int p = tailSize - END_OF_DIRECTORY_SIZE; p >= 0; p--) {
+            if (getInt(tail, p) != END_OF_DIRECTORY_SIGNATURE) {
+                continue;
+            }
+            
+            long entryCount = getShort(tail, p + 10);
+            long directoryOffset = getUnsignedInt(tail, p + 16);
+            long recordPosition = tailStart + p;
+            
+            if ((entryCount == 0xFFFF || directoryOffset == ZIP64_MAGIC) && recordPosition >= ZIP64_LOCATOR_SIZE) {
+                byte[] locator = new byte[ZIP64_LOCATOR_SIZE];
+                readAt(channel, locator, recordPosition - ZIP64_LOCATOR_SIZE);
+                
+                if (getInt(locator, 0) == ZIP64_LOCATOR_SIGNATURE) {
+                    byte[] record = new byte[ZIP64_END_OF_DIRECTORY_SIZE];
+                    readAt(channel, record, getLong(locator, 8));
+                    if (getInt(record, 0) != ZIP64_END_OF_DIRECTORY_SIGNATURE) {
+                        throw new IOException("Registro ZIP64 inválido: " + archive.getName());
+                    }
+                    entryCount = getLong(record, 32);
+                    directoryOffset = getLong(record, 48);
+                }
+            }
+            
+            return new long[] {directoryOffset, entryCount};
+        }
+        
+        throw new IOException("Registro final do ZIP não encontrado: " + archive.getName());
+    }
+    
+    private static void readAt(SeekableByteChannel channel, byte[] buffer, long position) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer);
+        channel.position(position);
+        while (target.hasRemaining()) {
+            if (channel.read(target) < 0) {
+                throw new EOFException("Fim inesperado do arquivo ZIP");
+            }
+        }
+    }
+    
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, total, length - total);
+            if (read < 0) {
+                throw new EOFException("Fim inesperado do diretório central");
+            }
+            total += read;
+        }
+    }
+    
+    private static void skipFully(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Fim inesperado do diretório central");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+    
+    private static int getShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8;
+    }
+    
+    private static int getInt(byte[] buffer, int offset) {
+        return getShort(buffer, offset) | getShort(buffer, offset + 2) << 16;
+    }
+    
+    private static long getUnsignedInt(byte[] buffer, int offset) {
+        return getInt(buffer, offset) & 0xFFFFFFFFL;
+    }
+    
+    private static long getLong(byte[] buffer, int offset) {
+        return getUnsignedInt(buffer, offset) | (long) getInt(buffer, offset + 4) << 32;
+    }
+}
\ No newline at end of file
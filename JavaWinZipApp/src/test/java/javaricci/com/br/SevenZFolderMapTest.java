@@ -0,0 +1,243 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tukaani.xz.FinishableWrapperOutputStream;
+import org.tukaani.xz.LZMA2InputStream;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.LZMAOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Mapa de blocos de arquivos 7z sólidos e não sólidos, com cabeçalho comum e com o
+ * cabeçalho compactado que o 7-Zip grava
+ */
+public class SevenZFolderMapTest {
+    
+    private static final int K_ENCODED_HEADER = 0x17;
+    private static final int K_PACK_INFO = 0x06;
+    private static final int K_UNPACK_INFO = 0x07;
+    private static final int K_SIZE = 0x09;
+    private static final int K_CRC = 0x0A;
+    private static final int K_FOLDER = 0x0B;
+    private static final int K_CODERS_UNPACK_SIZE = 0x0C;
+    private static final int K_END = 0x00;
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    @Test
+    public void solidArchive() throws IOException {
+        File archive = writeSolid();
+        assertFolders(archive, new int[] {-1, 0, 0, 0}, 1 << 20);
+    }
+    
+    @Test
+    public void solidArchiveWithLzmaHeader() throws IOException {
+        File archive = writeSolid();
+        encodeHeader(archive, false);
+        assertFolders(archive, new int[] {-1, 0, 0, 0}, 1 << 20);
+    }
+    
+    @Test
+    public void nonSolidArchive() throws IOException {
+        File archive = writeNonSolid();
+        assertFolders(archive, new int[] {-1, 0, 1, 2}, 3 << 19);
+    }
+    
+    @Test
+    public void nonSolidArchiveWithLzma2Header() throws IOException {
+        File archive = writeNonSolid();
+        encodeHeader(archive, true);
+        assertFolders(archive, new int[] {-1, 0, 1, 2}, 3 << 19);
+    }
+    
+    /**
+     * Uma pasta e três arquivos em um único bloco
+     */
+    private File writeSolid() throws IOException {
+        File archive = temp.newFile();
+        try (SolidSevenZWriter writer = new SolidSevenZWriter(archive)) {
+            writer.addEmptyEntry(new SolidSevenZWriter.Entry("pasta", true, 0, 0, 0));
+            try (SolidSevenZWriter.BlockOutput block = writer.openBlock(options(1 << 20))) {
+                for (int i = 0; i < 3; i++) {
+                    block.addEntry("pasta/arquivo" + i, 0, new ByteArrayInputStream(randomBytes(10_000, i)));
+                }
+            }
+        }
+        return archive;
+    }
+    
+    /**
+     * Um arquivo vazio e três arquivos, cada um no próprio bloco; o maior dicionário
+     * é o do segundo bloco
+     */
+    private File writeNonSolid() throws IOException {
+        File archive = temp.newFile();
+        int[] dictionarySizes = {1 << 18, 3 << 19, 1 << 20};
+        try (SolidSevenZWriter writer = new SolidSevenZWriter(archive)) {
+            writer.addEmptyEntry(new SolidSevenZWriter.Entry("vazio", false, 0, 0, 0));
+            for (int i = 0; i < dictionarySizes.length; i++) {
+                try (SolidSevenZWriter.BlockOutput block = writer.openBlock(options(dictionarySizes[i]))) {
+                    block.addEntry("arquivo" + i, 0, new ByteArrayInputStream(randomBytes(10_000, i)));
+                }
+            }
+        }
+        return archive;
+    }
+    
+    /**
+     * Confere o mapa com a ordem das entradas do SevenZFile, que também precisa
+     * conseguir ler o arquivo
+     */
+    private static void assertFolders(File archive, int[] expected, int largestDictionary) throws IOException {
+        try (SevenZFile sevenZ = new SevenZFile(archive)) {
+            int count = 0;
+            for (SevenZArchiveEntry entry : sevenZ.getEntries()) {
+                assertEquals(entry.getName(), expected[count++] >= 0, entry.hasStream());
+            }
+            assertEquals(expected.length, count);
+        }
+        
+        try (SeekableByteChannel channel = Files.newByteChannel(archive.toPath())) {
+            SevenZFolderMap map = SevenZFolderMap.read(channel);
+            assertNotNull(map);
+            assertArrayEquals(expected, map.getEntryFolders());
+            assertEquals(LZMA2InputStream.getMemoryUsage(largestDictionary) * 1024L, map.getDecoderMemory());
+        }
+    }
+    
+    /**
+     * Substitui o cabeçalho do arquivo pelo cabeçalho compactado, como o 7-Zip grava:
+     * os bytes compactados vêm logo após os blocos, seguidos de um cabeçalho que só
+     * descreve onde eles estão e como decodificá-los
+     */
+    private static void encodeHeader(File archive, boolean lzma2) throws IOException {
+        byte[] bytes = Files.readAllBytes(archive.toPath());
+        ByteBuffer start = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int headerOffset = (int) start.getLong(12);
+        int headerSize = (int) start.getLong(20);
+        byte[] header = Arrays.copyOfRange(bytes, 32 + headerOffset, 32 + headerOffset + headerSize);
+        
+        LZMA2Options options = new LZMA2Options();
+        options.setDictSize(1 << 16);
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        byte[] method;
+        byte[] properties;
+        if (lzma2) {
+            try (OutputStream out = options.getOutputStream(new FinishableWrapperOutputStream(packed))) {
+                out.write(header);
+            }
+            method = new byte[] {0x21};
+            // 2^16 = 2 << (10 / 2 + 11)
+            properties = new byte[] {10};
+        } else {
+            LZMAOutputStream out = new LZMAOutputStream(packed, options, false);
+            out.write(header);
+            out.finish();
+            method = new byte[] {3, 1, 1};
+            properties = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) out.getProps()).putInt(options.getDictSize()).array();
+        }
+        
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        encoded.write(K_ENCODED_HEADER);
+        encoded.write(K_PACK_INFO);
+        writeNumber(encoded, headerOffset);
+        writeNumber(encoded, 1);
+        encoded.write(K_SIZE);
+        writeNumber(encoded, packed.size());
+        encoded.write(K_END);
+        encoded.write(K_UNPACK_INFO);
+        encoded.write(K_FOLDER);
+        writeNumber(encoded, 1);
+        encoded.write(0);
+        writeNumber(encoded, 1);
+        encoded.write(method.length | 0x20);
+        encoded.write(method);
+        writeNumber(encoded, properties.length);
+        encoded.write(properties);
+        encoded.write(K_CODERS_UNPACK_SIZE);
+        writeNumber(encoded, header.length);
+        encoded.write(K_CRC);
+        encoded.write(1);
+        encoded.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) crc(header)).array());
+        encoded.write(K_END);
+        encoded.write(K_END);
+        
+        ByteArrayOutputStream rewritten = new ByteArrayOutputStream();
+        rewritten.write(bytes, 0, 32 + headerOffset);
+        packed.writeTo(rewritten);
+        encoded.writeTo(rewritten);
+        byte[] result = rewritten.toByteArray();
+        
+        ByteBuffer newStart = ByteBuffer.wrap(result).order(ByteOrder.LITTLE_ENDIAN);
+        newStart.putLong(12, headerOffset + packed.size());
+        newStart.putLong(20, encoded.size());
+        newStart.putInt(28, (int) crc(encoded.toByteArray()));
+        CRC32 startCrc = new CRC32();
+        startCrc.update(result, 12, 20);
+        newStart.putInt(8, (int) startCrc.getValue());
+        Files.write(archive.toPath(), result);
+    }
+    
+    /**
+     * Número no formato variável do 7z: os bits altos do primeiro byte indicam quantos
+     * bytes seguem
+     */
+    private static void writeNumber(ByteArrayOutputStream out, long value) {
+        int first = 0;
+        int mask = 0x80;
+        int extraBytes;
+        for (extraBytes = 0; extraBytes < 8; extraBytes++) {
+            if (value < (1L << (7 * (extraBytes + 1)))) {
+                first |= (int) (value >>> (8 * extraBytes));
+                break;
+            }
+            first |= mask;
+            mask >>>= 1;
+        }
+        out.write(first);
+        for (; extraBytes > 0; extraBytes--) {
+            out.write((int) (value & 0xFF));
+            value >>>= 8;
+        }
+    }
+    
+    private static LZMA2Options options(int dictionarySize) throws IOException {
+        LZMA2Options options = new LZMA2Options(0);
+        options.setDictSize(dictionarySize);
+        return options;
+    }
+    
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+    
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
\ No newline at end of file
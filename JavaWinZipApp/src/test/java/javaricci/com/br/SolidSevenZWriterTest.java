@@ -0,0 +1,148 @@
+package javaricci.com.br;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethod;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethodConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tukaani.xz.FinishableWrapperOutputStream;
+import org.tukaani.xz.LZMA2Options;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Arquivos gravados pelo {@link SolidSevenZWriter}, lidos de volta pelo SevenZFile
+ */
+public class SolidSevenZWriterTest {
+    
+    private static final long MODIFIED = 1_600_000_000_000L;
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    @Test
+    public void roundTripPreservesNamesSizesAndCrcs() throws IOException {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("texto.txt", "conteúdo de teste\n".repeat(500).getBytes(StandardCharsets.UTF_8));
+        contents.put("pasta/aleatorio.bin", randomBytes(200_000, 1));
+        contents.put("pasta/copiado.bin", randomBytes(50_000, 2));
+        
+        File archive = temp.newFile("teste.7z");
+        try (SolidSevenZWriter writer = new SolidSevenZWriter(archive)) {
+            writer.addEmptyEntry(new SolidSevenZWriter.Entry("pasta", true, 0, 0, MODIFIED));
+            writer.addEmptyEntry(new SolidSevenZWriter.Entry("vazio.txt", false, 0, 0, MODIFIED));
+            
+            // Um bloco compactado diretamente na saída, com duas entradas
+            try (SolidSevenZWriter.BlockOutput block = writer.openBlock(new LZMA2Options(1))) {
+                block.addEntry("texto.txt", MODIFIED, new ByteArrayInputStream(contents.get("texto.txt")));
+                block.addEntry("pasta/aleatorio.bin", MODIFIED,
+                    new ByteArrayInputStream(contents.get("pasta/aleatorio.bin")));
+            }
+            
+            // Um bloco compactado antes em um arquivo temporário
+            byte[] copied = contents.get("pasta/copiado.bin");
+            LZMA2Options options = new LZMA2Options(1);
+            writer.addBlock(new SolidSevenZWriter.Block(packLzma2(copied, options), options.getDictSize(),
+                Arrays.asList(new SolidSevenZWriter.Entry("pasta/copiado.bin", false, copied.length,
+                    crc(copied), MODIFIED))));
+        }
+        
+        try (SevenZFile sevenZ = new SevenZFile(archive)) {
+            SevenZArchiveEntry entry = sevenZ.getNextEntry();
+            assertEquals("pasta", entry.getName());
+            assertTrue(entry.isDirectory());
+            assertFalse(entry.hasStream());
+            
+            entry = sevenZ.getNextEntry();
+            assertEquals("vazio.txt", entry.getName());
+            assertFalse(entry.isDirectory());
+            assertEquals(0, entry.getSize());
+            
+            for (Map.Entry<String, byte[]> expected : contents.entrySet()) {
+                entry = sevenZ.getNextEntry();
+                assertEquals(expected.getKey(), entry.getName());
+                assertEquals(expected.getValue().length, entry.getSize());
+                assertTrue(entry.getHasCrc());
+                assertEquals(crc(expected.getValue()), entry.getCrcValue());
+                assertEquals(MODIFIED, entry.getLastModifiedDate().getTime());
+                assertArrayEquals(expected.getValue(), readAll(sevenZ.getInputStream(entry)));
+            }
+            assertNull(sevenZ.getNextEntry());
+        }
+    }
+    
+    @Test
+    public void dictionarySizesAreEncodedExactly() throws IOException {
+        // O LZMA2 representa exatamente 2^n e 3 * 2^n
+        int[] sizes = {4096, 6144, 64 * 1024, 96 * 1024, 1 << 20, 3 << 19, 1 << 22};
+        for (int size : sizes) {
+            LZMA2Options options = new LZMA2Options(0);
+            options.setDictSize(size);
+            
+            File archive = temp.newFile("dicionario-" + size + ".7z");
+            try (SolidSevenZWriter writer = new SolidSevenZWriter(archive)) {
+                try (SolidSevenZWriter.BlockOutput block = writer.openBlock(options)) {
+                    block.addEntry("dados.bin", MODIFIED, new ByteArrayInputStream(randomBytes(1000, size)));
+                }
+            }
+            
+            try (SevenZFile sevenZ = new SevenZFile(archive)) {
+                SevenZArchiveEntry entry = sevenZ.getNextEntry();
+                SevenZMethodConfiguration method = entry.getContentMethods().iterator().next();
+                assertEquals(SevenZMethod.LZMA2, method.getMethod());
+                assertEquals("Dicionário de " + size, size, ((Number) method.getOptions()).intValue());
+                readAll(sevenZ.getInputStream(entry));
+            }
+        }
+    }
+    
+    /**
+     * Compacta o conteúdo em um arquivo temporário como um fluxo LZMA2 puro
+     */
+    private File packLzma2(byte[] content, LZMA2Options options) throws IOException {
+        File packed = temp.newFile();
+        try (OutputStream out = options.getOutputStream(
+                 new FinishableWrapperOutputStream(new FileOutputStream(packed)))) {
+            out.write(content);
+        }
+        return packed;
+    }
+    
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+    
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+    
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        return out.toByteArray();
+    }
+}
\ No newline at end of file